@@ -3,6 +3,7 @@ package com.supermercado;
 
 import com.supermercado.config.Screens;
 import com.supermercado.config.StageManager;
+import com.supermercado.service.LogService;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -80,7 +81,11 @@ public class SuperMercadoApp extends Application {
     @Override
     public void stop() {
         logger.info("Encerrando aplicação...");
-        springContext.close();
+        if (springContext != null) {
+            // Grava os registros de auditoria ainda na fila antes de fechar o pool de conexões
+            springContext.getBean(LogService.class).flush();
+            springContext.close();
+        }
         Platform.exit();
         logger.info("Aplicação encerrada");
     }
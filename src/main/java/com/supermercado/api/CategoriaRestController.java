@@ -0,0 +1,43 @@
+package com.supermercado.api;
+
+import com.supermercado.model.Categoria;
+import com.supermercado.service.CategoriaService;
+import com.supermercado.service.VersaoCatalogoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/categorias")
+public class CategoriaRestController {
+
+    @Autowired
+    private CategoriaService categoriaService;
+
+    @Autowired
+    private VersaoCatalogoService versaoCatalogo;
+
+    /**
+     * Categorias ativas, com GET condicional pela versão do catálogo (304 quando não mudou)
+     */
+    @GetMapping
+    public List<CategoriaResumo> listar(WebRequest requisicao) {
+        if (requisicao.checkNotModified(versaoCatalogo.getEtag(), versaoCatalogo.getUltimaAlteracao())) {
+            return null;
+        }
+        return categoriaService.listarAtivas().stream().map(CategoriaResumo::de).toList();
+    }
+
+    /**
+     * Categoria sem a lista de produtos
+     */
+    public record CategoriaResumo(Long id, String nome, String descricao, Boolean ativo) {
+
+        static CategoriaResumo de(Categoria categoria) {
+            return new CategoriaResumo(categoria.getId(), categoria.getNome(), categoria.getDescricao(),
+                    categoria.getAtivo());
+        }
+    }
+}
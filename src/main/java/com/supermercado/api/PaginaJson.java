@@ -0,0 +1,98 @@
+package com.supermercado.api;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Resposta paginada por cursor gravada em streaming: {"itens": [...], "proximo": "cursor" | null}.
+ * Cada linha lida do banco vai direto para o JsonGenerator, então a memória por requisição
+ * não depende do tamanho da página.
+ */
+final class PaginaJson {
+
+    /**
+     * Fonte das linhas da página: recebe quantas linhas buscar e o consumidor de cada linha
+     */
+    @FunctionalInterface
+    interface Fonte<T> {
+        void percorrer(int limite, Consumer<T> consumidor);
+    }
+
+    private PaginaJson() {
+    }
+
+    /**
+     * Busca até {@code limite + 1} linhas: a linha extra só indica que existe próxima
+     * página e não é gravada. O cursor retornado é o da última linha gravada.
+     */
+    static <T> ResponseEntity<StreamingResponseBody> responder(ObjectMapper objectMapper, int limite,
+            Fonte<T> fonte, Function<T, String> cursor) {
+        StreamingResponseBody corpo = saida -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(saida, JsonEncoding.UTF8)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("itens");
+
+                int[] gravadas = { 0 };
+                String[] proximo = { null };
+                AtomicReference<T> ultima = new AtomicReference<>();
+                fonte.percorrer(limite + 1, linha -> {
+                    if (gravadas[0] == limite) {
+                        proximo[0] = cursor.apply(ultima.get());
+                        return;
+                    }
+                    try {
+                        objectMapper.writeValue(json, linha);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    ultima.set(linha);
+                    gravadas[0]++;
+                });
+
+                json.writeEndArray();
+                json.writeStringField("proximo", proximo[0]);
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(corpo);
+    }
+
+    /**
+     * Tamanho de página pedido, limitado ao máximo configurado
+     */
+    static int limitar(Integer pedido, int padrao, int maximo) {
+        if (pedido == null) {
+            return Math.min(padrao, maximo);
+        }
+        if (pedido <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limite deve ser positivo");
+        }
+        return Math.min(pedido, maximo);
+    }
+
+    static String codificarCursor(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodificarCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.supermercado.api;
+
+import com.supermercado.service.PerifericoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/perifericos")
+public class PerifericoRestController {
+
+    @Autowired
+    private PerifericoService perifericoService;
+
+    /**
+     * Métricas da impressão térmica: comprovantes na fila, impressos, falhas e descartes,
+     * no total e por impressora
+     */
+    @GetMapping("/impressao")
+    public PerifericoService.MetricasImpressao impressao() {
+        return perifericoService.getMetricasImpressao();
+    }
+}
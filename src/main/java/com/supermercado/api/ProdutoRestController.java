@@ -1,11 +1,29 @@
 package com.supermercado.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.supermercado.model.Produto;
+import com.supermercado.model.ProdutoListagem;
+import com.supermercado.model.ProdutoResumo;
+import com.supermercado.model.SaudeEstoque;
+import com.supermercado.repository.ListagemRepository;
 import com.supermercado.repository.ProdutoRepository;
+import com.supermercado.service.ProdutoService;
+import com.supermercado.service.VersaoCatalogoService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/produtos")
@@ -14,18 +32,172 @@ public class ProdutoRestController {
     @Autowired
     private ProdutoRepository produtoRepository;
 
+    @Autowired
+    private ProdutoService produtoService;
+
+    @Autowired
+    private ListagemRepository listagemRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private VersaoCatalogoService versaoCatalogo;
+
+    @Value("${api.paginacao.padrao:100}")
+    private int paginaPadrao;
+
+    @Value("${api.paginacao.max:500}")
+    private int paginaMaxima;
+
+    @Value("${api.produtos.barcodes.max:5000}")
+    private int maximoCodigos;
+
+    /**
+     * Lista os produtos em ordem de ID, paginada por cursor. Filtros opcionais: categoria e ativo.
+     * Para a próxima página, repita a consulta com cursor = "proximo" da resposta.
+     */
     @GetMapping
-    public List<Produto> listar() {
-        return produtoRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> listar(
+            @RequestParam(required = false) Long categoria,
+            @RequestParam(required = false) Boolean ativo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            WebRequest requisicao) {
+        if (naoModificado(requisicao)) {
+            return null;
+        }
+        int tamanhoPagina = PaginaJson.limitar(limite, paginaPadrao, paginaMaxima);
+        long aposId = 0L;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                aposId = Long.parseLong(PaginaJson.decodificarCursor(cursor));
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor inválido");
+            }
+        }
+        long cursorId = aposId;
+
+        return PaginaJson.<ProdutoListagem>responder(objectMapper, tamanhoPagina,
+                (n, consumidor) -> listagemRepository.percorrerProdutos(cursorId, categoria, ativo, n, consumidor),
+                produto -> PaginaJson.codificarCursor(String.valueOf(produto.id())));
+    }
+
+    /**
+     * Situação do estoque dos produtos ativos: total e por categoria
+     */
+    @GetMapping("/estoque/saude")
+    public Map<String, Object> saudeEstoque(WebRequest requisicao) {
+        if (naoModificado(requisicao)) {
+            return null;
+        }
+        List<SaudeEstoque> categorias = produtoService.saudeEstoquePorCategoria();
+        Map<String, Object> resposta = new LinkedHashMap<>();
+        resposta.put("total", SaudeEstoque.somar(categorias));
+        resposta.put("categorias", categorias);
+        return resposta;
+    }
+
+    /**
+     * Feed de alterações do catálogo para réplicas locais: produtos inseridos, alterados ou
+     * desativados depois do cursor, em ordem de versão. O cliente guarda "versao" e "apos" da
+     * resposta e repete a consulta com eles ({@code since} e {@code apos}) enquanto "completo"
+     * for false; depois, volta a consultar periodicamente a partir do mesmo ponto.
+     *
+     * Só entram versões de transações já encerradas, então uma gravação ainda em andamento nunca
+     * fica para trás do cursor: ela aparece numa consulta seguinte, com versão acima dele.
+     */
+    @GetMapping("/changes")
+    public AlteracoesCatalogo alteracoes(@RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "0") long apos,
+            @RequestParam(required = false) Integer limite) {
+        int tamanhoPagina = PaginaJson.limitar(limite, paginaMaxima, paginaMaxima);
+        long versaoSegura = listagemRepository.versaoSeguraCatalogo();
+        List<ProdutoResumo> produtos = new ArrayList<>();
+        long[] versao = { since };
+        boolean[] completo = { true };
+        // apos = 0: a versão since já foi entregue inteira
+        long aposId = apos > 0 ? apos : Long.MAX_VALUE;
+        listagemRepository.percorrerAlteracoesProdutos(since, aposId, versaoSegura, tamanhoPagina + 1,
+                (versaoLinha, produto) -> {
+                    if (produtos.size() == tamanhoPagina) {
+                        completo[0] = false;
+                        return;
+                    }
+                    produtos.add(produto);
+                    versao[0] = versaoLinha;
+                });
+        if (!completo[0]) {
+            return new AlteracoesCatalogo(versao[0], produtos.get(produtos.size() - 1).id(), false, produtos);
+        }
+        if (since >= versaoSegura) {
+            return new AlteracoesCatalogo(since, apos, true, produtos);
+        }
+        // Tudo abaixo da versão segura já foi entregue: o cursor avança até ela
+        return new AlteracoesCatalogo(versaoSegura - 1, 0L, true, produtos);
+    }
+
+    /**
+     * Resposta do feed: cursor alcançado (versão e último ID entregue nela, ou 0 se a versão
+     * foi entregue inteira), se não há mais alterações e os produtos alterados
+     */
+    public record AlteracoesCatalogo(long versao, long apos, boolean completo, List<ProdutoResumo> produtos) {
     }
 
     @GetMapping("/{id}")
-    public Produto buscar(@PathVariable Long id) {
+    public Produto buscar(@PathVariable Long id, WebRequest requisicao) {
+        if (naoModificado(requisicao)) {
+            return null;
+        }
         return produtoRepository.findById(id).orElseThrow();
     }
 
+    /**
+     * Resolve uma lista de códigos de barras em uma única requisição (quiosques de autoatendimento,
+     * estação de etiquetas). Códigos repetidos ou em branco são ignorados.
+     */
+    @PostMapping("/barcodes")
+    public ResultadoCodigos buscarPorCodigos(@RequestBody List<String> codigos) {
+        Set<String> distintos = new LinkedHashSet<>();
+        for (String codigo : codigos) {
+            if (codigo != null && !codigo.isBlank()) {
+                distintos.add(codigo.trim());
+            }
+        }
+        if (distintos.size() > maximoCodigos) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Máximo de " + maximoCodigos + " códigos por requisição");
+        }
+
+        Map<String, ProdutoResumo> encontrados = produtoService.buscarResumosPorCodigosBarras(distintos);
+        List<String> ausentes = new ArrayList<>();
+        for (String codigo : distintos) {
+            if (!encontrados.containsKey(codigo)) {
+                ausentes.add(codigo);
+            }
+        }
+        return new ResultadoCodigos(new ArrayList<>(encontrados.values()), ausentes);
+    }
+
+    /**
+     * Resposta da busca em lote: produtos encontrados e códigos sem produto
+     */
+    public record ResultadoCodigos(List<ProdutoResumo> encontrados, List<String> ausentes) {
+    }
+
     @GetMapping("/barcode/{barcode}")
-    public Produto buscarPorCodigo(@PathVariable String barcode) {
+    public Produto buscarPorCodigo(@PathVariable String barcode, WebRequest requisicao) {
+        if (naoModificado(requisicao)) {
+            return null;
+        }
         return produtoRepository.findByCodigoBarras(barcode).orElseThrow();
     }
+
+    /**
+     * GET condicional pela versão do catálogo: preenche ETag e Last-Modified e indica se o
+     * cliente já tem a versão atual (nesse caso a resposta é 304, sem consultar o banco)
+     */
+    private boolean naoModificado(WebRequest requisicao) {
+        return requisicao.checkNotModified(versaoCatalogo.getEtag(), versaoCatalogo.getUltimaAlteracao());
+    }
 }
@@ -1,21 +1,163 @@
 package com.supermercado.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supermercado.model.ItemVendaResumo;
+import com.supermercado.model.PedidoVenda;
 import com.supermercado.model.Venda;
-import com.supermercado.repository.VendaRepository;
+import com.supermercado.model.VendaResumo;
+import com.supermercado.repository.ListagemRepository;
+import com.supermercado.service.DiarioVendaService;
+import com.supermercado.service.EventosVendaService;
+import com.supermercado.service.RankingVendasService;
+import com.supermercado.service.VendaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/vendas")
 public class VendaRestController {
 
     @Autowired
-    private VendaRepository vendaRepository;
+    private ListagemRepository listagemRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${api.paginacao.padrao:100}")
+    private int paginaPadrao;
+
+    @Value("${api.paginacao.max:500}")
+    private int paginaMaxima;
+
+    @Autowired
+    private DiarioVendaService diarioVendaService;
+
+    @Autowired
+    private VendaService vendaService;
+
+    @Autowired
+    private RankingVendasService rankingVendasService;
+
+    @Autowired
+    private EventosVendaService eventosVendaService;
+
+    /**
+     * Lista as vendas (projeção: id, data, status, total, pagamento e operador), da mais
+     * recente para a mais antiga, paginada por cursor. Filtros opcionais: período e status.
+     * Para a próxima página, repita a consulta com cursor = "proximo" da resposta.
+     */
     @GetMapping
-    public List<Venda> listar() {
-        return vendaRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> listar(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+            @RequestParam(required = false) Venda.StatusVenda status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        int tamanhoPagina = PaginaJson.limitar(limite, paginaPadrao, paginaMaxima);
+        LocalDateTime dataInicio = inicio != null ? inicio.atStartOfDay() : null;
+        LocalDateTime dataFim = fim != null ? fim.atTime(LocalTime.MAX) : null;
+
+        LocalDateTime antesDe = null;
+        Long antesDeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] partes = PaginaJson.decodificarCursor(cursor).split("\\|");
+            try {
+                antesDe = LocalDateTime.parse(partes[0]);
+                antesDeId = Long.parseLong(partes[1]);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor inválido");
+            }
+        }
+        LocalDateTime cursorData = antesDe;
+        Long cursorId = antesDeId;
+
+        return PaginaJson.<VendaResumo>responder(objectMapper, tamanhoPagina,
+                (n, consumidor) -> listagemRepository.percorrerVendas(cursorData, cursorId, dataInicio, dataFim,
+                        status, n, consumidor),
+                venda -> PaginaJson.codificarCursor(venda.dataVenda() + "|" + venda.id()));
+    }
+
+    /**
+     * Registra uma venda completa de um caixa remoto ou de autoatendimento. Idempotente pela
+     * chaveIdempotencia do corpo: 201 na primeira gravação, 200 com a mesma venda nos reenvios.
+     */
+    @PostMapping
+    public ResponseEntity<VendaService.VendaRegistrada> registrar(@RequestBody PedidoVenda pedido) {
+        VendaService.VendaRegistrada registrada;
+        try {
+            registrada = vendaService.registrarVendaRemota(pedido);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+        return ResponseEntity.status(registrada.repetida() ? HttpStatus.OK : HttpStatus.CREATED).body(registrada);
+    }
+
+    /**
+     * Itens de uma venda
+     */
+    @GetMapping("/{id}/itens")
+    public List<ItemVendaResumo> itens(@PathVariable Long id) {
+        return vendaService.buscarItensDaVenda(id);
+    }
+
+    /**
+     * Stream SSE das vendas finalizadas e canceladas. Ao reconectar, o navegador envia o
+     * cabeçalho Last-Event-ID e recebe os eventos perdidos que ainda estão no histórico
+     * (ou um evento "reinicio", se não estiverem mais).
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) Long ultimoId,
+            @RequestParam(value = "desde", required = false) Long desde) {
+        return eventosVendaService.assinar(ultimoId != null ? ultimoId : desde);
+    }
+
+    /**
+     * Assinantes conectados ao stream de vendas e descartes por lentidão
+     */
+    @GetMapping("/stream/metricas")
+    public EventosVendaService.Metricas streamMetricas() {
+        return eventosVendaService.getMetricas();
+    }
+
+    /**
+     * Métricas do diário local de vendas (pendentes e atraso de replicação)
+     */
+    @GetMapping("/diario")
+    public DiarioVendaService.Metricas diario() {
+        return diarioVendaService.getMetricas();
+    }
+
+    /**
+     * Recalcula os totais pré-agregados a partir de todas as vendas (carga inicial ou correção)
+     */
+    @PostMapping("/agregados/reconstruir")
+    public Map<String, Integer> reconstruirAgregados() {
+        return Map.of("linhas", vendaService.reconstruirAgregados());
+    }
+
+    /**
+     * Produtos mais vendidos na janela (ULTIMA_HORA, HOJE ou SETE_DIAS), do ranking em memória
+     */
+    @GetMapping("/ranking")
+    public List<RankingVendasService.ProdutoRanking> ranking(
+            @RequestParam(defaultValue = "HOJE") RankingVendasService.Janela janela,
+            @RequestParam(defaultValue = "10") int limite) {
+        return rankingVendasService.topo(janela, limite);
     }
 }
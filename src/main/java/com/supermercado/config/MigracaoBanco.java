@@ -0,0 +1,149 @@
+package com.supermercado.config;
+
+import com.supermercado.repository.VendaAgregadaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.supermercado.util.NormalizadorTexto;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Ajustes de esquema que o ddl-auto=update não faz sozinho.
+ * Roda antes do DatabaseSeeder e de qualquer gravação da aplicação.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MigracaoBanco implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracaoBanco.class);
+
+    /**
+     * Tabela, sequence e allocationSize de cada entidade com ID por sequence
+     */
+    private static final String[][] SEQUENCES = {
+            { "produtos", "produtos_seq", "50" },
+            { "vendas", "vendas_seq", "50" },
+            { "itens_venda", "itens_venda_seq", "50" },
+            { "compras", "compras_seq", "50" },
+            { "itens_compra", "itens_compra_seq", "50" },
+            { "log_acoes", "log_acoes_seq", "1" }
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VendaAgregadaRepository vendaAgregadaRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public MigracaoBanco(JdbcTemplate jdbcTemplate, VendaAgregadaRepository vendaAgregadaRepository,
+            TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.vendaAgregadaRepository = vendaAgregadaRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(String... args) {
+        alinharSequences();
+        criarAgregadosVendas();
+        criarIndicesParciais();
+        criarVersaoCatalogo();
+        preencherNomeBusca();
+    }
+
+    /**
+     * As tabelas antigas usavam IDENTITY. Posiciona cada sequence acima do maior ID
+     * existente (com folga de um bloco do otimizador pooled), sem nunca voltá-la.
+     */
+    private void alinharSequences() {
+        for (String[] seq : SEQUENCES) {
+            String tabela = seq[0];
+            String sequence = seq[1];
+            int alocacao = Integer.parseInt(seq[2]);
+
+            Long valor = jdbcTemplate.queryForObject(
+                    "SELECT setval('" + sequence + "', GREATEST(" +
+                            "(SELECT COALESCE(MAX(id), 0) FROM " + tabela + ") + " + alocacao + ", " +
+                            "(SELECT last_value FROM " + sequence + ")))",
+                    Long.class);
+            logger.debug("Sequence {} alinhada em {}", sequence, valor);
+        }
+        logger.info("Sequences de ID alinhadas com os dados existentes");
+    }
+
+    /**
+     * Cria a tabela vendas_agregadas e, na primeira vez, popula com o histórico
+     */
+    private void criarAgregadosVendas() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (vendaAgregadaRepository.criarTabelaSeNecessario()) {
+                int linhas = vendaAgregadaRepository.reconstruir();
+                logger.info("Tabela vendas_agregadas criada a partir do histórico: {} linhas", linhas);
+            }
+        });
+    }
+
+    /**
+     * Índice parcial só com os produtos ativos, cobrindo as colunas das consultas de
+     * situação do estoque (contagem por categoria e lista de estoque baixo)
+     */
+    private void criarIndicesParciais() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_produtos_ativos_estoque " +
+                "ON produtos (categoria_id, quantidade_estoque, estoque_minimo) WHERE ativo = true");
+    }
+
+    /**
+     * Versão do catálogo para o feed de alterações: toda inserção ou atualização de produto
+     * (JPA ou JDBC) recebe, por trigger, o ID da transação que a gravou.
+     *
+     * Um número tirado de sequence seria fixado na escrita, não no commit: uma venda que baixa
+     * estoque pode pegar a versão 10 e confirmar depois de outra que pegou a 11, e a réplica
+     * que já avançou até 11 perderia a 10. Com o ID da transação, o feed só entrega versões
+     * abaixo do xmin do snapshot atual, todas de transações já encerradas.
+     */
+    private void criarVersaoCatalogo() {
+        jdbcTemplate.execute("ALTER TABLE produtos ADD COLUMN IF NOT EXISTS versao_catalogo bigint");
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION produtos_versao_catalogo() RETURNS trigger AS $$ " +
+                "BEGIN NEW.versao_catalogo := pg_current_xact_id()::text::bigint; RETURN NEW; END; " +
+                "$$ LANGUAGE plpgsql");
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS trg_produtos_versao_catalogo ON produtos");
+        jdbcTemplate.execute("CREATE TRIGGER trg_produtos_versao_catalogo BEFORE INSERT OR UPDATE ON produtos " +
+                "FOR EACH ROW EXECUTE FUNCTION produtos_versao_catalogo()");
+
+        // O trigger preenche a versão ao atualizar a linha
+        int numeradas = jdbcTemplate.update("UPDATE produtos SET versao_catalogo = 0 WHERE versao_catalogo IS NULL");
+        if (numeradas > 0) {
+            logger.info("Versão do catálogo atribuída a {} produtos existentes", numeradas);
+        }
+    }
+
+    /**
+     * Calcula nome_busca dos produtos gravados antes da coluna existir e cria o índice
+     * de trigramas do PostgreSQL (pg_trgm) para o LIKE '%termo%', quando a extensão
+     * estiver disponível
+     */
+    private void preencherNomeBusca() {
+        jdbcTemplate.execute("ALTER TABLE produtos ADD COLUMN IF NOT EXISTS nome_busca varchar(200)");
+        List<Object[]> pendentes = jdbcTemplate.query(
+                "SELECT id, nome FROM produtos WHERE nome_busca IS NULL",
+                (rs, i) -> new Object[] { NormalizadorTexto.normalizar(rs.getString(2)), rs.getLong(1) });
+        if (!pendentes.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE produtos SET nome_busca = ? WHERE id = ?", pendentes);
+            logger.info("Nome de busca calculado para {} produtos existentes", pendentes.size());
+        }
+
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_produtos_nome_busca_trgm " +
+                    "ON produtos USING gin (nome_busca gin_trgm_ops)");
+        } catch (DataAccessException e) {
+            logger.warn("Extensão pg_trgm indisponível; busca por nome no banco sem índice de trigramas: {}",
+                    e.getMessage());
+        }
+    }
+}
@@ -1,85 +1,260 @@
 package com.supermercado.controller;
 
 import com.supermercado.model.Produto;
+import com.supermercado.model.ProdutoListagem;
+import com.supermercado.model.ProdutoResumo;
+import com.supermercado.repository.ListagemRepository;
 import com.supermercado.service.ProdutoService;
 import com.supermercado.util.FormatadorUtil;
+import jakarta.annotation.PreDestroy;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pesquisa de produtos do PDV. As buscas rodam fora da thread da interface, depois de uma
+ * pausa na digitação; cada busca nova descarta a anterior. A tabela recebe os resultados
+ * em páginas, carregando a próxima quando a última linha aparece.
+ */
 @Component
 public class BuscaProdutoController {
 
+    private static final Logger logger = LoggerFactory.getLogger(BuscaProdutoController.class);
+
+    private static final int ATRASO_BUSCA_MS = 250;
+    private static final int TAMANHO_PAGINA = 100;
+    private static final int LIMITE_RESULTADOS = 1000;
+
     @FXML
     private TextField filtroField;
     @FXML
-    private TableView<Produto> produtosTableView;
+    private TableView<ProdutoResumo> produtosTableView;
     @FXML
-    private TableColumn<Produto, String> colCodigo;
+    private TableColumn<ProdutoResumo, String> colCodigo;
     @FXML
-    private TableColumn<Produto, String> colNome;
+    private TableColumn<ProdutoResumo, String> colNome;
     @FXML
-    private TableColumn<Produto, String> colPreco;
+    private TableColumn<ProdutoResumo, String> colPreco;
     @FXML
-    private TableColumn<Produto, Integer> colEstoque;
+    private TableColumn<ProdutoResumo, Integer> colEstoque;
     @FXML
     private TextField quantidadeField;
 
     private final ProdutoService produtoService;
-    private ObservableList<Produto> masterData = FXCollections.observableArrayList();
+    private final ListagemRepository listagemRepository;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "busca-produtos");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Identifica a busca atual: resultados de buscas anteriores são descartados
+    private final AtomicLong geracao = new AtomicLong();
+
+    // Estado da busca atual (só acessado na thread da interface)
+    private final ObservableList<ProdutoResumo> resultados = FXCollections.observableArrayList();
+    private PauseTransition espera;
+    private Future<?> tarefa;
+    private List<ProdutoResumo> restantes = List.of();
+    private Long listagemAposId;
+    private boolean carregando;
+
     private Produto produtoSelecionado;
     private int quantidade = 1;
 
     @Autowired
-    public BuscaProdutoController(ProdutoService produtoService) {
+    public BuscaProdutoController(ProdutoService produtoService, ListagemRepository listagemRepository) {
         this.produtoService = produtoService;
+        this.listagemRepository = listagemRepository;
     }
 
     @FXML
     public void initialize() {
-        colCodigo.setCellValueFactory(new PropertyValueFactory<>("codigoBarras"));
-        colNome.setCellValueFactory(new PropertyValueFactory<>("nome"));
-        colPreco.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(
-                FormatadorUtil.formatarMoeda(cellData.getValue().getPrecoVenda())));
-        colEstoque.setCellValueFactory(new PropertyValueFactory<>("quantidadeEstoque"));
-
-        masterData.setAll(produtoService.listarTodos());
-        FilteredList<Produto> filteredData = new FilteredList<>(masterData, p -> true);
-
-        filtroField.textProperty().addListener((observable, oldValue, newValue) -> {
-            filteredData.setPredicate(produto -> {
-                if (newValue == null || newValue.isEmpty())
-                    return true;
-                String lowerCaseFilter = newValue.toLowerCase();
-                if (produto.getNome().toLowerCase().contains(lowerCaseFilter))
-                    return true;
-                if (produto.getCodigoBarras().toLowerCase().contains(lowerCaseFilter))
-                    return true;
-                return false;
-            });
+        colCodigo.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().codigoBarras()));
+        colNome.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().nome()));
+        colPreco.setCellValueFactory(cellData -> new SimpleStringProperty(
+                FormatadorUtil.formatarMoeda(cellData.getValue().precoVenda())));
+        colEstoque.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().quantidadeEstoque()));
+
+        produtoSelecionado = null;
+        resultados.clear();
+        produtosTableView.setItems(resultados);
+
+        // A tabela só cria linhas para o que está visível; quando a última aparece, vem a próxima página
+        produtosTableView.setRowFactory(tabela -> new TableRow<>() {
+            @Override
+            protected void updateItem(ProdutoResumo item, boolean empty) {
+                super.updateItem(item, empty);
+                if (!empty && getIndex() == resultados.size() - 1) {
+                    Platform.runLater(BuscaProdutoController.this::carregarMais);
+                }
+            }
         });
 
-        produtosTableView.setItems(filteredData);
+        espera = new PauseTransition(Duration.millis(ATRASO_BUSCA_MS));
+        espera.setOnFinished(event -> buscar(filtroField.getText()));
+        filtroField.textProperty().addListener((observable, oldValue, newValue) -> espera.playFromStart());
+        filtroField.setOnAction(event -> {
+            espera.stop();
+            buscar(filtroField.getText());
+        });
 
         produtosTableView.setOnMouseClicked(event -> {
             if (event.getClickCount() == 2) {
                 handleAdicionar();
             }
         });
+
+        // A janela abre vazia e a primeira página chega em segundo plano
+        buscar("");
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Inicia uma busca nova, cancelando a que estiver em andamento. Sem filtro, lista os
+     * produtos ativos página a página; com filtro, busca por código de barras e nome
+     * (até {@value #LIMITE_RESULTADOS} resultados).
+     */
+    private void buscar(String texto) {
+        long atual = geracao.incrementAndGet();
+        if (tarefa != null) {
+            tarefa.cancel(true);
+        }
+        resultados.clear();
+        restantes = List.of();
+        listagemAposId = null;
+        carregando = true;
+        produtosTableView.setPlaceholder(new Label("Buscando..."));
+
+        String filtro = texto == null ? "" : texto.strip();
+        if (filtro.isEmpty()) {
+            tarefa = executor.submit(() -> carregarListagem(atual, 0L));
+            return;
+        }
+        tarefa = executor.submit(() -> {
+            try {
+                List<ProdutoResumo> encontrados = pesquisar(filtro);
+                Platform.runLater(() -> {
+                    if (geracao.get() == atual) {
+                        restantes = encontrados;
+                        carregando = false;
+                        proximaPaginaEmMemoria();
+                        produtosTableView.setPlaceholder(new Label("Nenhum produto encontrado"));
+                    }
+                });
+            } catch (Exception e) {
+                falhar(atual, e);
+            }
+        });
+    }
+
+    /**
+     * Código de barras exato primeiro, depois os nomes (com correção de erros de digitação
+     * quando nada casa exatamente)
+     */
+    private List<ProdutoResumo> pesquisar(String filtro) {
+        Map<Long, ProdutoResumo> encontrados = new LinkedHashMap<>();
+        if (filtro.chars().allMatch(Character::isDigit)) {
+            produtoService.buscarResumoPorCodigoBarras(filtro).ifPresent(p -> encontrados.put(p.id(), p));
+        }
+        for (ProdutoResumo resumo : produtoService.buscarResumosPorNome(filtro, LIMITE_RESULTADOS)) {
+            encontrados.putIfAbsent(resumo.id(), resumo);
+        }
+        return new ArrayList<>(encontrados.values());
+    }
+
+    /**
+     * Carrega uma página da listagem de produtos ativos, em ordem de ID (thread de busca)
+     */
+    private void carregarListagem(long atual, long aposId) {
+        if (geracao.get() != atual) {
+            return;
+        }
+        try {
+            List<ProdutoResumo> pagina = new ArrayList<>(TAMANHO_PAGINA);
+            listagemRepository.percorrerProdutos(aposId, null, true, TAMANHO_PAGINA, p -> pagina.add(resumo(p)));
+            Platform.runLater(() -> {
+                if (geracao.get() == atual) {
+                    resultados.addAll(pagina);
+                    listagemAposId = pagina.size() == TAMANHO_PAGINA ? pagina.get(pagina.size() - 1).id() : null;
+                    carregando = false;
+                    produtosTableView.setPlaceholder(new Label("Nenhum produto cadastrado"));
+                }
+            });
+        } catch (Exception e) {
+            falhar(atual, e);
+        }
+    }
+
+    /**
+     * Próxima página da busca atual: dos resultados já em memória ou do banco (listagem)
+     */
+    private void carregarMais() {
+        if (carregando) {
+            return;
+        }
+        if (!restantes.isEmpty()) {
+            proximaPaginaEmMemoria();
+        } else if (listagemAposId != null) {
+            long atual = geracao.get();
+            long aposId = listagemAposId;
+            carregando = true;
+            tarefa = executor.submit(() -> carregarListagem(atual, aposId));
+        }
+    }
+
+    private void proximaPaginaEmMemoria() {
+        int n = Math.min(TAMANHO_PAGINA, restantes.size());
+        resultados.addAll(restantes.subList(0, n));
+        restantes = restantes.subList(n, restantes.size());
+    }
+
+    private void falhar(long atual, Exception e) {
+        logger.error("Erro na busca de produtos", e);
+        Platform.runLater(() -> {
+            if (geracao.get() == atual) {
+                carregando = false;
+                produtosTableView.setPlaceholder(new Label("Erro ao buscar produtos"));
+            }
+        });
+    }
+
+    private static ProdutoResumo resumo(ProdutoListagem p) {
+        return new ProdutoResumo(p.id(), p.codigoBarras(), p.nome(), p.precoVenda(), p.quantidadeEstoque(),
+                p.unidadeMedida(), p.ativo());
     }
 
     @FXML
     private void handleAdicionar() {
-        produtoSelecionado = produtosTableView.getSelectionModel().getSelectedItem();
-        if (produtoSelecionado == null) {
+        ProdutoResumo selecionado = produtosTableView.getSelectionModel().getSelectedItem();
+        if (selecionado == null) {
             return;
         }
+        produtoSelecionado = selecionado.paraProduto();
 
         try {
             quantidade = Integer.parseInt(quantidadeField.getText());
@@ -99,6 +274,8 @@ public class BuscaProdutoController {
     }
 
     private void closeStage() {
+        espera.stop();
+        geracao.incrementAndGet();
         Stage stage = (Stage) filtroField.getScene().getWindow();
         stage.close();
     }
@@ -1,7 +1,14 @@
 package com.supermercado.controller;
 
-import com.supermercado.repository.ProdutoRepository;
-import com.supermercado.repository.VendaRepository;
+import com.supermercado.model.Dinheiro;
+import com.supermercado.model.SaudeEstoque;
+import com.supermercado.repository.VendaAgregadaRepository;
+import com.supermercado.service.DiarioVendaService;
+import com.supermercado.service.EventosVendaService;
+import com.supermercado.service.ProdutoService;
+import com.supermercado.service.RankingVendasService;
+import com.supermercado.service.VendaService;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.chart.BarChart;
@@ -15,8 +22,13 @@ import java.math.BigDecimal;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Controller
 public class DashboardController implements Initializable {
@@ -31,48 +43,163 @@ public class DashboardController implements Initializable {
     private PieChart estoqueChart;
 
     @Autowired
-    private VendaRepository vendaRepository;
+    private VendaAgregadaRepository vendaAgregadaRepository;
 
     @Autowired
-    private ProdutoRepository produtoRepository;
+    private ProdutoService produtoService;
+
+    @Autowired
+    private RankingVendasService rankingVendasService;
+
+    @Autowired
+    private EventosVendaService eventosVendaService;
+
+    @Autowired
+    private DiarioVendaService diarioVendaService;
+
+    @Autowired
+    private VendaService vendaService;
+
+    // Totais de hoje: lidos do banco e do diário ao abrir e depois mantidos pelos eventos de venda
+    private final AtomicLong totalHojeCentavos = new AtomicLong();
+    private final AtomicLong quantidadeHoje = new AtomicLong();
+    private final AtomicBoolean atualizacaoPendente = new AtomicBoolean();
+    private EventosVendaService.Inscricao inscricao;
+
+    // Eventos recebidos enquanto os totais são lidos (null fora da carga); guardado por si mesmo
+    private final Object cargaLock = new Object();
+    private List<EventosVendaService.EventoVenda> eventosDuranteCarga;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        carregarDados();
+        // Inscreve antes de ler os totais, para não perder as vendas finalizadas durante a leitura
+        if (inscricao != null) {
+            inscricao.cancelar();
+        }
+        synchronized (cargaLock) {
+            eventosDuranteCarga = new ArrayList<>();
+        }
+        inscricao = eventosVendaService.inscrever(this::aoReceberEvento);
+
+        try {
+            carregarDados();
+        } finally {
+            // Se a leitura falhou, os eventos guardados passam a valer sobre os totais que houver
+            synchronized (cargaLock) {
+                if (eventosDuranteCarga != null) {
+                    eventosDuranteCarga.forEach(this::acumular);
+                    eventosDuranteCarga = null;
+                }
+            }
+        }
     }
 
     private void carregarDados() {
-        LocalDateTime inicio = LocalDate.now().atStartOfDay();
+        LocalDate hoje = LocalDate.now();
+        LocalDateTime inicio = hoje.atStartOfDay();
         LocalDateTime fim = LocalDateTime.now();
 
-        BigDecimal total = vendaRepository.calcularTotalPeriodo(inicio, fim);
-        long qtd = vendaRepository.countVendasPeriodo(inicio, fim);
+        // Totais pré-agregados por hora: custo constante, independente do número de vendas
+        long centavos = Dinheiro.de(vendaAgregadaRepository.somarTotal(inicio, fim)).getCentavos();
+        long quantidade = vendaAgregadaRepository.contarVendas(inicio, fim);
+
+        // Vendas finalizadas no caixa que ainda estão só no diário local; as que foram
+        // replicadas durante a leitura já estão nos agregados
+        Map<String, Dinheiro> pendentes = diarioVendaService.isHabilitado()
+                ? diarioVendaService.totaisPendentesDoDia(hoje) : Map.of();
+        Set<String> jaNoBanco = pendentes.isEmpty() ? Set.of() : vendaService.filtrarChavesGravadas(pendentes.keySet());
+        for (Map.Entry<String, Dinheiro> pendente : pendentes.entrySet()) {
+            if (!jaNoBanco.contains(pendente.getKey())) {
+                centavos += pendente.getValue().getCentavos();
+                quantidade++;
+            }
+        }
 
+        synchronized (cargaLock) {
+            totalHojeCentavos.set(centavos);
+            quantidadeHoje.set(quantidade);
+            // Eventos das vendas que estavam no diário já foram contados acima
+            for (EventosVendaService.EventoVenda evento : eventosDuranteCarga) {
+                if (evento.tipo() != EventosVendaService.EventoVenda.Tipo.FINALIZADA
+                        || !pendentes.containsKey(evento.chave())) {
+                    acumular(evento);
+                }
+            }
+            eventosDuranteCarga = null;
+        }
+
+        atualizarTotais();
+        atualizarRanking();
+        carregarEstoque();
+    }
+
+    /**
+     * Chamado na thread de quem finalizou ou cancelou a venda: acumula os totais e agenda
+     * uma única atualização da tela para uma rajada de eventos
+     */
+    private void aoReceberEvento(EventosVendaService.EventoVenda evento) {
+        if (evento.dataVenda() != null && !evento.dataVenda().toLocalDate().equals(LocalDate.now())) {
+            return;
+        }
+        synchronized (cargaLock) {
+            if (eventosDuranteCarga != null) {
+                eventosDuranteCarga.add(evento);
+                return;
+            }
+        }
+        acumular(evento);
+
+        if (atualizacaoPendente.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                atualizacaoPendente.set(false);
+                atualizarTotais();
+                atualizarRanking();
+                carregarEstoque();
+            });
+        }
+    }
+
+    private void acumular(EventosVendaService.EventoVenda evento) {
+        long sinal = evento.tipo() == EventosVendaService.EventoVenda.Tipo.FINALIZADA ? 1 : -1;
+        totalHojeCentavos.addAndGet(sinal * evento.total().getCentavos());
+        quantidadeHoje.addAndGet(sinal);
+    }
+
+    private void atualizarTotais() {
+        BigDecimal total = Dinheiro.centavos(totalHojeCentavos.get()).paraBigDecimal();
         lblVendasHoje.setText(String.format("R$ %.2f", total));
-        lblQtdVendas.setText(String.valueOf(qtd));
+        lblQtdVendas.setText(String.valueOf(quantidadeHoje.get()));
+    }
 
+    private void atualizarRanking() {
         // Gráfico de Barras - Vendas por Produto (Ranking)
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Vendas por Produto");
 
-        List<Object[]> maisVendidos = vendaRepository.findProdutosMaisVendidos(inicio, fim,
-                org.springframework.data.domain.PageRequest.of(0, 5));
+        // Ranking em memória por ID do produto (nome atual do catálogo)
+        List<RankingVendasService.ProdutoRanking> maisVendidos =
+                rankingVendasService.topo(RankingVendasService.Janela.HOJE, 5);
 
-        for (Object[] obj : maisVendidos) {
-            String nome = (String) obj[0];
-            Number quantidade = (Number) obj[1];
-            series.getData().add(new XYChart.Data<>(nome, quantidade));
+        for (RankingVendasService.ProdutoRanking produto : maisVendidos) {
+            series.getData().add(new XYChart.Data<>(produto.nome(), produto.quantidade()));
         }
 
         vendasChart.getData().clear();
         vendasChart.getData().add(series);
+    }
 
-        // Gráfico de Pizza - Status do Estoque
-        long estoqueBaixo = produtoRepository.findComEstoqueBaixo().size();
-        long estoqueNormal = produtoRepository.findAtivos().size() - estoqueBaixo;
+    private void carregarEstoque() {
+        // Gráfico de Pizza - Status do Estoque (apenas contagens agrupadas no banco)
+        SaudeEstoque estoque = produtoService.saudeEstoque();
 
         estoqueChart.getData().clear();
-        estoqueChart.getData().add(new PieChart.Data("Normal (" + estoqueNormal + ")", estoqueNormal));
-        estoqueChart.getData().add(new PieChart.Data("Baixo (" + estoqueBaixo + ")", estoqueBaixo));
+        estoqueChart.getData().add(new PieChart.Data("Normal (" + estoque.normal() + ")", estoque.normal()));
+        estoqueChart.getData().add(new PieChart.Data("Baixo (" + estoque.baixo() + ")", estoque.baixo()));
+        if (estoque.zerado() > 0) {
+            estoqueChart.getData().add(new PieChart.Data("Zerado (" + estoque.zerado() + ")", estoque.zerado()));
+        }
+        if (estoque.negativo() > 0) {
+            estoqueChart.getData().add(new PieChart.Data("Negativo (" + estoque.negativo() + ")", estoque.negativo()));
+        }
     }
 }
@@ -7,6 +7,7 @@ import com.supermercado.service.VendaService;
 import com.supermercado.service.UsuarioService;
 import com.supermercado.service.SessaoService;
 import com.supermercado.service.ConfigService;
+import com.supermercado.service.ComprovanteService;
 import com.supermercado.util.*;
 import com.supermercado.service.RelatorioService;
 import java.util.List;
@@ -49,6 +50,7 @@ public class MainController {
     private final SessaoService sessaoService;
     private final RelatorioService relatorioService;
     private final ConfigService configService;
+    private final ComprovanteService comprovanteService;
 
     // Toolbar
     @FXML
@@ -94,13 +96,15 @@ public class MainController {
 
     @Autowired
     public MainController(UsuarioService usuarioService, ProdutoService produtoService, VendaService vendaService,
-            SessaoService sessaoService, RelatorioService relatorioService, ConfigService configService) {
+            SessaoService sessaoService, RelatorioService relatorioService, ConfigService configService,
+            ComprovanteService comprovanteService) {
         this.usuarioService = usuarioService;
         this.produtoService = produtoService;
         this.vendaService = vendaService;
         this.sessaoService = sessaoService;
         this.relatorioService = relatorioService;
         this.configService = configService;
+        this.comprovanteService = comprovanteService;
     }
 
     @FXML
@@ -258,8 +262,14 @@ public class MainController {
                 return;
             }
 
-            vendaService.adicionarItem(vendaAtual, codigo, quantidade);
-            itens.setAll(vendaAtual.getItens());
+            int linhasAntes = vendaAtual.getItens().size();
+            ItemVenda item = vendaService.adicionarItem(vendaAtual, codigo, quantidade);
+            if (vendaAtual.getItens().size() > linhasAntes) {
+                itens.add(item);
+            } else {
+                // Mesmo produto: a linha já está na tabela, só a quantidade mudou
+                itensTableView.refresh();
+            }
             atualizarTotais();
 
             codigoBarrasField.clear();
@@ -325,7 +335,8 @@ public class MainController {
         if (DialogUtil.showConfirmation("Confirmar",
                 "Deseja remover o item: " + item.getNomeProduto() + "?")) {
             vendaService.removerItem(vendaAtual, item);
-            itens.setAll(vendaAtual.getItens());
+            // Linear na tabela, como na venda: as linhas ficam na ordem em que foram bipadas
+            itens.remove(item);
             atualizarTotais();
         }
     }
@@ -375,8 +386,8 @@ public class MainController {
                         pagamento.getValorPago());
 
                 DialogUtil.showInfo("Sucesso",
-                        String.format("Venda #%d finalizada com sucesso!\nTroco: %s",
-                                vendaFinalizada.getId(),
+                        String.format("Venda %s finalizada com sucesso!\nTroco: %s",
+                                vendaFinalizada.getIdentificacao(),
                                 FormatadorUtil.formatarMoeda(vendaFinalizada.getTroco())));
 
                 // Pergunta se deseja imprimir comprovante
@@ -394,20 +405,31 @@ public class MainController {
         }
     }
 
+    /**
+     * Gera o comprovante em segundo plano; a tela volta para a próxima venda sem esperar o PDF
+     */
     private void gerarComprovante(Venda venda) {
-        try {
-            java.io.File arquivo = ComprovantePDF.gerarComprovante(venda);
+        comprovanteService.gerar(venda).whenComplete((arquivo, erro) -> Platform.runLater(() -> {
+            if (erro != null) {
+                Exception causa = erro.getCause() instanceof Exception e ? e : new RuntimeException(erro);
+                DialogUtil.showException("Erro ao gerar comprovante", causa);
+                logger.error("Erro ao gerar comprovante", causa);
+                return;
+            }
+
             DialogUtil.showInfo("Comprovante Gerado",
                     "Comprovante salvo em:\n" + arquivo.getAbsolutePath());
 
             // Tenta abrir o arquivo
-            if (java.awt.Desktop.isDesktopSupported()) {
-                java.awt.Desktop.getDesktop().open(arquivo);
+            try {
+                if (java.awt.Desktop.isDesktopSupported()) {
+                    java.awt.Desktop.getDesktop().open(arquivo);
+                }
+            } catch (Exception e) {
+                DialogUtil.showException("Erro ao abrir comprovante", e);
+                logger.error("Erro ao abrir comprovante", e);
             }
-        } catch (Exception e) {
-            DialogUtil.showException("Erro ao gerar comprovante", e);
-            logger.error("Erro ao gerar comprovante", e);
-        }
+        }));
     }
 
     private void atualizarTotais() {
@@ -13,7 +13,8 @@ import java.util.List;
 @Table(name = "compras")
 public class Compra {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "compras_gen")
+    @SequenceGenerator(name = "compras_gen", sequenceName = "compras_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.EAGER)
@@ -28,7 +29,7 @@ public class Compra {
     private LocalDateTime dataCompra;
 
     @Column(name = "valor_total", nullable = false, precision = 10, scale = 2)
-    private BigDecimal valorTotal = BigDecimal.ZERO;
+    private Dinheiro valorTotal = Dinheiro.ZERO;
 
     @Column(length = 50)
     private String numeroNotaFiscal;
@@ -47,9 +48,11 @@ public class Compra {
     }
 
     public void atualizarTotal() {
-        this.valorTotal = itens.stream()
-                .map(ItemCompra::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long centavos = 0L;
+        for (ItemCompra item : itens) {
+            centavos = Math.addExact(centavos, item.getSubtotalCentavos());
+        }
+        this.valorTotal = Dinheiro.centavos(centavos);
     }
 
     // Getters e Setters
@@ -86,11 +89,11 @@ public class Compra {
     }
 
     public BigDecimal getValorTotal() {
-        return valorTotal;
+        return Dinheiro.emBigDecimal(valorTotal);
     }
 
     public void setValorTotal(BigDecimal valorTotal) {
-        this.valorTotal = valorTotal;
+        this.valorTotal = Dinheiro.de(valorTotal);
     }
 
     public String getNumeroNotaFiscal() {
@@ -0,0 +1,123 @@
+package com.supermercado.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valor monetário imutável em centavos (long).
+ *
+ * Regras de arredondamento: valores vindos de BigDecimal e resultados de percentuais
+ * são arredondados para o centavo com HALF_UP (metade se afasta do zero), como
+ * fazia o cálculo anterior com BigDecimal. Somas e multiplicações por quantidade
+ * são exatas; estouro de long lança ArithmeticException.
+ */
+public final class Dinheiro implements Comparable<Dinheiro> {
+
+    public static final Dinheiro ZERO = new Dinheiro(0L);
+
+    private final long centavos;
+
+    private Dinheiro(long centavos) {
+        this.centavos = centavos;
+    }
+
+    /**
+     * Cria o valor a partir da quantidade de centavos
+     */
+    public static Dinheiro centavos(long centavos) {
+        return centavos == 0L ? ZERO : new Dinheiro(centavos);
+    }
+
+    /**
+     * Cria o valor a partir de um BigDecimal, arredondando para o centavo (HALF_UP)
+     */
+    public static Dinheiro de(BigDecimal valor) {
+        if (valor == null) {
+            return null;
+        }
+        return centavos(valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Converte um percentual (ex.: 12.5) em pontos-base (1250), arredondando HALF_UP
+     */
+    public static long pontosBase(BigDecimal percentual) {
+        return percentual.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Divide arredondando HALF_UP (metade se afasta do zero). O divisor deve ser positivo.
+     */
+    public static long dividirArredondando(long dividendo, long divisor) {
+        long metade = divisor / 2;
+        return dividendo >= 0 ? (dividendo + metade) / divisor : -((-dividendo + metade) / divisor);
+    }
+
+    public long getCentavos() {
+        return centavos;
+    }
+
+    public Dinheiro mais(Dinheiro outro) {
+        return centavos(Math.addExact(centavos, outro.centavos));
+    }
+
+    public Dinheiro menos(Dinheiro outro) {
+        return centavos(Math.subtractExact(centavos, outro.centavos));
+    }
+
+    public Dinheiro vezes(int quantidade) {
+        return centavos(Math.multiplyExact(centavos, (long) quantidade));
+    }
+
+    /**
+     * Percentual deste valor, dado em pontos-base (100 = 1%), arredondado HALF_UP
+     */
+    public Dinheiro percentual(long pontosBase) {
+        return centavos(dividirArredondando(Math.multiplyExact(centavos, pontosBase), 10_000L));
+    }
+
+    public boolean isZero() {
+        return centavos == 0L;
+    }
+
+    public boolean isPositivo() {
+        return centavos > 0L;
+    }
+
+    /**
+     * Valor como BigDecimal com duas casas (para telas, relatórios e JSON)
+     */
+    @JsonValue
+    public BigDecimal paraBigDecimal() {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    /**
+     * Versão nula-segura de {@link #paraBigDecimal()}
+     */
+    public static BigDecimal emBigDecimal(Dinheiro valor) {
+        return valor != null ? valor.paraBigDecimal() : null;
+    }
+
+    @Override
+    public int compareTo(Dinheiro outro) {
+        return Long.compare(centavos, outro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Dinheiro outro && centavos == outro.centavos);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    @Override
+    public String toString() {
+        return paraBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.supermercado.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Mapeia {@link Dinheiro} para as colunas numeric(10,2) existentes
+ */
+@Converter(autoApply = true)
+public class DinheiroConverter implements AttributeConverter<Dinheiro, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Dinheiro valor) {
+        return valor != null ? valor.paraBigDecimal() : null;
+    }
+
+    @Override
+    public Dinheiro convertToEntityAttribute(BigDecimal valor) {
+        return Dinheiro.de(valor);
+    }
+}
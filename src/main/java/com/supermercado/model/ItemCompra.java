@@ -10,7 +10,8 @@ import java.math.BigDecimal;
 @Table(name = "itens_compra")
 public class ItemCompra {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "itens_compra_gen")
+    @SequenceGenerator(name = "itens_compra_gen", sequenceName = "itens_compra_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -25,7 +26,7 @@ public class ItemCompra {
     private Integer quantidade;
 
     @Column(name = "preco_unitario", nullable = false, precision = 10, scale = 2)
-    private BigDecimal precoUnitario;
+    private Dinheiro precoUnitario;
 
     public ItemCompra() {
     }
@@ -33,11 +34,18 @@ public class ItemCompra {
     public ItemCompra(Produto produto, Integer quantidade, BigDecimal precoUnitario) {
         this.produto = produto;
         this.quantidade = quantidade;
-        this.precoUnitario = precoUnitario;
+        this.precoUnitario = Dinheiro.de(precoUnitario);
     }
 
     public BigDecimal getSubtotal() {
-        return precoUnitario.multiply(BigDecimal.valueOf(quantidade));
+        return BigDecimal.valueOf(getSubtotalCentavos(), 2);
+    }
+
+    /**
+     * Subtotal do item em centavos
+     */
+    public long getSubtotalCentavos() {
+        return Math.multiplyExact(precoUnitario.getCentavos(), (long) quantidade);
     }
 
     // Getters e Setters
@@ -74,10 +82,10 @@ public class ItemCompra {
     }
 
     public BigDecimal getPrecoUnitario() {
-        return precoUnitario;
+        return Dinheiro.emBigDecimal(precoUnitario);
     }
 
     public void setPrecoUnitario(BigDecimal precoUnitario) {
-        this.precoUnitario = precoUnitario;
+        this.precoUnitario = Dinheiro.de(precoUnitario);
     }
 }
@@ -15,7 +15,8 @@ import java.math.BigDecimal;
 public class ItemVenda {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "itens_venda_gen")
+    @SequenceGenerator(name = "itens_venda_gen", sequenceName = "itens_venda_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -36,13 +37,13 @@ public class ItemVenda {
     private Integer quantidade;
 
     @Column(name = "preco_unitario", nullable = false, precision = 10, scale = 2)
-    private BigDecimal precoUnitario;
+    private Dinheiro precoUnitario;
 
     @Column(precision = 10, scale = 2)
-    private BigDecimal desconto = BigDecimal.ZERO;
+    private Dinheiro desconto = Dinheiro.ZERO;
 
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal subtotal;
+    private Dinheiro subtotal;
 
     public ItemVenda() {
     }
@@ -55,9 +56,9 @@ public class ItemVenda {
         this.codigoBarras = codigoBarras;
         this.nomeProduto = nomeProduto;
         this.quantidade = quantidade;
-        this.precoUnitario = precoUnitario;
-        this.desconto = desconto;
-        this.subtotal = subtotal;
+        this.precoUnitario = Dinheiro.de(precoUnitario);
+        this.desconto = Dinheiro.de(desconto);
+        this.subtotal = Dinheiro.de(subtotal);
     }
 
     public Long getId() {
@@ -105,23 +106,30 @@ public class ItemVenda {
     }
 
     public BigDecimal getPrecoUnitario() {
-        return precoUnitario;
+        return Dinheiro.emBigDecimal(precoUnitario);
     }
 
     public void setPrecoUnitario(BigDecimal precoUnitario) {
-        this.precoUnitario = precoUnitario;
+        this.precoUnitario = Dinheiro.de(precoUnitario);
     }
 
     public BigDecimal getDesconto() {
-        return desconto;
+        return Dinheiro.emBigDecimal(desconto);
     }
 
     public BigDecimal getSubtotal() {
+        return Dinheiro.emBigDecimal(subtotal);
+    }
+
+    /**
+     * Subtotal em centavos, sem conversão para BigDecimal
+     */
+    public Dinheiro getSubtotalDinheiro() {
         return subtotal;
     }
 
     public void setSubtotal(BigDecimal subtotal) {
-        this.subtotal = subtotal;
+        this.subtotal = Dinheiro.de(subtotal);
     }
 
     /**
@@ -132,8 +140,8 @@ public class ItemVenda {
         this.codigoBarras = produto.getCodigoBarras();
         this.nomeProduto = produto.getNome();
         this.quantidade = quantidade;
-        this.precoUnitario = produto.getPrecoVenda();
-        this.desconto = BigDecimal.ZERO;
+        this.precoUnitario = Dinheiro.de(produto.getPrecoVenda());
+        this.desconto = Dinheiro.ZERO;
         calcularSubtotal();
     }
 
@@ -141,8 +149,11 @@ public class ItemVenda {
      * Calcula o subtotal do item
      */
     public void calcularSubtotal() {
-        BigDecimal total = precoUnitario.multiply(BigDecimal.valueOf(quantidade));
-        subtotal = total.subtract(desconto);
+        long centavos = Math.subtractExact(
+                Math.multiplyExact(precoUnitario.getCentavos(), (long) quantidade), desconto.getCentavos());
+        if (subtotal == null || subtotal.getCentavos() != centavos) {
+            subtotal = Dinheiro.centavos(centavos);
+        }
     }
 
     /**
@@ -157,7 +168,7 @@ public class ItemVenda {
      * Define o desconto e recalcula o subtotal
      */
     public void setDesconto(BigDecimal desconto) {
-        this.desconto = desconto;
+        this.desconto = Dinheiro.de(desconto);
         calcularSubtotal();
     }
 
@@ -0,0 +1,16 @@
+package com.supermercado.model;
+
+/**
+ * Item de uma venda para detalhamento (projeção JPQL), sem carregar Produto e Categoria
+ */
+public record ItemVendaResumo(Long id, String codigoBarras, String nomeProduto, Integer quantidade,
+        Dinheiro precoUnitario, Dinheiro desconto, Dinheiro subtotal) {
+
+    /**
+     * Cria o resumo a partir da entidade
+     */
+    public static ItemVendaResumo de(ItemVenda item) {
+        return new ItemVendaResumo(item.getId(), item.getCodigoBarras(), item.getNomeProduto(), item.getQuantidade(),
+                Dinheiro.de(item.getPrecoUnitario()), Dinheiro.de(item.getDesconto()), item.getSubtotalDinheiro());
+    }
+}
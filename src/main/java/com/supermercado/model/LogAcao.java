@@ -21,7 +21,8 @@ import java.time.LocalDateTime;
 public class LogAcao {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "log_acoes_gen")
+    @SequenceGenerator(name = "log_acoes_gen", sequenceName = "log_acoes_seq", allocationSize = 1)
     private Long id;
 
     @ManyToOne(fetch = FetchType.EAGER)
@@ -0,0 +1,20 @@
+package com.supermercado.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Venda completa enviada por um caixa remoto ou de autoatendimento (POST /api/vendas).
+ * A chave de idempotência é gerada pelo cliente e reenviada sem alteração nas tentativas.
+ *
+ * @param descontoPercentual opcional
+ */
+public record PedidoVenda(String chaveIdempotencia, Long usuarioId, String formaPagamento, BigDecimal valorPago,
+        BigDecimal descontoPercentual, List<Item> itens) {
+
+    /**
+     * Item do pedido. O preço unitário é opcional; quando enviado, precisa bater com o do catálogo.
+     */
+    public record Item(String codigoBarras, Integer quantidade, BigDecimal precoUnitario) {
+    }
+}
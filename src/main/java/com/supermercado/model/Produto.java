@@ -1,11 +1,13 @@
 package com.supermercado.model;
 
+import com.supermercado.util.NormalizadorTexto;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 
 /**
@@ -14,12 +16,15 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "produtos", indexes = {
         @Index(name = "idx_codigo_barras", columnList = "codigoBarras", unique = true),
-        @Index(name = "idx_nome", columnList = "nome")
+        @Index(name = "idx_nome", columnList = "nome"),
+        @Index(name = "idx_versao_catalogo", columnList = "versaoCatalogo"),
+        @Index(name = "idx_nome_busca", columnList = "nomeBusca")
 })
 public class Produto {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "produtos_gen")
+    @SequenceGenerator(name = "produtos_gen", sequenceName = "produtos_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "codigo_barras", nullable = false, unique = true, length = 50)
@@ -28,6 +33,12 @@ public class Produto {
     @Column(nullable = false, length = 200)
     private String nome;
 
+    /**
+     * Nome normalizado para busca (sem acentos, minúsculo), mantido junto com o nome
+     */
+    @Column(name = "nome_busca", length = 200)
+    private String nomeBusca;
+
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "categoria_id", nullable = false)
     private Categoria categoria;
@@ -56,6 +67,13 @@ public class Produto {
     @Column(name = "data_atualizacao")
     private LocalDateTime dataAtualizacao;
 
+    /**
+     * Versão do catálogo na última alteração da linha (ID da transação que a gravou,
+     * preenchido por trigger no banco, inclusive nas baixas de estoque via JDBC)
+     */
+    @Column(name = "versao_catalogo", insertable = false, updatable = false)
+    private Long versaoCatalogo;
+
     public Produto() {
     }
 
@@ -100,6 +118,10 @@ public class Produto {
         this.nome = nome;
     }
 
+    public String getNomeBusca() {
+        return nomeBusca;
+    }
+
     public Categoria getCategoria() {
         return categoria;
     }
@@ -172,15 +194,21 @@ public class Produto {
         this.dataAtualizacao = dataAtualizacao;
     }
 
+    public Long getVersaoCatalogo() {
+        return versaoCatalogo;
+    }
+
     @PrePersist
     protected void onCreate() {
         dataCriacao = LocalDateTime.now();
         dataAtualizacao = LocalDateTime.now();
+        nomeBusca = NormalizadorTexto.normalizar(nome);
     }
 
     @PreUpdate
     protected void onUpdate() {
         dataAtualizacao = LocalDateTime.now();
+        nomeBusca = NormalizadorTexto.normalizar(nome);
     }
 
     /**
@@ -200,7 +228,7 @@ public class Produto {
             return BigDecimal.ZERO;
         }
         BigDecimal lucro = precoVenda.subtract(precoCusto);
-        return lucro.divide(precoCusto, 4, BigDecimal.ROUND_HALF_UP)
+        return lucro.divide(precoCusto, 4, RoundingMode.HALF_UP)
                 .multiply(BigDecimal.valueOf(100));
     }
 
@@ -0,0 +1,11 @@
+package com.supermercado.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Linha de listagem de produto para a API (sem a entidade Categoria nem datas de auditoria)
+ */
+public record ProdutoListagem(Long id, String codigoBarras, String nome, Long categoriaId, String categoria,
+        BigDecimal precoVenda, Integer quantidadeEstoque, Integer estoqueMinimo, String unidadeMedida,
+        Boolean ativo) {
+}
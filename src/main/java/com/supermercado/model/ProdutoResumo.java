@@ -0,0 +1,43 @@
+package com.supermercado.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Fotografia imutável e compacta de um produto, mantida em memória
+ * para as leituras de código de barras do PDV (sem acesso ao banco)
+ */
+public record ProdutoResumo(Long id, String codigoBarras, String nome, BigDecimal precoVenda,
+        Integer quantidadeEstoque, String unidadeMedida, Boolean ativo) {
+
+    /**
+     * Cria o resumo a partir da entidade
+     */
+    public static ProdutoResumo de(Produto produto) {
+        return new ProdutoResumo(produto.getId(), produto.getCodigoBarras(), produto.getNome(),
+                produto.getPrecoVenda(), produto.getQuantidadeEstoque(), produto.getUnidadeMedida(),
+                produto.getAtivo());
+    }
+
+    /**
+     * Retorna uma cópia com a quantidade em estoque alterada
+     */
+    public ProdutoResumo comEstoque(int novaQuantidade) {
+        return new ProdutoResumo(id, codigoBarras, nome, precoVenda, novaQuantidade, unidadeMedida, ativo);
+    }
+
+    /**
+     * Cria uma referência de Produto (não gerenciada) suficiente para compor um ItemVenda.
+     * Apenas o ID é usado como chave estrangeira ao persistir a venda.
+     */
+    public Produto paraProduto() {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setCodigoBarras(codigoBarras);
+        produto.setNome(nome);
+        produto.setPrecoVenda(precoVenda);
+        produto.setQuantidadeEstoque(quantidadeEstoque);
+        produto.setUnidadeMedida(unidadeMedida);
+        produto.setAtivo(ativo);
+        return produto;
+    }
+}
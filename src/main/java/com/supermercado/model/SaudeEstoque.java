@@ -0,0 +1,36 @@
+package com.supermercado.model;
+
+/**
+ * Contagem de produtos ativos por situação do estoque, por categoria
+ * (ou do catálogo inteiro, quando categoriaId é null).
+ * As faixas não se sobrepõem: negativo (< 0), zerado (= 0),
+ * baixo (> 0 e <= mínimo) e normal (> mínimo).
+ */
+public record SaudeEstoque(Long categoriaId, String categoria, long normal, long baixo, long zerado,
+        long negativo) {
+
+    /**
+     * Soma as contagens de várias categorias (total do catálogo)
+     */
+    public static SaudeEstoque somar(Iterable<SaudeEstoque> categorias) {
+        long normal = 0, baixo = 0, zerado = 0, negativo = 0;
+        for (SaudeEstoque c : categorias) {
+            normal += c.normal;
+            baixo += c.baixo;
+            zerado += c.zerado;
+            negativo += c.negativo;
+        }
+        return new SaudeEstoque(null, "Total", normal, baixo, zerado, negativo);
+    }
+
+    public long total() {
+        return normal + baixo + zerado + negativo;
+    }
+
+    /**
+     * Produtos que precisam de reposição (baixo, zerado ou negativo)
+     */
+    public long abaixoDoMinimo() {
+        return baixo + zerado + negativo;
+    }
+}
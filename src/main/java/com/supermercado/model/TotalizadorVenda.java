@@ -0,0 +1,65 @@
+package com.supermercado.model;
+
+import java.util.List;
+
+/**
+ * Acumulador incremental do subtotal de uma venda, em centavos.
+ * Cada inclusão, remoção ou alteração de item aplica apenas a diferença (O(1)),
+ * em vez de reduzir novamente todos os itens. {@link #reconciliar(List)} refaz a soma
+ * completa e serve como verificação exata.
+ */
+public class TotalizadorVenda {
+
+    private long subtotal;
+
+    /**
+     * Soma o subtotal de um item incluído
+     */
+    public void adicionar(Dinheiro valor) {
+        subtotal = Math.addExact(subtotal, valor.getCentavos());
+    }
+
+    /**
+     * Subtrai o subtotal de um item removido
+     */
+    public void remover(Dinheiro valor) {
+        subtotal = Math.subtractExact(subtotal, valor.getCentavos());
+    }
+
+    /**
+     * Aplica a diferença quando o subtotal de um item muda (ex.: nova quantidade)
+     */
+    public void substituir(Dinheiro anterior, Dinheiro novo) {
+        subtotal = Math.addExact(subtotal, novo.getCentavos() - anterior.getCentavos());
+    }
+
+    /**
+     * Subtotal acumulado em centavos
+     */
+    public long getSubtotal() {
+        return subtotal;
+    }
+
+    /**
+     * Refaz a soma completa dos itens e substitui o valor acumulado
+     *
+     * @return true se o valor acumulado já estava correto
+     */
+    public boolean reconciliar(List<ItemVenda> itens) {
+        long exato = somar(itens);
+        boolean consistente = exato == subtotal;
+        subtotal = exato;
+        return consistente;
+    }
+
+    /**
+     * Soma completa dos subtotais dos itens, em centavos
+     */
+    public static long somar(List<ItemVenda> itens) {
+        long soma = 0L;
+        for (ItemVenda item : itens) {
+            soma = Math.addExact(soma, item.getSubtotalDinheiro().getCentavos());
+        }
+        return soma;
+    }
+}
@@ -8,19 +8,24 @@ import lombok.AllArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Entidade que representa uma venda realizada
  */
 @Entity
 @Table(name = "vendas", indexes = {
-        @Index(name = "idx_data_venda", columnList = "dataVenda")
+        @Index(name = "idx_data_venda", columnList = "dataVenda"),
+        @Index(name = "idx_data_venda_id", columnList = "dataVenda, id"),
+        @Index(name = "idx_chave_idempotencia", columnList = "chaveIdempotencia", unique = true)
 })
 public class Venda {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vendas_gen")
+    @SequenceGenerator(name = "vendas_gen", sequenceName = "vendas_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "data_venda", nullable = false)
@@ -34,25 +39,25 @@ public class Venda {
     private List<ItemVenda> itens = new ArrayList<>();
 
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal subtotal = BigDecimal.ZERO;
+    private Dinheiro subtotal = Dinheiro.ZERO;
 
     @Column(precision = 10, scale = 2)
-    private BigDecimal desconto = BigDecimal.ZERO;
+    private Dinheiro desconto = Dinheiro.ZERO;
 
     @Column(name = "desconto_percentual", precision = 5, scale = 2)
     private BigDecimal descontoPercentual = BigDecimal.ZERO;
 
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal total = BigDecimal.ZERO;
+    private Dinheiro total = Dinheiro.ZERO;
 
     @Column(name = "forma_pagamento", length = 50)
     private String formaPagamento; // DINHEIRO, CARTAO_CREDITO, CARTAO_DEBITO, PIX
 
     @Column(name = "valor_pago", precision = 10, scale = 2)
-    private BigDecimal valorPago = BigDecimal.ZERO;
+    private Dinheiro valorPago = Dinheiro.ZERO;
 
     @Column(precision = 10, scale = 2)
-    private BigDecimal troco = BigDecimal.ZERO;
+    private Dinheiro troco = Dinheiro.ZERO;
 
     @Column(length = 1000)
     private String observacoes;
@@ -61,6 +66,21 @@ public class Venda {
     @Column(nullable = false, length = 20)
     private StatusVenda status = StatusVenda.ABERTA;
 
+    @Column(name = "chave_idempotencia", unique = true, length = 36)
+    private String chaveIdempotencia;
+
+    @Transient
+    private final TotalizadorVenda totalizador = new TotalizadorVenda();
+
+    /**
+     * Desconto percentual em pontos-base (100 = 1%), para o cálculo em centavos
+     */
+    @Transient
+    private long descontoPontosBase;
+
+    @Transient
+    private final Map<String, ItemVenda> itensPorCodigo = new HashMap<>();
+
     public Venda() {
     }
 
@@ -71,15 +91,17 @@ public class Venda {
         this.dataVenda = dataVenda;
         this.usuario = usuario;
         this.itens = itens;
-        this.subtotal = subtotal;
-        this.desconto = desconto;
-        this.descontoPercentual = descontoPercentual;
-        this.total = total;
+        this.subtotal = Dinheiro.de(subtotal);
+        this.desconto = Dinheiro.de(desconto);
+        setDescontoPercentual(descontoPercentual);
+        this.total = Dinheiro.de(total);
         this.formaPagamento = formaPagamento;
-        this.valorPago = valorPago;
-        this.troco = troco;
+        this.valorPago = Dinheiro.de(valorPago);
+        this.troco = Dinheiro.de(troco);
         this.observacoes = observacoes;
         this.status = status;
+        reindexarItens();
+        totalizador.reconciliar(itens);
     }
 
     public Long getId() {
@@ -112,22 +134,24 @@ public class Venda {
 
     public void setItens(List<ItemVenda> itens) {
         this.itens = itens;
+        reindexarItens();
+        recalcularTotais();
     }
 
     public BigDecimal getSubtotal() {
-        return subtotal;
+        return Dinheiro.emBigDecimal(subtotal);
     }
 
     public void setSubtotal(BigDecimal subtotal) {
-        this.subtotal = subtotal;
+        this.subtotal = Dinheiro.de(subtotal);
     }
 
     public BigDecimal getDesconto() {
-        return desconto;
+        return Dinheiro.emBigDecimal(desconto);
     }
 
     public void setDesconto(BigDecimal desconto) {
-        this.desconto = desconto;
+        this.desconto = Dinheiro.de(desconto);
     }
 
     public BigDecimal getDescontoPercentual() {
@@ -136,14 +160,22 @@ public class Venda {
 
     public void setDescontoPercentual(BigDecimal descontoPercentual) {
         this.descontoPercentual = descontoPercentual;
+        this.descontoPontosBase = descontoPercentual != null ? Dinheiro.pontosBase(descontoPercentual) : 0L;
     }
 
     public BigDecimal getTotal() {
-        return total;
+        return Dinheiro.emBigDecimal(total);
     }
 
     public void setTotal(BigDecimal total) {
-        this.total = total;
+        this.total = Dinheiro.de(total);
+    }
+
+    /**
+     * Total em centavos, sem conversão para BigDecimal
+     */
+    public Dinheiro getTotalDinheiro() {
+        return total;
     }
 
     public String getFormaPagamento() {
@@ -155,19 +187,19 @@ public class Venda {
     }
 
     public BigDecimal getValorPago() {
-        return valorPago;
+        return Dinheiro.emBigDecimal(valorPago);
     }
 
     public void setValorPago(BigDecimal valorPago) {
-        this.valorPago = valorPago;
+        this.valorPago = Dinheiro.de(valorPago);
     }
 
     public BigDecimal getTroco() {
-        return troco;
+        return Dinheiro.emBigDecimal(troco);
     }
 
     public void setTroco(BigDecimal troco) {
-        this.troco = troco;
+        this.troco = Dinheiro.de(troco);
     }
 
     public String getObservacoes() {
@@ -186,6 +218,26 @@ public class Venda {
         this.status = status;
     }
 
+    public String getChaveIdempotencia() {
+        return chaveIdempotencia;
+    }
+
+    public void setChaveIdempotencia(String chaveIdempotencia) {
+        this.chaveIdempotencia = chaveIdempotencia;
+    }
+
+    /**
+     * Identificação para exibição: o ID quando já gravada no banco,
+     * senão o início da chave do diário de vendas
+     */
+    @Transient
+    public String getIdentificacao() {
+        if (id != null) {
+            return "#" + id;
+        }
+        return chaveIdempotencia != null ? chaveIdempotencia.substring(0, 8).toUpperCase() : "";
+    }
+
     @PrePersist
     protected void onCreate() {
         if (dataVenda == null) {
@@ -193,52 +245,117 @@ public class Venda {
         }
     }
 
+    @PostLoad
+    protected void onLoad() {
+        descontoPontosBase = descontoPercentual != null ? Dinheiro.pontosBase(descontoPercentual) : 0L;
+        reindexarItens();
+        totalizador.reconciliar(itens);
+    }
+
+    /**
+     * Busca o item da venda pelo código de barras, ou null se não houver
+     */
+    public ItemVenda buscarItem(String codigoBarras) {
+        return itensPorCodigo.get(codigoBarras);
+    }
+
     /**
      * Adiciona um item à venda
      */
     public void adicionarItem(ItemVenda item) {
         itens.add(item);
+        itensPorCodigo.put(item.getCodigoBarras(), item);
         item.setVenda(this);
-        recalcularTotais();
+        totalizador.adicionar(item.getSubtotalDinheiro());
+        atualizarTotais();
     }
 
     /**
-     * Remove um item da venda
+     * Remove um item da venda. Procura a partir do fim: o caso comum é cancelar o último item
+     * bipado, que sai sem percorrer a lista inteira. Para um item do meio a remoção é O(n)
+     * (busca e deslocamento da lista), pois os itens mantêm a ordem em que foram bipados.
      */
     public void removerItem(ItemVenda item) {
-        itens.remove(item);
-        item.setVenda(null);
-        recalcularTotais();
+        int indice = itens.lastIndexOf(item);
+        if (indice >= 0) {
+            itens.remove(indice);
+            itensPorCodigo.remove(item.getCodigoBarras(), item);
+            item.setVenda(null);
+            totalizador.remover(item.getSubtotalDinheiro());
+            atualizarTotais();
+        }
     }
 
     /**
-     * Recalcula os totais da venda
+     * Altera a quantidade de um item já presente na venda
      */
-    public void recalcularTotais() {
-        subtotal = itens.stream()
-                .map(ItemVenda::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Aplica desconto percentual se houver
-        if (descontoPercentual.compareTo(BigDecimal.ZERO) > 0) {
-            desconto = subtotal.multiply(descontoPercentual)
-                    .divide(BigDecimal.valueOf(100), 2, BigDecimal.ROUND_HALF_UP);
+    public void alterarQuantidadeItem(ItemVenda item, int quantidade) {
+        Dinheiro anterior = item.getSubtotalDinheiro();
+        item.setQuantidade(quantidade);
+        totalizador.substituir(anterior, item.getSubtotalDinheiro());
+        atualizarTotais();
+    }
+
+    /**
+     * Atualiza desconto, total e troco a partir do subtotal acumulado (O(1)).
+     * Calcula em centavos e só cria um novo {@link Dinheiro} quando o valor muda.
+     */
+    public void atualizarTotais() {
+        long centavosSubtotal = totalizador.getSubtotal();
+        subtotal = atualizar(subtotal, centavosSubtotal);
+
+        // Aplica desconto percentual se houver (arredondado HALF_UP para o centavo)
+        long centavosDesconto = desconto.getCentavos();
+        if (descontoPontosBase > 0) {
+            centavosDesconto = Dinheiro.dividirArredondando(
+                    Math.multiplyExact(centavosSubtotal, descontoPontosBase), 10_000L);
+            desconto = atualizar(desconto, centavosDesconto);
         }
 
-        total = subtotal.subtract(desconto);
+        long centavosTotal = centavosSubtotal - centavosDesconto;
+        total = atualizar(total, centavosTotal);
 
         // Calcula troco se houver valor pago
-        if (valorPago.compareTo(BigDecimal.ZERO) > 0) {
-            troco = valorPago.subtract(total);
+        if (valorPago.isPositivo()) {
+            troco = atualizar(troco, valorPago.getCentavos() - centavosTotal);
+        }
+    }
+
+    private static Dinheiro atualizar(Dinheiro atual, long centavos) {
+        return atual != null && atual.getCentavos() == centavos ? atual : Dinheiro.centavos(centavos);
+    }
+
+    /**
+     * Recalcula os totais da venda somando todos os itens (reconciliação exata)
+     */
+    public void recalcularTotais() {
+        totalizador.reconciliar(itens);
+        atualizarTotais();
+    }
+
+    /**
+     * Reconstrói o índice código de barras → item a partir da lista
+     */
+    private void reindexarItens() {
+        itensPorCodigo.clear();
+        for (ItemVenda item : itens) {
+            itensPorCodigo.put(item.getCodigoBarras(), item);
         }
     }
 
+    /**
+     * Verifica se o subtotal acumulado confere com a soma completa dos itens
+     */
+    public boolean isTotaisConsistentes() {
+        return TotalizadorVenda.somar(itens) == totalizador.getSubtotal();
+    }
+
     /**
      * Finaliza a venda
      */
     public void finalizar(String formaPagamento, BigDecimal valorPago) {
         this.formaPagamento = formaPagamento;
-        this.valorPago = valorPago;
+        this.valorPago = Dinheiro.de(valorPago);
         this.status = StatusVenda.FINALIZADA;
         recalcularTotais();
     }
@@ -0,0 +1,18 @@
+package com.supermercado.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Linha de listagem de venda (projeção JPQL), sem carregar itens, usuário e produtos
+ */
+public record VendaResumo(Long id, LocalDateTime dataVenda, Venda.StatusVenda status, Dinheiro total,
+        String formaPagamento, String operador) {
+
+    /**
+     * Cria o resumo a partir da entidade
+     */
+    public static VendaResumo de(Venda venda) {
+        return new VendaResumo(venda.getId(), venda.getDataVenda(), venda.getStatus(), venda.getTotalDinheiro(),
+                venda.getFormaPagamento(), venda.getUsuario() != null ? venda.getUsuario().getNome() : null);
+    }
+}
@@ -0,0 +1,88 @@
+package com.supermercado.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Movimentação de estoque em lote via JDBC, sem carregar as entidades
+ */
+@Repository
+public class EstoqueRepository {
+
+    private static final String SQL_BAIXA = "UPDATE produtos SET quantidade_estoque = quantidade_estoque - ? " +
+            "WHERE id = ? AND quantidade_estoque >= ?";
+
+    private static final String SQL_BAIXA_INCONDICIONAL = "UPDATE produtos " +
+            "SET quantidade_estoque = quantidade_estoque - ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public EstoqueRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Baixa o estoque de vários produtos em um único lote de UPDATEs condicionais.
+     * Deve rodar dentro de uma transação; as linhas são atualizadas na ordem do mapa
+     * (use um mapa ordenado por ID para evitar deadlocks entre caixas).
+     *
+     * @return IDs dos produtos cujo UPDATE não afetou nenhuma linha (estoque insuficiente ou inexistente)
+     */
+    public List<Long> baixarEstoque(Map<Long, Integer> quantidades) {
+        List<Map.Entry<Long, Integer>> linhas = new ArrayList<>(quantidades.entrySet());
+
+        int[] resultados = jdbcTemplate.batchUpdate(SQL_BAIXA, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> linha = linhas.get(i);
+                ps.setInt(1, linha.getValue());
+                ps.setLong(2, linha.getKey());
+                ps.setInt(3, linha.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return linhas.size();
+            }
+        });
+
+        List<Long> falhas = new ArrayList<>();
+        for (int i = 0; i < resultados.length; i++) {
+            if (resultados[i] == 0) {
+                falhas.add(linhas.get(i).getKey());
+            }
+        }
+        return falhas;
+    }
+
+    /**
+     * Baixa o estoque sem verificar saldo. Usado ao replicar vendas do diário local,
+     * que já foram concluídas no caixa e não podem mais ser recusadas.
+     */
+    public void baixarEstoqueIncondicional(Map<Long, Integer> quantidades) {
+        List<Map.Entry<Long, Integer>> linhas = new ArrayList<>(quantidades.entrySet());
+
+        jdbcTemplate.batchUpdate(SQL_BAIXA_INCONDICIONAL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> linha = linhas.get(i);
+                ps.setInt(1, linha.getValue());
+                ps.setLong(2, linha.getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return linhas.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package com.supermercado.repository;
+
+import com.supermercado.model.Dinheiro;
+import com.supermercado.model.ProdutoListagem;
+import com.supermercado.model.ProdutoResumo;
+import com.supermercado.model.Venda;
+import com.supermercado.model.VendaResumo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Listagens paginadas por cursor (keyset) para a API REST, via JDBC.
+ * Cada página é uma consulta com "WHERE chave > cursor ORDER BY chave LIMIT n", que usa o
+ * índice e custa o mesmo em qualquer ponto da listagem (sem OFFSET). As linhas são entregues
+ * uma a uma ao consumidor, sem montar lista nem entidades.
+ */
+@Repository
+public class ListagemRepository {
+
+    private static final String SQL_PRODUTOS = "SELECT p.id, p.codigo_barras, p.nome, p.categoria_id, c.nome, " +
+            "p.preco_venda, p.quantidade_estoque, p.estoque_minimo, p.unidade_medida, p.ativo " +
+            "FROM produtos p JOIN categorias c ON c.id = p.categoria_id WHERE p.id > ? ";
+
+    private static final String SQL_VENDAS = "SELECT v.id, v.data_venda, v.status, v.total, v.forma_pagamento, u.nome " +
+            "FROM vendas v LEFT JOIN usuarios u ON u.id = v.usuario_id WHERE 1 = 1 ";
+
+    private static final String SQL_ALTERACOES_PRODUTOS = "SELECT id, codigo_barras, nome, preco_venda, " +
+            "quantidade_estoque, unidade_medida, ativo, versao_catalogo FROM produtos " +
+            "WHERE (versao_catalogo > ? OR (versao_catalogo = ? AND id > ?)) AND versao_catalogo < ? " +
+            "ORDER BY versao_catalogo, id LIMIT ?";
+
+    // Versões abaixo desta são de transações encerradas: nenhuma gravação em andamento pode ficar abaixo dela
+    private static final String SQL_VERSAO_SEGURA = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ListagemRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Produtos com ID maior que {@code aposId}, em ordem de ID
+     *
+     * @param categoriaId filtro opcional
+     * @param ativo       filtro opcional
+     */
+    public void percorrerProdutos(long aposId, Long categoriaId, Boolean ativo, int limite,
+            Consumer<ProdutoListagem> consumidor) {
+        StringBuilder sql = new StringBuilder(SQL_PRODUTOS);
+        List<Object> parametros = new ArrayList<>();
+        parametros.add(aposId);
+        if (categoriaId != null) {
+            sql.append("AND p.categoria_id = ? ");
+            parametros.add(categoriaId);
+        }
+        if (ativo != null) {
+            sql.append("AND p.ativo = ? ");
+            parametros.add(ativo);
+        }
+        sql.append("ORDER BY p.id LIMIT ?");
+        parametros.add(limite);
+
+        jdbcTemplate.query(sql.toString(), rs -> {
+            consumidor.accept(new ProdutoListagem(rs.getLong(1), rs.getString(2), rs.getString(3),
+                    rs.getLong(4), rs.getString(5), rs.getBigDecimal(6), rs.getInt(7), rs.getInt(8),
+                    rs.getString(9), rs.getBoolean(10)));
+        }, parametros.toArray());
+    }
+
+    /**
+     * Vendas anteriores ao cursor (data, id), da mais recente para a mais antiga
+     *
+     * @param antesDe   data do cursor (null para a primeira página)
+     * @param inicio filtro opcional (inclusive)
+     * @param fim    filtro opcional (inclusive)
+     * @param status filtro opcional
+     */
+    public void percorrerVendas(LocalDateTime antesDe, Long antesDeId, LocalDateTime inicio, LocalDateTime fim,
+            Venda.StatusVenda status, int limite, Consumer<VendaResumo> consumidor) {
+        StringBuilder sql = new StringBuilder(SQL_VENDAS);
+        List<Object> parametros = new ArrayList<>();
+        if (antesDe != null) {
+            sql.append("AND (v.data_venda, v.id) < (?, ?) ");
+            parametros.add(Timestamp.valueOf(antesDe));
+            parametros.add(antesDeId);
+        }
+        if (inicio != null) {
+            sql.append("AND v.data_venda >= ? ");
+            parametros.add(Timestamp.valueOf(inicio));
+        }
+        if (fim != null) {
+            sql.append("AND v.data_venda <= ? ");
+            parametros.add(Timestamp.valueOf(fim));
+        }
+        if (status != null) {
+            sql.append("AND v.status = ? ");
+            parametros.add(status.name());
+        }
+        sql.append("ORDER BY v.data_venda DESC, v.id DESC LIMIT ?");
+        parametros.add(limite);
+
+        jdbcTemplate.query(sql.toString(), rs -> {
+            consumidor.accept(new VendaResumo(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(),
+                    Venda.StatusVenda.valueOf(rs.getString(3)), Dinheiro.de(rs.getBigDecimal(4)),
+                    rs.getString(5), rs.getString(6)));
+        }, parametros.toArray());
+    }
+
+    /**
+     * Primeira versão do catálogo que ainda pode receber gravações: as versões abaixo dela
+     * são de transações já encerradas e não aparecem mais linhas com elas
+     */
+    public long versaoSeguraCatalogo() {
+        Long versao = jdbcTemplate.queryForObject(SQL_VERSAO_SEGURA, Long.class);
+        return versao != null ? versao : 0L;
+    }
+
+    /**
+     * Produtos alterados (inclusive desativados) depois do cursor (versão, ID) e abaixo da versão
+     * segura, em ordem de versão e ID. Uma transação grava a mesma versão em todas as linhas
+     * que altera, por isso o ID desempata.
+     *
+     * @param aposId     último ID já recebido na versão {@code aposVersao}
+     * @param abaixoDe   versão segura ({@link #versaoSeguraCatalogo()})
+     * @param consumidor recebe a versão de cada linha e o resumo do produto
+     */
+    public void percorrerAlteracoesProdutos(long aposVersao, long aposId, long abaixoDe, int limite,
+            BiConsumer<Long, ProdutoResumo> consumidor) {
+        jdbcTemplate.query(SQL_ALTERACOES_PRODUTOS, rs -> {
+            consumidor.accept(rs.getLong(8), new ProdutoResumo(rs.getLong(1), rs.getString(2), rs.getString(3),
+                    rs.getBigDecimal(4), rs.getInt(5), rs.getString(6), rs.getBoolean(7)));
+        }, aposVersao, aposVersao, aposId, abaixoDe, limite);
+    }
+}
@@ -1,11 +1,14 @@
 package com.supermercado.repository;
 
 import com.supermercado.model.Produto;
+import com.supermercado.model.ProdutoResumo;
+import com.supermercado.model.SaudeEstoque;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,8 +20,11 @@ public interface ProdutoRepository extends JpaRepository<Produto, Long> {
     @Query("SELECT p FROM Produto p WHERE p.ativo = true ORDER BY p.nome")
     List<Produto> findAtivos();
 
-    @Query("SELECT p FROM Produto p WHERE LOWER(p.nome) LIKE LOWER(CONCAT('%', :nome, '%')) AND p.ativo = true ORDER BY p.nome")
-    List<Produto> findByNomeContainingIgnoreCase(@Param("nome") String nome);
+    /**
+     * Produtos ativos cujo nome normalizado contém o termo (já normalizado com NormalizadorTexto)
+     */
+    @Query("SELECT p FROM Produto p WHERE p.nomeBusca LIKE CONCAT('%', :termo, '%') AND p.ativo = true ORDER BY p.nome")
+    List<Produto> findByNomeBuscaContendo(@Param("termo") String termo);
 
     @Query("SELECT p FROM Produto p WHERE p.categoria.id = :categoriaId AND p.ativo = true ORDER BY p.nome")
     List<Produto> findByCategoriaId(@Param("categoriaId") Long categoriaId);
@@ -27,4 +33,24 @@ public interface ProdutoRepository extends JpaRepository<Produto, Long> {
     List<Produto> findComEstoqueBaixo();
 
     boolean existsByCodigoBarras(String codigoBarras);
+
+    @Query("SELECT new com.supermercado.model.ProdutoResumo(p.id, p.codigoBarras, p.nome, p.precoVenda, " +
+            "p.quantidadeEstoque, p.unidadeMedida, p.ativo) FROM Produto p")
+    List<ProdutoResumo> findResumos();
+
+    @Query("SELECT new com.supermercado.model.ProdutoResumo(p.id, p.codigoBarras, p.nome, p.precoVenda, " +
+            "p.quantidadeEstoque, p.unidadeMedida, p.ativo) FROM Produto p WHERE p.codigoBarras IN :codigos")
+    List<ProdutoResumo> findResumosByCodigoBarrasIn(@Param("codigos") Collection<String> codigos);
+
+    /**
+     * Contagem de produtos ativos por situação do estoque, agrupada por categoria.
+     * Apenas contagens: nenhuma entidade é carregada (usa o índice parcial idx_produtos_ativos_estoque).
+     */
+    @Query("SELECT new com.supermercado.model.SaudeEstoque(c.id, c.nome, " +
+            "SUM(CASE WHEN p.quantidadeEstoque > 0 AND p.quantidadeEstoque > p.estoqueMinimo THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN p.quantidadeEstoque > 0 AND p.quantidadeEstoque <= p.estoqueMinimo THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN p.quantidadeEstoque = 0 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN p.quantidadeEstoque < 0 THEN 1 ELSE 0 END)) " +
+            "FROM Produto p JOIN p.categoria c WHERE p.ativo = true GROUP BY c.id, c.nome ORDER BY c.nome")
+    List<SaudeEstoque> contarSaudeEstoquePorCategoria();
 }
@@ -0,0 +1,263 @@
+package com.supermercado.repository;
+
+import com.supermercado.model.ItemVenda;
+import com.supermercado.model.Venda;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Totais de vendas pré-agregados por hora (tabela vendas_agregadas), mantidos a cada
+ * venda finalizada ou cancelada. Cada linha guarda, para uma hora e uma dimensão
+ * (total, produto, forma de pagamento, operador), a quantidade de vendas, de itens e o valor.
+ * As consultas de período somam no máximo uma linha por hora, independente do volume de vendas.
+ * A chave do produto é o ID, não o nome: renomear um produto não divide os seus totais.
+ */
+@Repository
+public class VendaAgregadaRepository {
+
+    public static final String TOTAL = "TOTAL";
+    public static final String PRODUTO = "PRODUTO";
+    public static final String PAGAMENTO = "PAGAMENTO";
+    public static final String OPERADOR = "OPERADOR";
+
+    private static final String SQL_SOMAR = "UPDATE vendas_agregadas SET " +
+            "quantidade_vendas = quantidade_vendas + ?, quantidade_itens = quantidade_itens + ?, valor = valor + ? " +
+            "WHERE periodo = ? AND dimensao = ? AND chave = ?";
+
+    private static final String SQL_INSERIR = "INSERT INTO vendas_agregadas " +
+            "(periodo, dimensao, chave, quantidade_vendas, quantidade_itens, valor) VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT DO NOTHING";
+
+    private static final String FILTRO_PERIODO = "WHERE dimensao = ? AND periodo >= ? AND periodo <= ? ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public VendaAgregadaRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Soma (sinal 1) ou retira (sinal -1) a venda dos agregados da sua hora.
+     * Deve rodar na mesma transação que grava ou cancela a venda.
+     * <p>
+     * Um lote de UPDATEs soma nas linhas que já existem (o caso comum). As que faltam são
+     * inseridas com ON CONFLICT DO NOTHING, e as que outro caixa inseriu no meio tempo
+     * recebem um novo UPDATE. Depende da contagem real de linhas de cada comando do lote
+     * (sem reWriteBatchedInserts no driver).
+     */
+    public void acumular(Venda venda, int sinal) {
+        Timestamp periodo = Timestamp.valueOf(venda.getDataVenda().truncatedTo(ChronoUnit.HOURS));
+
+        // Linhas em ordem fixa (dimensão, chave) para evitar deadlocks entre caixas
+        Map<String, Linha> linhas = new TreeMap<>();
+        long itens = 0;
+        for (ItemVenda item : venda.getItens()) {
+            itens += item.getQuantidade();
+            String produtoId = item.getProduto().getId().toString();
+            Linha produto = linhas.computeIfAbsent(PRODUTO + "|" + produtoId, k -> new Linha(PRODUTO, produtoId, 1));
+            produto.itens += item.getQuantidade();
+            produto.valor = produto.valor.add(item.getSubtotal());
+        }
+
+        linhas.put(TOTAL + "|", new Linha(TOTAL, "", 1, itens, venda.getTotal()));
+        String formaPagamento = venda.getFormaPagamento() != null ? venda.getFormaPagamento() : "";
+        linhas.put(PAGAMENTO + "|" + formaPagamento, new Linha(PAGAMENTO, formaPagamento, 1, itens, venda.getTotal()));
+        String operador = venda.getUsuario() != null && venda.getUsuario().getId() != null
+                ? venda.getUsuario().getId().toString() : "";
+        linhas.put(OPERADOR + "|" + operador, new Linha(OPERADOR, operador, 1, itens, venda.getTotal()));
+
+        List<Linha> pendentes = somar(periodo, new ArrayList<>(linhas.values()), sinal);
+        if (pendentes.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> parametros = new ArrayList<>(pendentes.size());
+        for (Linha linha : pendentes) {
+            parametros.add(new Object[] { periodo, linha.dimensao, linha.chave, (long) sinal * linha.vendas,
+                    sinal * linha.itens, sinal < 0 ? linha.valor.negate() : linha.valor });
+        }
+        int[] inseridas = jdbcTemplate.batchUpdate(SQL_INSERIR, parametros);
+        List<Linha> concorrentes = new ArrayList<>();
+        for (int i = 0; i < inseridas.length; i++) {
+            if (inseridas[i] == 0) {
+                concorrentes.add(pendentes.get(i));
+            }
+        }
+        if (!somar(periodo, concorrentes, sinal).isEmpty()) {
+            throw new IllegalStateException("Linha de vendas_agregadas não encontrada após inserção concorrente");
+        }
+    }
+
+    /**
+     * Soma as linhas nos agregados existentes
+     *
+     * @return as linhas que ainda não existem na tabela
+     */
+    private List<Linha> somar(Timestamp periodo, List<Linha> linhas, int sinal) {
+        if (linhas.isEmpty()) {
+            return linhas;
+        }
+
+        List<Object[]> parametros = new ArrayList<>(linhas.size());
+        for (Linha linha : linhas) {
+            parametros.add(new Object[] { (long) sinal * linha.vendas, sinal * linha.itens,
+                    sinal < 0 ? linha.valor.negate() : linha.valor, periodo, linha.dimensao, linha.chave });
+        }
+        int[] atualizadas = jdbcTemplate.batchUpdate(SQL_SOMAR, parametros);
+
+        List<Linha> ausentes = new ArrayList<>();
+        for (int i = 0; i < atualizadas.length; i++) {
+            if (atualizadas[i] == 0) {
+                ausentes.add(linhas.get(i));
+            }
+        }
+        return ausentes;
+    }
+
+    /**
+     * Valor total vendido nas horas do período
+     */
+    public BigDecimal somarTotal(LocalDateTime inicio, LocalDateTime fim) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(valor), 0) FROM vendas_agregadas " + FILTRO_PERIODO,
+                BigDecimal.class, TOTAL, inicioHora(inicio), Timestamp.valueOf(fim));
+    }
+
+    /**
+     * Quantidade de vendas finalizadas nas horas do período
+     */
+    public long contarVendas(LocalDateTime inicio, LocalDateTime fim) {
+        Long quantidade = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantidade_vendas), 0) FROM vendas_agregadas " + FILTRO_PERIODO,
+                Long.class, TOTAL, inicioHora(inicio), Timestamp.valueOf(fim));
+        return quantidade != null ? quantidade : 0L;
+    }
+
+    /**
+     * Produtos mais vendidos no período: [nome, quantidade (Long), valor (BigDecimal)].
+     * O nome é o atual do cadastro.
+     */
+    public List<Object[]> findProdutosMaisVendidos(LocalDateTime inicio, LocalDateTime fim, int limite) {
+        return jdbcTemplate.query("SELECT COALESCE(p.nome, a.chave), a.itens, a.valor FROM (" +
+                "SELECT chave, SUM(quantidade_itens) AS itens, SUM(valor) AS valor FROM vendas_agregadas " +
+                FILTRO_PERIODO + "GROUP BY chave HAVING SUM(quantidade_itens) > 0 " +
+                "ORDER BY SUM(quantidade_itens) DESC LIMIT ?) a " +
+                "LEFT JOIN produtos p ON CAST(p.id AS varchar) = a.chave ORDER BY a.itens DESC, 1",
+                (rs, i) -> new Object[] { rs.getString(1), rs.getLong(2), rs.getBigDecimal(3) },
+                PRODUTO, inicioHora(inicio), Timestamp.valueOf(fim), limite);
+    }
+
+    /**
+     * Totais por chave de uma dimensão (forma de pagamento, operador): [chave, vendas, valor]
+     */
+    public List<Object[]> totaisPorDimensao(String dimensao, LocalDateTime inicio, LocalDateTime fim) {
+        return jdbcTemplate.query("SELECT chave, SUM(quantidade_vendas), SUM(valor) FROM vendas_agregadas " +
+                FILTRO_PERIODO + "GROUP BY chave ORDER BY SUM(valor) DESC",
+                (rs, i) -> new Object[] { rs.getString(1), rs.getLong(2), rs.getBigDecimal(3) },
+                dimensao, inicioHora(inicio), Timestamp.valueOf(fim));
+    }
+
+    /**
+     * Cria a tabela se ainda não existir
+     *
+     * @return true se a tabela foi criada agora (precisa ser populada)
+     */
+    public boolean criarTabelaSeNecessario() {
+        Long existe = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.tables " +
+                "WHERE table_name = 'vendas_agregadas' AND table_schema = current_schema()", Long.class);
+        if (existe != null && existe > 0) {
+            return false;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS vendas_agregadas (" +
+                "periodo timestamp NOT NULL, " +
+                "dimensao varchar(20) NOT NULL, " +
+                "chave varchar(200) NOT NULL, " +
+                "quantidade_vendas bigint NOT NULL DEFAULT 0, " +
+                "quantidade_itens bigint NOT NULL DEFAULT 0, " +
+                "valor numeric(14,2) NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (dimensao, periodo, chave))");
+        return true;
+    }
+
+    /**
+     * Recalcula todos os agregados a partir das vendas finalizadas.
+     * Deve rodar em transação; bloqueia as atualizações incrementais até o fim.
+     *
+     * @return quantidade de linhas geradas
+     */
+    public int reconstruir() {
+        if (isPostgreSql()) {
+            // O H2 dos testes não tem LOCK TABLE
+            jdbcTemplate.execute("LOCK TABLE vendas_agregadas IN EXCLUSIVE MODE");
+        }
+        jdbcTemplate.update("DELETE FROM vendas_agregadas");
+
+        String itensPorVenda = "LEFT JOIN (SELECT venda_id, SUM(quantidade) AS itens FROM itens_venda " +
+                "GROUP BY venda_id) i ON i.venda_id = v.id ";
+        String finalizadas = "WHERE v.status = 'FINALIZADA' ";
+        String inserir = "INSERT INTO vendas_agregadas " +
+                "(periodo, dimensao, chave, quantidade_vendas, quantidade_itens, valor) ";
+
+        int linhas = jdbcTemplate.update(inserir +
+                "SELECT date_trunc('hour', v.data_venda), '" + TOTAL + "', '', COUNT(*), " +
+                "COALESCE(SUM(i.itens), 0), COALESCE(SUM(v.total), 0) FROM vendas v " + itensPorVenda +
+                finalizadas + "GROUP BY 1");
+        linhas += jdbcTemplate.update(inserir +
+                "SELECT date_trunc('hour', v.data_venda), '" + PAGAMENTO + "', COALESCE(v.forma_pagamento, ''), " +
+                "COUNT(*), COALESCE(SUM(i.itens), 0), COALESCE(SUM(v.total), 0) FROM vendas v " + itensPorVenda +
+                finalizadas + "GROUP BY 1, 3");
+        linhas += jdbcTemplate.update(inserir +
+                "SELECT date_trunc('hour', v.data_venda), '" + OPERADOR + "', COALESCE(CAST(v.usuario_id AS varchar), ''), " +
+                "COUNT(*), COALESCE(SUM(i.itens), 0), COALESCE(SUM(v.total), 0) FROM vendas v " + itensPorVenda +
+                finalizadas + "GROUP BY 1, 3");
+        linhas += jdbcTemplate.update(inserir +
+                "SELECT date_trunc('hour', v.data_venda), '" + PRODUTO + "', CAST(iv.produto_id AS varchar), " +
+                "COUNT(DISTINCT v.id), SUM(iv.quantidade), SUM(iv.subtotal) " +
+                "FROM itens_venda iv JOIN vendas v ON v.id = iv.venda_id " +
+                finalizadas + "GROUP BY 1, 3");
+        return linhas;
+    }
+
+    private boolean isPostgreSql() {
+        String banco = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equals(banco);
+    }
+
+    private static Timestamp inicioHora(LocalDateTime inicio) {
+        return Timestamp.valueOf(inicio.truncatedTo(ChronoUnit.HOURS));
+    }
+
+    /**
+     * Linha a acumular para uma dimensão e chave
+     */
+    private static final class Linha {
+        private final String dimensao;
+        private final String chave;
+        private final long vendas;
+        private long itens;
+        private BigDecimal valor;
+
+        private Linha(String dimensao, String chave, long vendas) {
+            this(dimensao, chave, vendas, 0L, BigDecimal.ZERO);
+        }
+
+        private Linha(String dimensao, String chave, long vendas, long itens, BigDecimal valor) {
+            this.dimensao = dimensao;
+            this.chave = chave;
+            this.vendas = vendas;
+            this.itens = itens;
+            this.valor = valor;
+        }
+    }
+}
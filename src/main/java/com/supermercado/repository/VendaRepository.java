@@ -1,6 +1,8 @@
 package com.supermercado.repository;
 
+import com.supermercado.model.ItemVendaResumo;
 import com.supermercado.model.Venda;
+import com.supermercado.model.VendaResumo;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -9,27 +11,58 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface VendaRepository extends JpaRepository<Venda, Long> {
 
+    Optional<Venda> findByChaveIdempotencia(String chaveIdempotencia);
+
+    @Query("SELECT v.chaveIdempotencia FROM Venda v WHERE v.chaveIdempotencia IN :chaves")
+    List<String> findChavesIdempotenciaExistentes(@Param("chaves") Collection<String> chaves);
+
+    // Projeções para listagens: uma única consulta, sem o fetch EAGER de itens/usuário/produtos
+
+    @Query("SELECT new com.supermercado.model.VendaResumo(v.id, v.dataVenda, v.status, v.total, " +
+            "v.formaPagamento, u.nome) FROM Venda v LEFT JOIN v.usuario u ORDER BY v.dataVenda DESC")
+    List<VendaResumo> findResumos();
+
+    @Query("SELECT new com.supermercado.model.VendaResumo(v.id, v.dataVenda, v.status, v.total, " +
+            "v.formaPagamento, u.nome) FROM Venda v LEFT JOIN v.usuario u " +
+            "WHERE v.dataVenda BETWEEN :inicio AND :fim ORDER BY v.dataVenda DESC")
+    List<VendaResumo> findResumosPorPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+
+    @Query("SELECT new com.supermercado.model.VendaResumo(v.id, v.dataVenda, v.status, v.total, " +
+            "v.formaPagamento, u.nome) FROM Venda v LEFT JOIN v.usuario u " +
+            "WHERE v.dataVenda BETWEEN :inicio AND :fim AND v.status = 'FINALIZADA' ORDER BY v.dataVenda DESC")
+    List<VendaResumo> findResumosFinalizadosPorPeriodo(@Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim);
+
+    @Query("SELECT new com.supermercado.model.ItemVendaResumo(iv.id, iv.codigoBarras, iv.nomeProduto, " +
+            "iv.quantidade, iv.precoUnitario, iv.desconto, iv.subtotal) " +
+            "FROM ItemVenda iv WHERE iv.venda.id = :vendaId ORDER BY iv.id")
+    List<ItemVendaResumo> findItensResumo(@Param("vendaId") Long vendaId);
+
     List<Venda> findByDataVendaBetweenOrderByDataVendaDesc(LocalDateTime inicio, LocalDateTime fim);
 
     @Query("SELECT v FROM Venda v WHERE v.dataVenda BETWEEN :inicio AND :fim AND v.status = 'FINALIZADA' ORDER BY v.dataVenda DESC")
     List<Venda> findVendasFinalizadasDoDia(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
 
-    @Query("SELECT COALESCE(SUM(v.total), 0) FROM Venda v WHERE v.dataVenda BETWEEN :inicio AND :fim AND v.status = 'FINALIZADA'")
+    // SQL nativo: as colunas de valor são Dinheiro na entidade e a soma deve voltar como BigDecimal
+    @Query(value = "SELECT COALESCE(SUM(v.total), 0) FROM vendas v " +
+            "WHERE v.data_venda BETWEEN :inicio AND :fim AND v.status = 'FINALIZADA'", nativeQuery = true)
     BigDecimal calcularTotalPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
 
     @Query("SELECT COUNT(v) FROM Venda v WHERE v.dataVenda BETWEEN :inicio AND :fim AND v.status = 'FINALIZADA'")
     long countVendasPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
 
-    @Query("SELECT iv.nomeProduto, SUM(iv.quantidade), SUM(iv.subtotal) " +
-            "FROM ItemVenda iv JOIN iv.venda v " +
-            "WHERE v.dataVenda BETWEEN :inicio AND :fim AND v.status = 'FINALIZADA' " +
-            "GROUP BY iv.nomeProduto " +
-            "ORDER BY SUM(iv.quantidade) DESC")
+    @Query(value = "SELECT iv.nome_produto, SUM(iv.quantidade), SUM(iv.subtotal) " +
+            "FROM itens_venda iv JOIN vendas v ON v.id = iv.venda_id " +
+            "WHERE v.data_venda BETWEEN :inicio AND :fim AND v.status = 'FINALIZADA' " +
+            "GROUP BY iv.nome_produto " +
+            "ORDER BY SUM(iv.quantidade) DESC", nativeQuery = true)
     List<Object[]> findProdutosMaisVendidos(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim,
             Pageable pageable);
 }
@@ -23,10 +23,13 @@ public class CategoriaService {
     private final CategoriaRepository categoriaRepository;
     private final LogService logService;
     private final UsuarioService usuarioService;
+    private final VersaoCatalogoService versaoCatalogo;
 
     @Autowired
-    public CategoriaService(CategoriaRepository categoriaRepository, LogService logService, UsuarioService usuarioService) {
+    public CategoriaService(CategoriaRepository categoriaRepository, LogService logService, UsuarioService usuarioService,
+            VersaoCatalogoService versaoCatalogo) {
         this.categoriaRepository = categoriaRepository;
+        this.versaoCatalogo = versaoCatalogo;
         this.logService = logService;
         this.usuarioService = usuarioService;
     }
@@ -44,6 +47,7 @@ public class CategoriaService {
 
         try {
             Categoria saved = categoriaRepository.save(categoria);
+            versaoCatalogo.incrementar();
             logger.info("Categoria salva com sucesso: ID {}", saved.getId());
             
             // Registra log
@@ -76,6 +80,7 @@ public class CategoriaService {
 
         try {
             Categoria updated = categoriaRepository.save(categoria);
+            versaoCatalogo.incrementar();
             logger.info("Categoria atualizada com sucesso: ID {}", updated.getId());
             return updated;
         } catch (Exception e) {
@@ -96,6 +101,7 @@ public class CategoriaService {
             Categoria c = categoria.get();
             c.setAtivo(false);
             categoriaRepository.save(c);
+            versaoCatalogo.incrementar();
             logger.info("Categoria desativada: ID {}", id);
             
             // Registra log
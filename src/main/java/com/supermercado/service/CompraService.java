@@ -34,6 +34,12 @@ public class CompraService {
     @Autowired(required = false)
     private LogService logService;
 
+    @Autowired
+    private IndiceCatalogoService indiceCatalogo;
+
+    @Autowired
+    private VersaoCatalogoService versaoCatalogo;
+
     public List<Compra> listarTodas() {
         return compraRepository.findAll();
     }
@@ -65,8 +71,11 @@ public class CompraService {
             // Opcional: Atualizar preço de custo do produto com base na última compra
             produto.setPrecoCusto(item.getPrecoUnitario());
             produtoRepository.save(produto);
+            indiceCatalogo.atualizar(produto);
         }
 
+        versaoCatalogo.incrementar();
+
         compra.atualizarTotal();
         Compra saved = compraRepository.save(compra);
         logger.info("Compra salva com sucesso: ID {}", saved.getId());
@@ -0,0 +1,57 @@
+package com.supermercado.service;
+
+import com.supermercado.model.Venda;
+import com.supermercado.util.ComprovantePDF;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gera os comprovantes em PDF fora da thread da interface, em uma thread dedicada,
+ * para o caixa seguir para o próximo cliente enquanto o arquivo é montado
+ */
+@Service
+public class ComprovanteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ComprovanteService.class);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "comprovantes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Agenda a geração do comprovante. O future conclui com o arquivo gerado,
+     * ou com a exceção de ComprovantePDF em caso de erro.
+     */
+    public CompletableFuture<File> gerar(Venda venda) {
+        long inicio = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            File arquivo = ComprovantePDF.gerarComprovante(venda);
+            logger.debug("Comprovante {} gerado em {} ms", venda.getIdentificacao(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            return arquivo;
+        }, executor);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
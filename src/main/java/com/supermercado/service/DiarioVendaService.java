@@ -0,0 +1,480 @@
+package com.supermercado.service;
+
+import com.supermercado.model.Dinheiro;
+import com.supermercado.model.ItemVenda;
+import com.supermercado.model.Produto;
+import com.supermercado.model.Usuario;
+import com.supermercado.model.Venda;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Diário local de vendas (write-ahead), gravado em arquivo mapeado em memória.
+ *
+ * A venda finalizada é gravada aqui primeiro e o caixa segue atendendo; o
+ * {@link ReplicacaoVendaService} depois leva os registros pendentes para o banco.
+ * Usa dois arquivos alternados: a compactação copia os pendentes para o arquivo
+ * inativo e só então o promove, aumentando a geração no cabeçalho.
+ *
+ * Cabeçalho: magic (int), versão (int), geração (long).
+ * Registro: tamanho (int), CRC32 do conteúdo (int), estado (byte), conteúdo.
+ * Registros que o banco recusa de forma definitiva ficam no estado "descartado": saem da fila
+ * de replicação, mas continuam no diário (inclusive após a compactação) para correção manual.
+ */
+@Service
+public class DiarioVendaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiarioVendaService.class);
+
+    private static final int MAGIC = 0x50444A56; // "PDJV"
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 16;
+    private static final int TAMANHO_CABECALHO_REGISTRO = 9;
+    private static final byte PENDENTE = 0;
+    private static final byte REPLICADO = 1;
+    private static final byte DESCARTADO = 2;
+
+    private final boolean habilitado;
+    private final File diretorio;
+    private final int capacidade;
+
+    private final MappedByteBuffer[] arquivos = new MappedByteBuffer[2];
+    private final long[] geracoes = new long[2];
+    private int ativo;
+    private int posicaoEscrita;
+
+    private final Deque<Registro> pendentes = new ArrayDeque<>();
+    private final List<Registro> descartados = new ArrayList<>();
+    private final List<Runnable> ouvintes = new ArrayList<>();
+    private long replicadas;
+    private LocalDateTime ultimaReplicacao;
+
+    /**
+     * Registro pendente de replicação
+     */
+    public static final class Registro {
+        private final int posicao;
+        private final long registradoEm;
+        private final byte[] conteudo;
+        private final boolean recuperado;
+
+        private Registro(int posicao, long registradoEm, byte[] conteudo, boolean recuperado) {
+            this.posicao = posicao;
+            this.registradoEm = registradoEm;
+            this.conteudo = conteudo;
+            this.recuperado = recuperado;
+        }
+
+        public long getRegistradoEm() {
+            return registradoEm;
+        }
+
+        /**
+         * Indica se o registro veio de uma execução anterior (lido na abertura do diário)
+         */
+        public boolean isRecuperado() {
+            return recuperado;
+        }
+    }
+
+    /**
+     * Métricas de replicação do diário
+     */
+    public record Metricas(boolean habilitado, int pendentes, long atrasoMs, long replicadas, int descartadas,
+            LocalDateTime ultimaReplicacao, int bytesUsados, int capacidade) {
+    }
+
+    public DiarioVendaService(@Value("${vendas.diario.habilitado:true}") boolean habilitado,
+            @Value("${vendas.diario.diretorio:dados}") String diretorio,
+            @Value("${vendas.diario.capacidade-mb:16}") int capacidadeMb) {
+        this.habilitado = habilitado;
+        this.diretorio = new File(diretorio);
+        this.capacidade = capacidadeMb * 1024 * 1024;
+    }
+
+    /**
+     * Abre os arquivos do diário e recupera os registros pendentes de uma execução anterior
+     */
+    @PostConstruct
+    public synchronized void abrir() {
+        if (!habilitado) {
+            logger.info("Diário de vendas desabilitado");
+            return;
+        }
+
+        try {
+            if (!diretorio.exists()) {
+                diretorio.mkdirs();
+            }
+            for (int i = 0; i < 2; i++) {
+                arquivos[i] = mapear(new File(diretorio, "vendas-" + i + ".diario"));
+                geracoes[i] = lerGeracao(arquivos[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao abrir diário de vendas em " + diretorio.getAbsolutePath(), e);
+        }
+
+        if (geracoes[0] == 0 && geracoes[1] == 0) {
+            escreverCabecalho(arquivos[0], 1);
+            geracoes[0] = 1;
+        }
+        ativo = geracoes[0] >= geracoes[1] ? 0 : 1;
+        recuperar();
+
+        logger.info("Diário de vendas aberto: geração {}, {} vendas pendentes de replicação",
+                geracoes[ativo], pendentes.size());
+        if (!descartados.isEmpty()) {
+            logger.error("Diário de vendas tem {} vendas descartadas na replicação aguardando correção manual",
+                    descartados.size());
+        }
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Registra uma ação a ser chamada sempre que uma venda entra no diário
+     */
+    public synchronized void aoRegistrar(Runnable ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    /**
+     * Grava a venda finalizada no diário de forma durável (force no arquivo mapeado)
+     *
+     * @throws IllegalStateException se o diário estiver desabilitado ou cheio
+     */
+    public void registrar(Venda venda) {
+        byte[] conteudo = codificar(venda);
+
+        synchronized (this) {
+            if (!habilitado) {
+                throw new IllegalStateException("Diário de vendas desabilitado");
+            }
+            if (!cabe(conteudo.length)) {
+                compactar();
+                if (!cabe(conteudo.length)) {
+                    throw new IllegalStateException("Diário de vendas cheio");
+                }
+            }
+
+            MappedByteBuffer arquivo = arquivos[ativo];
+            int posicao = posicaoEscrita;
+            escreverRegistro(arquivo, posicao, conteudo, PENDENTE);
+            arquivo.force();
+            posicaoEscrita = posicao + TAMANHO_CABECALHO_REGISTRO + conteudo.length;
+            pendentes.addLast(new Registro(posicao, System.currentTimeMillis(), conteudo, false));
+        }
+
+        for (Runnable ouvinte : ouvintes) {
+            ouvinte.run();
+        }
+    }
+
+    /**
+     * Próximo registro pendente, na ordem de gravação, ou null
+     */
+    public synchronized Registro proximoPendente() {
+        return pendentes.peekFirst();
+    }
+
+    /**
+     * Cópia da lista de registros pendentes, na ordem de gravação
+     */
+    public synchronized List<Registro> listarPendentes() {
+        return new ArrayList<>(pendentes);
+    }
+
+    /**
+     * Reconstrói a venda gravada no registro
+     */
+    public Venda lerVenda(Registro registro) {
+        return decodificar(registro.conteudo);
+    }
+
+    /**
+     * Total de cada venda do dia que ainda está só no diário (pendente de replicação), por chave
+     * de idempotência
+     */
+    public Map<String, Dinheiro> totaisPendentesDoDia(LocalDate dia) {
+        Map<String, Dinheiro> totais = new LinkedHashMap<>();
+        for (Registro registro : listarPendentes()) {
+            Venda venda = lerVenda(registro);
+            if (venda.getDataVenda().toLocalDate().equals(dia)) {
+                totais.put(venda.getChaveIdempotencia(), venda.getTotalDinheiro());
+            }
+        }
+        return totais;
+    }
+
+    /**
+     * Marca o registro como replicado no banco
+     */
+    public synchronized void marcarReplicado(Registro registro) {
+        // A compactação troca os registros por cópias; o conteúdo é o mesmo array
+        Registro primeiro = pendentes.peekFirst();
+        if (primeiro == null || primeiro.conteudo != registro.conteudo) {
+            return;
+        }
+        pendentes.removeFirst();
+        arquivos[ativo].put(primeiro.posicao + 8, REPLICADO);
+        replicadas++;
+        ultimaReplicacao = LocalDateTime.now();
+    }
+
+    /**
+     * Tira da fila de replicação um registro que o banco recusa de forma definitiva. O registro
+     * continua no diário, no estado descartado, e a fila segue para o próximo.
+     */
+    public synchronized void marcarDescartado(Registro registro) {
+        Registro primeiro = pendentes.peekFirst();
+        if (primeiro == null || primeiro.conteudo != registro.conteudo) {
+            return;
+        }
+        pendentes.removeFirst();
+        arquivos[ativo].put(primeiro.posicao + 8, DESCARTADO);
+        arquivos[ativo].force();
+        descartados.add(primeiro);
+    }
+
+    /**
+     * Compacta quando não há pendentes e mais da metade do arquivo já foi usada
+     */
+    public synchronized void compactarSeNecessario() {
+        if (habilitado && pendentes.isEmpty() && posicaoEscrita > capacidade / 2) {
+            compactar();
+        }
+    }
+
+    public synchronized Metricas getMetricas() {
+        Registro maisAntigo = pendentes.peekFirst();
+        long atraso = maisAntigo == null ? 0 : System.currentTimeMillis() - maisAntigo.registradoEm;
+        return new Metricas(habilitado, pendentes.size(), atraso, replicadas, descartados.size(),
+                ultimaReplicacao, posicaoEscrita, capacidade);
+    }
+
+    /**
+     * Copia os registros descartados e os pendentes para o arquivo inativo e o torna o ativo
+     */
+    private void compactar() {
+        int destino = 1 - ativo;
+        MappedByteBuffer arquivo = arquivos[destino];
+
+        int posicao = TAMANHO_CABECALHO;
+        List<Registro> descartadosCopiados = new ArrayList<>(descartados.size());
+        for (Registro registro : descartados) {
+            escreverRegistro(arquivo, posicao, registro.conteudo, DESCARTADO);
+            descartadosCopiados.add(new Registro(posicao, registro.registradoEm, registro.conteudo, registro.recuperado));
+            posicao += TAMANHO_CABECALHO_REGISTRO + registro.conteudo.length;
+        }
+        Deque<Registro> copiados = new ArrayDeque<>(pendentes.size());
+        for (Registro registro : pendentes) {
+            escreverRegistro(arquivo, posicao, registro.conteudo, PENDENTE);
+            copiados.addLast(new Registro(posicao, registro.registradoEm, registro.conteudo, registro.recuperado));
+            posicao += TAMANHO_CABECALHO_REGISTRO + registro.conteudo.length;
+        }
+        if (posicao + 4 <= capacidade) {
+            arquivo.putInt(posicao, 0);
+        }
+        arquivo.force();
+
+        long geracao = geracoes[ativo] + 1;
+        escreverCabecalho(arquivo, geracao);
+        geracoes[destino] = geracao;
+
+        logger.info("Diário de vendas compactado: {} pendentes mantidos, {} bytes liberados",
+                copiados.size(), posicaoEscrita - posicao);
+
+        ativo = destino;
+        posicaoEscrita = posicao;
+        pendentes.clear();
+        pendentes.addAll(copiados);
+        descartados.clear();
+        descartados.addAll(descartadosCopiados);
+    }
+
+    private void recuperar() {
+        MappedByteBuffer arquivo = arquivos[ativo];
+        int posicao = TAMANHO_CABECALHO;
+        CRC32 crc = new CRC32();
+
+        while (posicao + TAMANHO_CABECALHO_REGISTRO <= capacidade) {
+            int tamanho = arquivo.getInt(posicao);
+            if (tamanho <= 0 || posicao + TAMANHO_CABECALHO_REGISTRO + tamanho > capacidade) {
+                break;
+            }
+
+            byte[] conteudo = new byte[tamanho];
+            arquivo.get(posicao + TAMANHO_CABECALHO_REGISTRO, conteudo);
+            crc.reset();
+            crc.update(conteudo);
+            if ((int) crc.getValue() != arquivo.getInt(posicao + 4)) {
+                logger.warn("Registro incompleto no diário de vendas na posição {}, descartado", posicao);
+                break;
+            }
+
+            byte estado = arquivo.get(posicao + 8);
+            if (estado == PENDENTE) {
+                pendentes.addLast(new Registro(posicao, lerRegistradoEm(conteudo), conteudo, true));
+            } else if (estado == DESCARTADO) {
+                descartados.add(new Registro(posicao, lerRegistradoEm(conteudo), conteudo, true));
+            }
+            posicao += TAMANHO_CABECALHO_REGISTRO + tamanho;
+        }
+        posicaoEscrita = posicao;
+    }
+
+    private boolean cabe(int tamanhoConteudo) {
+        // Reserva 4 bytes para o marcador de fim
+        return posicaoEscrita + TAMANHO_CABECALHO_REGISTRO + tamanhoConteudo + 4 <= capacidade;
+    }
+
+    private static void escreverRegistro(MappedByteBuffer arquivo, int posicao, byte[] conteudo, byte estado) {
+        CRC32 crc = new CRC32();
+        crc.update(conteudo);
+
+        // O marcador de fim vem antes, o tamanho por último: um registro interrompido não é lido
+        int fim = posicao + TAMANHO_CABECALHO_REGISTRO + conteudo.length;
+        if (fim + 4 <= arquivo.capacity()) {
+            arquivo.putInt(fim, 0);
+        }
+        arquivo.putInt(posicao + 4, (int) crc.getValue());
+        arquivo.put(posicao + 8, estado);
+        arquivo.put(posicao + TAMANHO_CABECALHO_REGISTRO, conteudo);
+        arquivo.putInt(posicao, conteudo.length);
+    }
+
+    private static void escreverCabecalho(MappedByteBuffer arquivo, long geracao) {
+        arquivo.putInt(0, MAGIC);
+        arquivo.putInt(4, VERSAO);
+        arquivo.putLong(8, geracao);
+        arquivo.force();
+    }
+
+    private static long lerGeracao(MappedByteBuffer arquivo) {
+        if (arquivo.getInt(0) != MAGIC || arquivo.getInt(4) != VERSAO) {
+            return 0;
+        }
+        return arquivo.getLong(8);
+    }
+
+    private MappedByteBuffer mapear(File arquivo) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(arquivo, "rw");
+                FileChannel canal = raf.getChannel()) {
+            if (raf.length() < capacidade) {
+                raf.setLength(capacidade);
+            }
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, capacidade);
+        }
+    }
+
+    // ================== Serialização ==================
+
+    private static byte[] codificar(Venda venda) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + venda.getItens().size() * 96);
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeLong(System.currentTimeMillis());
+            out.writeUTF(venda.getChaveIdempotencia());
+            out.writeLong(venda.getDataVenda() != null
+                    ? venda.getDataVenda().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : System.currentTimeMillis());
+            out.writeLong(venda.getUsuario().getId());
+            out.writeUTF(venda.getFormaPagamento());
+            out.writeUTF(venda.getValorPago().toPlainString());
+            out.writeUTF(venda.getDescontoPercentual().toPlainString());
+            out.writeUTF(venda.getDesconto().toPlainString());
+            out.writeUTF(venda.getObservacoes() != null ? venda.getObservacoes() : "");
+
+            out.writeInt(venda.getItens().size());
+            for (ItemVenda item : venda.getItens()) {
+                out.writeLong(item.getProduto().getId());
+                out.writeUTF(item.getCodigoBarras());
+                out.writeUTF(item.getNomeProduto());
+                out.writeInt(item.getQuantidade());
+                out.writeUTF(item.getPrecoUnitario().toPlainString());
+                out.writeUTF(item.getDesconto().toPlainString());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao serializar venda para o diário", e);
+        }
+    }
+
+    private static Venda decodificar(byte[] conteudo) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(conteudo))) {
+            in.readLong();
+            Venda venda = new Venda();
+            venda.setChaveIdempotencia(in.readUTF());
+            venda.setDataVenda(LocalDateTime.ofInstant(Instant.ofEpochMilli(in.readLong()), ZoneId.systemDefault()));
+
+            Usuario usuario = new Usuario();
+            usuario.setId(in.readLong());
+            venda.setUsuario(usuario);
+
+            venda.setFormaPagamento(in.readUTF());
+            venda.setValorPago(new BigDecimal(in.readUTF()));
+            venda.setDescontoPercentual(new BigDecimal(in.readUTF()));
+            venda.setDesconto(new BigDecimal(in.readUTF()));
+            String observacoes = in.readUTF();
+            venda.setObservacoes(observacoes.isEmpty() ? null : observacoes);
+
+            int quantidadeItens = in.readInt();
+            for (int i = 0; i < quantidadeItens; i++) {
+                Produto produto = new Produto();
+                produto.setId(in.readLong());
+                produto.setCodigoBarras(in.readUTF());
+                produto.setNome(in.readUTF());
+                int quantidade = in.readInt();
+                produto.setPrecoVenda(new BigDecimal(in.readUTF()));
+
+                ItemVenda item = new ItemVenda(produto, quantidade);
+                item.setDesconto(new BigDecimal(in.readUTF()));
+                venda.adicionarItem(item);
+            }
+
+            venda.setStatus(Venda.StatusVenda.FINALIZADA);
+            venda.recalcularTotais();
+            return venda;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ler venda do diário", e);
+        }
+    }
+
+    private static long lerRegistradoEm(byte[] conteudo) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(conteudo))) {
+            return in.readLong();
+        } catch (IOException e) {
+            return System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.supermercado.service;
+
+import com.supermercado.model.Dinheiro;
+import com.supermercado.model.ItemVenda;
+import com.supermercado.model.Venda;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Barramento em processo dos eventos de venda (finalizada e cancelada).
+ *
+ * Alimenta os ouvintes da própria aplicação (ex.: dashboard) e os assinantes SSE de
+ * GET /api/vendas/stream. Cada assinante SSE tem uma fila limitada; quem não acompanha o
+ * ritmo e enche a fila é desconectado e pode reconectar com o último ID recebido
+ * (Last-Event-ID), recebendo de novo os eventos que ainda estão no histórico.
+ * Os IDs começam no instante de inicialização, então IDs de uma execução anterior
+ * ficam abaixo do histórico e levam a um evento "reinicio" (o cliente deve recarregar).
+ */
+@Service
+public class EventosVendaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventosVendaService.class);
+
+    /**
+     * Evento de venda enviado aos ouvintes e aos clientes SSE
+     */
+    public record EventoVenda(long id, Tipo tipo, Long vendaId, String chave, LocalDateTime dataVenda,
+            Dinheiro total, String formaPagamento, int itens) {
+
+        public enum Tipo {
+            FINALIZADA, CANCELADA
+        }
+    }
+
+    /**
+     * Inscrição de um ouvinte; cancelar remove o ouvinte do barramento
+     */
+    public interface Inscricao {
+        void cancelar();
+    }
+
+    private final int capacidadeFila;
+    private final int tamanhoHistorico;
+    private final long timeoutMs;
+
+    private final ArrayDeque<EventoVenda> historico = new ArrayDeque<>();
+    private long proximoId = System.currentTimeMillis();
+
+    private final List<Consumer<EventoVenda>> ouvintes = new CopyOnWriteArrayList<>();
+    private final List<AssinanteSse> assinantes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger descartados = new AtomicInteger();
+
+    private final ExecutorService envio;
+
+    public EventosVendaService(@Value("${vendas.eventos.fila:256}") int capacidadeFila,
+            @Value("${vendas.eventos.historico:1000}") int tamanhoHistorico,
+            @Value("${vendas.eventos.timeout-ms:1800000}") long timeoutMs,
+            @Value("${vendas.eventos.threads:4}") int threads) {
+        this.capacidadeFila = capacidadeFila;
+        this.tamanhoHistorico = tamanhoHistorico;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger contador = new AtomicInteger();
+        this.envio = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "eventos-vendas-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        for (AssinanteSse assinante : assinantes) {
+            assinante.emitter.complete();
+        }
+        envio.shutdownNow();
+    }
+
+    public void publicarFinalizada(Venda venda) {
+        publicar(EventoVenda.Tipo.FINALIZADA, venda);
+    }
+
+    public void publicarCancelada(Venda venda) {
+        publicar(EventoVenda.Tipo.CANCELADA, venda);
+    }
+
+    /**
+     * Registra um ouvinte em processo. É chamado na thread de quem publica (após o commit
+     * da venda), então deve apenas agendar o trabalho (ex.: Platform.runLater).
+     */
+    public Inscricao inscrever(Consumer<EventoVenda> ouvinte) {
+        ouvintes.add(ouvinte);
+        return () -> ouvintes.remove(ouvinte);
+    }
+
+    /**
+     * Abre um stream SSE, reenviando antes os eventos do histórico posteriores a {@code ultimoId}
+     */
+    public SseEmitter assinar(Long ultimoId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        AssinanteSse assinante = new AssinanteSse(emitter, capacidadeFila);
+        emitter.onCompletion(() -> assinantes.remove(assinante));
+        emitter.onTimeout(() -> assinantes.remove(assinante));
+        emitter.onError(e -> assinantes.remove(assinante));
+
+        synchronized (this) {
+            if (ultimoId != null) {
+                EventoVenda primeiro = historico.peekFirst();
+                long primeiroDisponivel = primeiro != null ? primeiro.id() : proximoId;
+                if (ultimoId < primeiroDisponivel - 1) {
+                    assinante.reinicio = true;
+                } else {
+                    for (EventoVenda evento : historico) {
+                        if (evento.id() > ultimoId && !assinante.fila.offer(evento)) {
+                            assinante.reinicio = true;
+                            assinante.fila.clear();
+                            break;
+                        }
+                    }
+                }
+            }
+            assinantes.add(assinante);
+        }
+        agendarEnvio(assinante);
+        return emitter;
+    }
+
+    /**
+     * Assinantes SSE conectados e quantos já foram desconectados por lentidão
+     */
+    public Metricas getMetricas() {
+        return new Metricas(assinantes.size(), ouvintes.size(), descartados.get());
+    }
+
+    public record Metricas(int assinantesSse, int ouvintes, int assinantesDescartados) {
+    }
+
+    private void publicar(EventoVenda.Tipo tipo, Venda venda) {
+        int itens = 0;
+        for (ItemVenda item : venda.getItens()) {
+            itens += item.getQuantidade();
+        }
+
+        EventoVenda evento;
+        synchronized (this) {
+            evento = new EventoVenda(proximoId++, tipo, venda.getId(), venda.getChaveIdempotencia(),
+                    venda.getDataVenda(), venda.getTotalDinheiro(), venda.getFormaPagamento(), itens);
+            historico.addLast(evento);
+            if (historico.size() > tamanhoHistorico) {
+                historico.removeFirst();
+            }
+            for (AssinanteSse assinante : assinantes) {
+                if (!assinante.fila.offer(evento)) {
+                    descartar(assinante);
+                }
+            }
+        }
+
+        for (AssinanteSse assinante : assinantes) {
+            agendarEnvio(assinante);
+        }
+        for (Consumer<EventoVenda> ouvinte : ouvintes) {
+            try {
+                ouvinte.accept(evento);
+            } catch (RuntimeException e) {
+                logger.warn("Erro em ouvinte de eventos de venda: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fila cheia: o cliente não acompanha o ritmo. É desconectado para não segurar memória;
+     * ao reconectar com Last-Event-ID recupera o que estiver no histórico.
+     */
+    private void descartar(AssinanteSse assinante) {
+        assinantes.remove(assinante);
+        assinante.fila.clear();
+        descartados.incrementAndGet();
+        logger.warn("Assinante SSE de vendas desconectado por lentidão (fila com {} eventos)", capacidadeFila);
+        envio.execute(assinante.emitter::complete);
+    }
+
+    private void agendarEnvio(AssinanteSse assinante) {
+        if (assinante.agendado.compareAndSet(false, true)) {
+            envio.execute(() -> enviar(assinante));
+        }
+    }
+
+    /**
+     * Esvazia a fila do assinante. Só uma tarefa por assinante roda por vez (flag agendado).
+     */
+    private void enviar(AssinanteSse assinante) {
+        try {
+            if (assinante.reinicio) {
+                assinante.reinicio = false;
+                assinante.emitter.send(SseEmitter.event().name("reinicio").data(""));
+            }
+            List<EventoVenda> lote = new ArrayList<>();
+            while (assinante.fila.drainTo(lote) > 0) {
+                for (EventoVenda evento : lote) {
+                    assinante.emitter.send(SseEmitter.event()
+                            .id(Long.toString(evento.id()))
+                            .name(evento.tipo().name().toLowerCase())
+                            .data(evento));
+                }
+                lote.clear();
+            }
+        } catch (IOException | IllegalStateException e) {
+            assinantes.remove(assinante);
+            logger.debug("Assinante SSE de vendas desconectado: {}", e.getMessage());
+        } finally {
+            assinante.agendado.set(false);
+        }
+        if (!assinante.fila.isEmpty() && assinantes.contains(assinante)) {
+            agendarEnvio(assinante);
+        }
+    }
+
+    private static final class AssinanteSse {
+        private final SseEmitter emitter;
+        private final BlockingQueue<EventoVenda> fila;
+        private final AtomicBoolean agendado = new AtomicBoolean();
+        private volatile boolean reinicio;
+
+        private AssinanteSse(SseEmitter emitter, int capacidade) {
+            this.emitter = emitter;
+            this.fila = new ArrayBlockingQueue<>(capacidade);
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package com.supermercado.service;
+
+import com.supermercado.model.Produto;
+import com.supermercado.model.ProdutoResumo;
+import com.supermercado.repository.ProdutoRepository;
+import com.supermercado.util.ArvoreBK;
+import com.supermercado.util.IndiceTrigramas;
+import com.supermercado.util.LongHashMap;
+import com.supermercado.util.NormalizadorTexto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice residente do catálogo, chaveado pelo código de barras numérico (EAN).
+ * Carregado na inicialização e mantido pelas escritas de ProdutoService e CompraService,
+ * permite resolver uma leitura do PDV sem ida ao banco. Também mantém um índice de
+ * trigramas dos nomes para a busca por trecho do nome.
+ * <p>
+ * O estoque do resumo é o do banco menos o reservado por vendas do diário local ainda não
+ * replicadas. As reservas ficam em um contador separado por produto, que as fotografias do
+ * banco (carga, {@link #atualizar}, {@link #registrar}) nunca substituem.
+ */
+@Service
+public class IndiceCatalogoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceCatalogoService.class);
+
+    /**
+     * Maior quantidade de dígitos que cabe na chave junto com o comprimento
+     */
+    private static final int MAX_DIGITOS = 16;
+
+    /**
+     * Limites da busca aproximada: palavras corrigidas e alternativas por palavra
+     */
+    private static final int MAX_PALAVRAS_APROXIMADAS = 4;
+    private static final int ALTERNATIVAS_POR_PALAVRA = 3;
+
+    private final ProdutoRepository produtoRepository;
+    private final LongHashMap<ProdutoResumo> porCodigo = new LongHashMap<>(1024);
+    private final LongHashMap<ProdutoResumo> porId = new LongHashMap<>(1024);
+    private final LongHashMap<String> nomesNormalizados = new LongHashMap<>(1024);
+    private final LongHashMap<Integer> reservas = new LongHashMap<>();
+    private final IndiceTrigramas trigramas = new IndiceTrigramas();
+    private final ArvoreBK vocabulario = new ArvoreBK();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean carregado;
+
+    @Autowired
+    public IndiceCatalogoService(ProdutoRepository produtoRepository) {
+        this.produtoRepository = produtoRepository;
+    }
+
+    /**
+     * Carrega o catálogo completo no índice (antes dos demais ouvintes de inicialização)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void carregar() {
+        long inicio = System.currentTimeMillis();
+        List<ProdutoResumo> resumos = produtoRepository.findResumos();
+
+        lock.writeLock().lock();
+        try {
+            porCodigo.clear();
+            porId.clear();
+            nomesNormalizados.clear();
+            trigramas.limpar();
+            vocabulario.limpar();
+            for (ProdutoResumo resumo : resumos) {
+                indexar(descontarReserva(resumo));
+            }
+            carregado = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        logger.info("Índice do catálogo carregado: {} produtos, {} trigramas, {} palavras em {} ms",
+                resumos.size(), trigramas.tamanho(), vocabulario.tamanho(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Indica se o índice já foi carregado e pode responder consultas
+     */
+    public boolean isCarregado() {
+        return carregado;
+    }
+
+    /**
+     * Busca o resumo pelo código de barras. Retorna vazio quando o código não é numérico
+     * ou não está no índice; nesses casos quem chama deve consultar o banco.
+     */
+    public Optional<ProdutoResumo> buscarPorCodigoBarras(String codigoBarras) {
+        long chave = chave(codigoBarras);
+        if (chave == 0L || !carregado) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(porCodigo.get(chave));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca o resumo pelo ID do produto
+     */
+    public Optional<ProdutoResumo> buscarPorId(Long id) {
+        if (id == null || !carregado) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(porId.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca produtos ativos cujo nome contém o termo (sem diferenciar acentos e maiúsculas), pelo
+     * índice de trigramas. Ordem: nome começando pelo termo, depois alguma palavra começando
+     * pelo termo, depois o restante; em cada grupo, por nome.
+     */
+    public List<ProdutoResumo> buscarPorNome(String termo, int limite) {
+        String normalizado = NormalizadorTexto.normalizar(termo);
+        if (normalizado.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+
+        List<List<ProdutoResumo>> grupos = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        lock.readLock().lock();
+        try {
+            long[] candidatos = trigramas.candidatos(normalizado);
+            if (candidatos != null) {
+                for (long id : candidatos) {
+                    classificar(porId.get(id), nomesNormalizados.get(id), normalizado, grupos);
+                }
+            } else {
+                // Termo de um caractere: o índice não ajuda, percorre os nomes
+                porId.forEachValue(resumo -> classificar(resumo, nomesNormalizados.get(resumo.id()), normalizado,
+                        grupos));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<ProdutoResumo> resultado = new ArrayList<>(limite);
+        for (List<ProdutoResumo> grupo : grupos) {
+            if (resultado.size() >= limite) {
+                break;
+            }
+            grupo.sort(Comparator.comparing(ProdutoResumo::nome, String.CASE_INSENSITIVE_ORDER));
+            resultado.addAll(grupo.subList(0, Math.min(grupo.size(), limite - resultado.size())));
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca tolerante a erros de digitação, para quando {@link #buscarPorNome} não acha nada.
+     * Cada palavra do termo que não existe no catálogo é trocada pelas palavras mais próximas
+     * do vocabulário (árvore BK, até 1 edição em palavras de até 4 letras e 2 nas maiores);
+     * as combinações são tentadas da menor para a maior distância total.
+     */
+    public List<ProdutoResumo> buscarPorNomeAproximado(String termo, int limite) {
+        String normalizado = NormalizadorTexto.normalizar(termo);
+        if (normalizado.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        String[] palavras = normalizado.split(" ");
+        if (palavras.length > MAX_PALAVRAS_APROXIMADAS) {
+            palavras = Arrays.copyOf(palavras, MAX_PALAVRAS_APROXIMADAS);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<List<ArvoreBK.Resultado>> alternativas = new ArrayList<>(palavras.length);
+            for (String palavra : palavras) {
+                if (palavra.length() < 3 || vocabulario.contem(palavra)) {
+                    alternativas.add(List.of(new ArvoreBK.Resultado(palavra, 0, 0)));
+                    continue;
+                }
+                List<ArvoreBK.Resultado> proximas = vocabulario.buscar(palavra, palavra.length() <= 4 ? 1 : 2);
+                if (proximas.isEmpty()) {
+                    return List.of();
+                }
+                alternativas.add(proximas.subList(0, Math.min(proximas.size(), ALTERNATIVAS_POR_PALAVRA)));
+            }
+
+            List<ProdutoResumo> resultado = new ArrayList<>();
+            Set<Long> incluidos = new HashSet<>();
+            for (String[] combinacao : combinacoes(alternativas)) {
+                List<ProdutoResumo> encontrados = buscarTodasAsPalavras(combinacao);
+                encontrados.sort(Comparator.comparing(ProdutoResumo::nome, String.CASE_INSENSITIVE_ORDER));
+                for (ProdutoResumo resumo : encontrados) {
+                    if (incluidos.add(resumo.id())) {
+                        resultado.add(resumo);
+                        if (resultado.size() == limite) {
+                            return resultado;
+                        }
+                    }
+                }
+            }
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Combinações de uma alternativa por palavra, da menor para a maior distância total
+     */
+    private static List<String[]> combinacoes(List<List<ArvoreBK.Resultado>> alternativas) {
+        List<String[]> combinacoes = new ArrayList<>();
+        List<Integer> distancias = new ArrayList<>();
+        int[] indices = new int[alternativas.size()];
+        while (true) {
+            String[] combinacao = new String[indices.length];
+            int distancia = 0;
+            for (int i = 0; i < indices.length; i++) {
+                ArvoreBK.Resultado r = alternativas.get(i).get(indices[i]);
+                combinacao[i] = r.palavra();
+                distancia += r.distancia();
+            }
+            combinacoes.add(combinacao);
+            distancias.add(distancia);
+
+            int i = indices.length - 1;
+            while (i >= 0 && ++indices[i] == alternativas.get(i).size()) {
+                indices[i--] = 0;
+            }
+            if (i < 0) {
+                break;
+            }
+        }
+
+        Integer[] ordem = new Integer[combinacoes.size()];
+        for (int i = 0; i < ordem.length; i++) {
+            ordem[i] = i;
+        }
+        Arrays.sort(ordem, Comparator.comparingInt(distancias::get));
+        List<String[]> ordenadas = new ArrayList<>(ordem.length);
+        for (Integer i : ordem) {
+            ordenadas.add(combinacoes.get(i));
+        }
+        return ordenadas;
+    }
+
+    /**
+     * Produtos ativos cujo nome contém todas as palavras (em qualquer ordem). Chamar com o lock de leitura.
+     */
+    private List<ProdutoResumo> buscarTodasAsPalavras(String[] palavras) {
+        long[] candidatos = null;
+        for (String palavra : palavras) {
+            long[] daPalavra = palavra.length() >= 3 ? trigramas.candidatos(palavra) : null;
+            if (daPalavra != null) {
+                candidatos = candidatos == null ? daPalavra : intersectar(candidatos, daPalavra);
+            }
+        }
+
+        List<ProdutoResumo> encontrados = new ArrayList<>();
+        if (candidatos == null) {
+            return encontrados;
+        }
+        for (long id : candidatos) {
+            ProdutoResumo resumo = porId.get(id);
+            String nome = nomesNormalizados.get(id);
+            if (resumo == null || nome == null || !Boolean.TRUE.equals(resumo.ativo())) {
+                continue;
+            }
+            boolean todas = true;
+            for (String palavra : palavras) {
+                if (!nome.contains(palavra)) {
+                    todas = false;
+                    break;
+                }
+            }
+            if (todas) {
+                encontrados.add(resumo);
+            }
+        }
+        return encontrados;
+    }
+
+    private static long[] intersectar(long[] a, long[] b) {
+        long[] resultado = new long[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length;) {
+            if (a[i] == b[j]) {
+                resultado[n++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    /**
+     * Palavras distintas do nome normalizado que entram no vocabulário da busca aproximada
+     * (três letras ou mais, não só dígitos)
+     */
+    private static Set<String> palavras(String nomeNormalizado) {
+        Set<String> palavras = new HashSet<>();
+        for (String palavra : nomeNormalizado.split(" ")) {
+            if (palavra.length() >= 3 && !palavra.chars().allMatch(Character::isDigit)) {
+                palavras.add(palavra);
+            }
+        }
+        return palavras;
+    }
+
+    /**
+     * Põe o produto no grupo da sua relevância (0 prefixo do nome, 1 prefixo de palavra, 2 trecho)
+     */
+    private static void classificar(ProdutoResumo resumo, String nome, String termo,
+            List<List<ProdutoResumo>> grupos) {
+        if (resumo == null || nome == null || !Boolean.TRUE.equals(resumo.ativo())) {
+            return;
+        }
+        int posicao = nome.indexOf(termo);
+        if (posicao < 0) {
+            return;
+        }
+        if (posicao == 0) {
+            grupos.get(0).add(resumo);
+        } else if (nome.indexOf(" " + termo) >= 0) {
+            grupos.get(1).add(resumo);
+        } else {
+            grupos.get(2).add(resumo);
+        }
+    }
+
+    /**
+     * Atualiza o produto no índice após o commit da transação corrente
+     */
+    public void atualizar(Produto produto) {
+        ProdutoResumo resumo = ProdutoResumo.de(produto);
+        aposCommit(() -> registrar(resumo));
+    }
+
+    /**
+     * Registra imediatamente um resumo lido do banco (ex.: após um miss); o estoque
+     * reservado pelo diário é descontado do estoque do resumo
+     */
+    public void registrar(ProdutoResumo resumo) {
+        if (resumo.id() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            ProdutoResumo anterior = porId.get(resumo.id());
+            if (anterior != null && !anterior.codigoBarras().equals(resumo.codigoBarras())) {
+                porCodigo.remove(chave(anterior.codigoBarras()));
+            }
+            indexar(descontarReserva(resumo));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aplica uma variação de estoque ao resumo após o commit da transação corrente
+     */
+    public void ajustarEstoque(Long produtoId, int variacao) {
+        aposCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                somarAoEstoque(produtoId, variacao);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Reserva o estoque de uma venda gravada no diário local, antes de a baixa chegar ao banco
+     */
+    public void reservarEstoque(Long produtoId, int quantidade) {
+        lock.writeLock().lock();
+        try {
+            alterarReserva(produtoId, quantidade);
+            somarAoEstoque(produtoId, -quantidade);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devolve a reserva de uma venda do diário que não vai chegar ao banco (descartada)
+     */
+    public void liberarReserva(Long produtoId, int quantidade) {
+        lock.writeLock().lock();
+        try {
+            alterarReserva(produtoId, -quantidade);
+            somarAoEstoque(produtoId, quantidade);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Encerra a reserva após o commit da baixa da venda no banco: o estoque do resumo
+     * não muda, a quantidade só passa da reserva para o estoque do banco
+     */
+    public void confirmarReserva(Long produtoId, int quantidade) {
+        aposCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                alterarReserva(produtoId, -quantidade);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Quantidade do produto reservada por vendas do diário ainda não replicadas
+     */
+    public int reservado(Long produtoId) {
+        lock.readLock().lock();
+        try {
+            Integer reservado = reservas.get(produtoId);
+            return reservado != null ? reservado : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Chamar com o lock de escrita
+     */
+    private void alterarReserva(Long produtoId, int variacao) {
+        Integer atual = reservas.get(produtoId);
+        int reservado = (atual != null ? atual : 0) + variacao;
+        if (reservado == 0) {
+            reservas.remove(produtoId);
+        } else {
+            reservas.put(produtoId, reservado);
+        }
+    }
+
+    /**
+     * Chamar com o lock de escrita
+     */
+    private void somarAoEstoque(Long produtoId, int variacao) {
+        ProdutoResumo atual = porId.get(produtoId);
+        if (atual != null && atual.quantidadeEstoque() != null) {
+            indexar(atual.comEstoque(atual.quantidadeEstoque() + variacao));
+        }
+    }
+
+    /**
+     * Estoque do banco menos o reservado pelo diário. Chamar com o lock de escrita.
+     */
+    private ProdutoResumo descontarReserva(ProdutoResumo doBanco) {
+        Integer reservado = reservas.get(doBanco.id());
+        if (reservado == null || doBanco.quantidadeEstoque() == null) {
+            return doBanco;
+        }
+        return doBanco.comEstoque(doBanco.quantidadeEstoque() - reservado);
+    }
+
+    /**
+     * Quantidade de produtos no índice
+     */
+    public int tamanho() {
+        lock.readLock().lock();
+        try {
+            return porId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexar(ProdutoResumo resumo) {
+        String nome = resumo.nome() != null ? NormalizadorTexto.normalizar(resumo.nome()) : "";
+        String nomeAnterior = nomesNormalizados.get(resumo.id());
+        if (!nome.equals(nomeAnterior)) {
+            if (nomeAnterior != null) {
+                trigramas.remover(resumo.id(), nomeAnterior);
+                palavras(nomeAnterior).forEach(vocabulario::remover);
+            }
+            trigramas.adicionar(resumo.id(), nome);
+            palavras(nome).forEach(vocabulario::adicionar);
+            nomesNormalizados.put(resumo.id(), nome);
+        }
+
+        porId.put(resumo.id(), resumo);
+        long chave = chave(resumo.codigoBarras());
+        if (chave != 0L) {
+            porCodigo.put(chave, resumo);
+        }
+    }
+
+    /**
+     * Converte o código de barras em chave numérica. O comprimento fica nos bits altos
+     * para que códigos com zeros à esquerda não colidam. Retorna 0 se não for indexável.
+     */
+    static long chave(String codigoBarras) {
+        if (codigoBarras == null) {
+            return 0L;
+        }
+        int tamanho = codigoBarras.length();
+        if (tamanho == 0 || tamanho > MAX_DIGITOS) {
+            return 0L;
+        }
+
+        long valor = 0L;
+        for (int i = 0; i < tamanho; i++) {
+            char c = codigoBarras.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0L;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return ((long) tamanho << 56) | valor;
+    }
+
+    private static void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+}
@@ -5,36 +5,118 @@ import com.supermercado.model.Usuario;
 import com.supermercado.repository.LogAcaoRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Service para gerenciamento de logs de auditoria
+ * Service para gerenciamento de logs de auditoria.
+ *
+ * O registro é assíncrono: as ações entram em uma fila limitada e uma única thread
+ * grava em lotes JDBC a cada N registros ou T milissegundos, o que vier primeiro.
+ * Assim as operações de negócio não esperam pelo INSERT em log_acoes.
+ * Em falha transitória do banco o lote fica com o gravador e é tentado de novo, com espera
+ * crescente; com a fila cheia, por padrão quem registra espera ({@link PoliticaFilaCheia#BLOQUEAR}).
  */
 @Service
 public class LogService {
 
     private static final Logger logger = LoggerFactory.getLogger(LogService.class);
+
+    private static final String SQL_INSERT = "INSERT INTO log_acoes " +
+            "(id, usuario_id, data_hora, acao, entidade, entidade_id, descricao, ip_address) " +
+            "VALUES (nextval('log_acoes_seq'), ?, ?, ?, ?, ?, ?, ?)";
+    private static final long ESPERA_MAXIMA_MS = 30_000;
+
+    /**
+     * O que fazer quando a fila de auditoria está cheia
+     */
+    public enum PoliticaFilaCheia {
+        /** Descarta o registro e contabiliza o descarte */
+        DESCARTAR,
+        /** Bloqueia quem registra até haver espaço */
+        BLOQUEAR,
+        /** Grava o registro de forma síncrona na thread de quem registra */
+        SINCRONO
+    }
+
     private final LogAcaoRepository logAcaoRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<LogAcao> fila;
+    private final int tamanhoLote;
+    private final long intervaloMs;
+    private final PoliticaFilaCheia politica;
+    private final AtomicLong descartados = new AtomicLong();
+    private final Object gravacao = new Object();
+
+    private volatile boolean ativo;
+    private Thread gravador;
 
     @Autowired
-    public LogService(LogAcaoRepository logAcaoRepository) {
+    public LogService(LogAcaoRepository logAcaoRepository, JdbcTemplate jdbcTemplate,
+            @Value("${auditoria.fila.capacidade:10000}") int capacidade,
+            @Value("${auditoria.lote.tamanho:100}") int tamanhoLote,
+            @Value("${auditoria.lote.intervalo-ms:500}") long intervaloMs,
+            @Value("${auditoria.fila.politica:BLOQUEAR}") PoliticaFilaCheia politica) {
         this.logAcaoRepository = logAcaoRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.tamanhoLote = tamanhoLote;
+        this.intervaloMs = intervaloMs;
+        this.politica = politica;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        ativo = true;
+        gravador = new Thread(this::executarGravador, "auditoria-gravador");
+        gravador.setDaemon(true);
+        gravador.start();
+        logger.info("Gravador de auditoria iniciado (lote {}, intervalo {} ms, política {})",
+                tamanhoLote, intervaloMs, politica);
+    }
+
+    /**
+     * Para o gravador e grava o que restou na fila
+     */
+    @PreDestroy
+    public void encerrar() {
+        ativo = false;
+        if (gravador != null) {
+            gravador.interrupt();
+            try {
+                gravador.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (descartados.get() > 0) {
+            logger.warn("Registros de auditoria descartados por fila cheia: {}", descartados.get());
+        }
     }
 
     /**
-     * Registra uma ação no log de auditoria
+     * Registra uma ação no log de auditoria (assíncrono)
      */
-    @Transactional
     public void registrarLog(Usuario usuario, LogAcao.TipoAcao acao, String entidade,
             Long entidadeId, String descricao) {
         try {
             LogAcao log = new LogAcao(usuario, acao, entidade, entidadeId, descricao);
-            logAcaoRepository.save(log);
+            enfileirar(log);
             logger.debug("Log registrado: {} - {} - {}", usuario != null ? usuario.getUsername() : "Sistema", acao, descricao);
         } catch (Exception e) {
             logger.error("Erro ao registrar log", e);
@@ -44,7 +126,6 @@ public class LogService {
     /**
      * Registra uma ação com descrição detalhada
      */
-    @Transactional
     public void registrarLogDetalhado(Usuario usuario, LogAcao.TipoAcao acao, String entidade,
             Long entidadeId, String descricao, String detalhes) {
         try {
@@ -58,6 +139,169 @@ public class LogService {
         }
     }
 
+    /**
+     * Grava imediatamente todos os registros pendentes na fila
+     */
+    public void flush() {
+        List<LogAcao> lote = new ArrayList<>(tamanhoLote);
+        while (fila.drainTo(lote, tamanhoLote) > 0) {
+            if (!gravar(lote)) {
+                logger.error("Banco indisponível; {} registros de auditoria não gravados",
+                        lote.size() + fila.size());
+                fila.clear();
+                return;
+            }
+            lote.clear();
+        }
+    }
+
+    /**
+     * Quantidade de registros aguardando gravação
+     */
+    public int getPendentes() {
+        return fila.size();
+    }
+
+    /**
+     * Quantidade de registros descartados por fila cheia
+     */
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    private void enfileirar(LogAcao log) throws InterruptedException {
+        if (fila.offer(log)) {
+            return;
+        }
+
+        switch (politica) {
+            case BLOQUEAR:
+                fila.put(log);
+                break;
+            case SINCRONO:
+                if (!gravar(List.of(log))) {
+                    // Banco indisponível: espera a vez na fila, que o gravador tenta de novo
+                    fila.put(log);
+                }
+                break;
+            default:
+                long total = descartados.incrementAndGet();
+                if (total == 1 || total % 1000 == 0) {
+                    logger.warn("Fila de auditoria cheia, registros descartados: {}", total);
+                }
+                break;
+        }
+    }
+
+    private void executarGravador() {
+        List<LogAcao> lote = new ArrayList<>(tamanhoLote);
+        long espera = 0;
+        while (ativo) {
+            try {
+                if (!lote.isEmpty()) {
+                    // Lote retido por falha transitória: espera e tenta de novo antes de ler a fila
+                    espera = espera == 0 ? intervaloMs : Math.min(espera * 2, ESPERA_MAXIMA_MS);
+                    logger.warn("Falha ao gravar lote de auditoria ({} registros); nova tentativa em {} ms",
+                            lote.size(), espera);
+                    Thread.sleep(espera);
+                    if (gravar(lote)) {
+                        lote.clear();
+                        espera = 0;
+                    }
+                    continue;
+                }
+
+                LogAcao primeiro = fila.poll(intervaloMs, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+                while (lote.size() < tamanhoLote) {
+                    long restante = limite - System.nanoTime();
+                    if (restante <= 0) {
+                        break;
+                    }
+                    LogAcao proximo = fila.poll(restante, TimeUnit.NANOSECONDS);
+                    if (proximo == null) {
+                        break;
+                    }
+                    lote.add(proximo);
+                    fila.drainTo(lote, tamanhoLote - lote.size());
+                }
+
+                if (gravar(lote)) {
+                    lote.clear();
+                }
+            } catch (InterruptedException e) {
+                // Encerramento: o restante da fila é gravado em encerrar()
+                if (!lote.isEmpty() && !gravar(lote)) {
+                    logger.error("Banco indisponível no encerramento; {} registros de auditoria não gravados",
+                            lote.size());
+                }
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Grava o lote. Em falha transitória (banco fora do ar, timeout) devolve false e nada é
+     * gravado: o lote continua com quem chamou. Em falha definitiva grava registro a registro,
+     * e só os recusados ficam de fora (no log de erros da aplicação).
+     */
+    private boolean gravar(List<LogAcao> lote) {
+        if (lote.isEmpty()) {
+            return true;
+        }
+
+        synchronized (gravacao) {
+            try {
+                inserir(lote);
+                logger.debug("Lote de auditoria gravado: {} registros", lote.size());
+                return true;
+            } catch (RuntimeException e) {
+                if (ReplicacaoVendaService.isFalhaTransitoria(e)) {
+                    logger.debug("Falha transitória ao gravar lote de auditoria", e);
+                    return false;
+                }
+                logger.error("Lote de auditoria recusado pelo banco ({} registros); gravando um a um",
+                        lote.size(), e);
+            }
+
+            for (LogAcao log : lote) {
+                try {
+                    inserir(List.of(log));
+                } catch (RuntimeException e) {
+                    logger.error("Registro de auditoria não gravado: {} {} {} - {}", log.getAcao(),
+                            log.getEntidade(), log.getEntidadeId(), log.getDescricao(), e);
+                }
+            }
+            return true;
+        }
+    }
+
+    private void inserir(List<LogAcao> lote) {
+        jdbcTemplate.batchUpdate(SQL_INSERT, lote, lote.size(), (ps, log) -> {
+            if (log.getUsuario() != null) {
+                ps.setLong(1, log.getUsuario().getId());
+            } else {
+                ps.setNull(1, Types.BIGINT);
+            }
+            ps.setTimestamp(2, Timestamp.valueOf(log.getDataHora()));
+            ps.setString(3, log.getAcao().name());
+            ps.setString(4, log.getEntidade());
+            if (log.getEntidadeId() != null) {
+                ps.setLong(5, log.getEntidadeId());
+            } else {
+                ps.setNull(5, Types.BIGINT);
+            }
+            ps.setString(6, log.getDescricao());
+            ps.setString(7, log.getIpAddress());
+        });
+    }
+
     /**
      * Lista todos os logs
      */
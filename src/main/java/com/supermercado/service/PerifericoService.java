@@ -1,34 +1,172 @@
 package com.supermercado.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Integração com periféricos do caixa.
+ *
+ * Impressão térmica (ESC/POS via rede): cada impressora tem sua fila FIFO e sua thread
+ * de envio, então quem chama nunca bloqueia e uma impressora fora do ar não atrasa as
+ * outras. A conexão fica aberta e é verificada (DLE EOT) quando fica ociosa; falhas de
+ * envio reabrem a conexão e tentam de novo com espera crescente, na thread da própria
+ * impressora.
+ */
 @Service
 public class PerifericoService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PerifericoService.class);
+
     /**
-     * Exemplo de impressão ESC/POS via rede (IP da Impressora Térmica)
+     * Encode comum em impressoras térmicas
      */
-    public void imprimirComprovanteTermico(String texto, String ipImpressora, int porta) {
-        try (Socket socket = new Socket(ipImpressora, porta);
-                OutputStream out = socket.getOutputStream()) {
+    private static final Charset CP850 = Charset.forName("CP850");
+
+    // Comandos ESC/POS básicos, codificados uma única vez
+    private static final byte[] INICIALIZAR = { 0x1B, 0x40 };
+    private static final byte[] AVANCO = "\n\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CORTAR = { 0x1D, 0x56, 0x41, 0x10 };
+    private static final byte[] STATUS_IMPRESSORA = { 0x10, 0x04, 0x01 };
+
+    private static final long ESPERA_MAXIMA_MS = TimeUnit.SECONDS.toMillis(10);
 
-            // Comandos ESC/POS básicos
-            byte[] init = { 0x1B, 0x40 }; // Inicializar
-            byte[] cut = { 0x1D, 0x56, 0x41, 0x10 }; // Cortar papel
+    private final int capacidadeFila;
+    private final int tentativas;
+    private final long esperaInicialMs;
+    private final long verificacaoMs;
+    private final int timeoutMs;
 
-            out.write(init);
-            out.write(texto.getBytes("CP850")); // Encode comum em impressoras térmicas
-            out.write("\n\n\n".getBytes());
-            out.write(cut);
-            out.flush();
+    private final Map<String, Impressora> impressoras = new ConcurrentHashMap<>();
+    private final AtomicLong impressos = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+    private volatile boolean ativo;
+
+    /**
+     * Métricas da impressão: totais e a situação de cada impressora
+     */
+    public record MetricasImpressao(int naFila, long impressos, long falhas, long descartados,
+            int conexoesAbertas, List<MetricasImpressora> impressoras) {
+    }
 
-        } catch (Exception e) {
-            System.err.println("Erro ao imprimir em periférico: " + e.getMessage());
+    /**
+     * Fila e conexão de uma impressora
+     */
+    public record MetricasImpressora(String impressora, int naFila, boolean conectada, long falhasSeguidas) {
+    }
+
+    public PerifericoService(@Value("${perifericos.impressao.fila.capacidade:200}") int capacidadeFila,
+            @Value("${perifericos.impressao.tentativas:5}") int tentativas,
+            @Value("${perifericos.impressao.espera-inicial-ms:200}") long esperaInicialMs,
+            @Value("${perifericos.impressao.verificacao-ms:30000}") long verificacaoMs,
+            @Value("${perifericos.impressao.timeout-ms:3000}") int timeoutMs) {
+        this.capacidadeFila = capacidadeFila;
+        this.tentativas = tentativas;
+        this.esperaInicialMs = esperaInicialMs;
+        this.verificacaoMs = verificacaoMs;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        ativo = true;
+    }
+
+    /**
+     * Para as threads de impressão e fecha as conexões
+     */
+    @PreDestroy
+    public void encerrar() {
+        ativo = false;
+        for (Impressora impressora : impressoras.values()) {
+            impressora.thread.interrupt();
+        }
+        int naoImpressos = 0;
+        for (Impressora impressora : impressoras.values()) {
+            try {
+                impressora.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            impressora.fechar();
+            naoImpressos += impressora.fila.size();
+        }
+        impressoras.clear();
+        if (naoImpressos > 0) {
+            logger.warn("{} comprovantes não impressos ao encerrar", naoImpressos);
         }
     }
 
+    /**
+     * Coloca o comprovante na fila da impressora térmica (não bloqueia)
+     *
+     * @return false se a fila da impressora estiver cheia (ou o serviço encerrado) e o
+     *         comprovante foi descartado
+     */
+    public boolean imprimirComprovanteTermico(String texto, String ipImpressora, int porta) {
+        byte[] conteudo = texto.getBytes(CP850);
+        byte[] dados = new byte[INICIALIZAR.length + conteudo.length + AVANCO.length + CORTAR.length];
+        int pos = 0;
+        System.arraycopy(INICIALIZAR, 0, dados, pos, INICIALIZAR.length);
+        pos += INICIALIZAR.length;
+        System.arraycopy(conteudo, 0, dados, pos, conteudo.length);
+        pos += conteudo.length;
+        System.arraycopy(AVANCO, 0, dados, pos, AVANCO.length);
+        pos += AVANCO.length;
+        System.arraycopy(CORTAR, 0, dados, pos, CORTAR.length);
+
+        if (!ativo) {
+            descartados.incrementAndGet();
+            logger.warn("Impressão encerrada; comprovante descartado para {}:{}", ipImpressora, porta);
+            return false;
+        }
+        Impressora impressora = impressoras.computeIfAbsent(ipImpressora + ":" + porta,
+                chave -> new Impressora(chave, ipImpressora, porta));
+        if (!impressora.fila.offer(dados)) {
+            descartados.incrementAndGet();
+            logger.warn("Fila da impressora {} cheia ({}); comprovante descartado", impressora.chave, capacidadeFila);
+            return false;
+        }
+        return true;
+    }
+
+    public MetricasImpressao getMetricasImpressao() {
+        List<MetricasImpressora> porImpressora = new ArrayList<>();
+        int naFila = 0;
+        int abertas = 0;
+        for (Impressora impressora : impressoras.values()) {
+            MetricasImpressora metricas = impressora.metricas();
+            porImpressora.add(metricas);
+            naFila += metricas.naFila();
+            abertas += metricas.conectada() ? 1 : 0;
+        }
+        porImpressora.sort(Comparator.comparing(MetricasImpressora::impressora));
+        return new MetricasImpressao(naFila, impressos.get(), falhas.get(), descartados.get(), abertas,
+                porImpressora);
+    }
+
     /**
      * Exemplo de leitura de balança (Simulado)
      */
@@ -37,4 +175,177 @@ public class PerifericoService {
         // Aqui apenas simulamos a integração
         return 1.450; // Retorna 1.45kg
     }
+
+    /**
+     * Uma impressora: fila própria, thread de envio própria e conexão persistente
+     * (usada apenas por essa thread)
+     */
+    private final class Impressora {
+        private final String chave;
+        private final String host;
+        private final int porta;
+        private final BlockingQueue<byte[]> fila = new LinkedBlockingQueue<>(capacidadeFila);
+        private final Thread thread;
+        private volatile Socket socket;
+        private OutputStream saida;
+        private volatile long ultimoUso;
+        private volatile long falhasSeguidas;
+
+        private Impressora(String chave, String host, int porta) {
+            this.chave = chave;
+            this.host = host;
+            this.porta = porta;
+            this.thread = new Thread(this::processarFila, "impressao-termica-" + chave);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        MetricasImpressora metricas() {
+            return new MetricasImpressora(chave, fila.size(), isAberta(), falhasSeguidas);
+        }
+
+        private void processarFila() {
+            while (ativo) {
+                try {
+                    byte[] dados = fila.poll(verificacaoMs, TimeUnit.MILLISECONDS);
+                    if (dados == null) {
+                        verificarSeOciosa();
+                    } else {
+                        enviarComRetentativas(dados);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    logger.error("Erro inesperado na fila da impressora {}", chave, e);
+                }
+            }
+        }
+
+        private void enviarComRetentativas(byte[] dados) throws InterruptedException {
+            long espera = esperaInicialMs;
+            for (int tentativa = 1; tentativa <= tentativas; tentativa++) {
+                try {
+                    enviar(dados);
+                    impressos.incrementAndGet();
+                    falhasSeguidas = 0;
+                    return;
+                } catch (IOException e) {
+                    fechar();
+                    logger.warn("Falha ao imprimir em {} (tentativa {}/{}): {}", chave, tentativa, tentativas,
+                            e.getMessage());
+                    if (tentativa < tentativas) {
+                        // Só esta impressora espera; as demais seguem nas suas threads
+                        Thread.sleep(espera);
+                        espera = Math.min(espera * 2, ESPERA_MAXIMA_MS);
+                    }
+                }
+            }
+
+            falhas.incrementAndGet();
+            falhasSeguidas++;
+            logger.error("Comprovante não impresso em {} após {} tentativas ({} na fila)", chave, tentativas,
+                    fila.size());
+        }
+
+        private void verificarSeOciosa() {
+            if (isAberta() && ultimoUso < System.currentTimeMillis() - verificacaoMs && !verificar()) {
+                logger.info("Conexão com impressora {} não respondeu; será reaberta no próximo envio", chave);
+                fechar();
+            }
+        }
+
+        boolean isAberta() {
+            Socket atual = socket;
+            return atual != null && !atual.isClosed();
+        }
+
+        void enviar(byte[] dados) throws IOException {
+            if (!isAberta()) {
+                abrir();
+            } else if (fechadaPelaImpressora()
+                    || (System.currentTimeMillis() - ultimoUso > verificacaoMs && !verificar())) {
+                fechar();
+                abrir();
+            }
+            saida.write(dados);
+            saida.flush();
+            ultimoUso = System.currentTimeMillis();
+        }
+
+        /**
+         * Indica se a impressora encerrou a conexão (reiniciada ou desligada): a primeira
+         * escrita num socket assim ainda "funciona" e o comprovante se perderia
+         */
+        private boolean fechadaPelaImpressora() {
+            try {
+                socket.setSoTimeout(1);
+                try {
+                    InputStream entrada = socket.getInputStream();
+                    int lido = 0;
+                    while (lido >= 0 && entrada.available() > 0) {
+                        lido = entrada.read();
+                    }
+                    return lido < 0 || entrada.read() < 0;
+                } finally {
+                    socket.setSoTimeout(timeoutMs);
+                }
+            } catch (SocketTimeoutException e) {
+                // Nada para ler: conexão viva
+                return false;
+            } catch (IOException e) {
+                return true;
+            }
+        }
+
+        /**
+         * Pede o status em tempo real (DLE EOT 1) e espera um byte de resposta
+         */
+        boolean verificar() {
+            try {
+                InputStream entrada = socket.getInputStream();
+                while (entrada.available() > 0) {
+                    entrada.read();
+                }
+                saida.write(STATUS_IMPRESSORA);
+                saida.flush();
+                boolean respondeu = entrada.read() >= 0;
+                ultimoUso = System.currentTimeMillis();
+                return respondeu;
+            } catch (IOException e) {
+                // Inclui SocketTimeoutException: a impressora não respondeu a tempo
+                return false;
+            }
+        }
+
+        private void abrir() throws IOException {
+            Socket novo = new Socket();
+            try {
+                novo.setKeepAlive(true);
+                novo.setTcpNoDelay(true);
+                novo.setSoTimeout(timeoutMs);
+                novo.connect(new InetSocketAddress(host, porta), timeoutMs);
+            } catch (IOException e) {
+                novo.close();
+                throw e;
+            }
+            socket = novo;
+            saida = novo.getOutputStream();
+            ultimoUso = System.currentTimeMillis();
+            logger.info("Conexão aberta com impressora {}", chave);
+        }
+
+        void fechar() {
+            Socket atual = socket;
+            if (atual != null) {
+                try {
+                    atual.close();
+                } catch (IOException e) {
+                    logger.debug("Erro ao fechar conexão com impressora {}", chave, e);
+                }
+            }
+            socket = null;
+            saida = null;
+        }
+    }
 }
@@ -2,8 +2,12 @@ package com.supermercado.service;
 
 import com.supermercado.model.LogAcao;
 import com.supermercado.model.Produto;
+import com.supermercado.model.ProdutoResumo;
+import com.supermercado.model.SaudeEstoque;
 import com.supermercado.model.Usuario;
+import com.supermercado.repository.EstoqueRepository;
 import com.supermercado.repository.ProdutoRepository;
+import com.supermercado.util.NormalizadorTexto;
 import com.supermercado.util.Validador;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,8 +15,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Service para lógica de negócio de Produto
@@ -21,15 +31,34 @@ import java.util.Optional;
 public class ProdutoService {
 
     private static final Logger logger = LoggerFactory.getLogger(ProdutoService.class);
+
+    /**
+     * Códigos por consulta IN na busca em lote (limita o tamanho do SQL e dos parâmetros)
+     */
+    private static final int LOTE_CONSULTA_CODIGOS = 500;
+
+    /**
+     * Máximo de produtos devolvidos pela busca por nome
+     */
+    private static final int LIMITE_BUSCA_NOME = 200;
+
     private final ProdutoRepository produtoRepository;
     private final LogService logService;
     private final UsuarioService usuarioService;
+    private final IndiceCatalogoService indiceCatalogo;
+    private final EstoqueRepository estoqueRepository;
+    private final VersaoCatalogoService versaoCatalogo;
 
     @Autowired
-    public ProdutoService(ProdutoRepository produtoRepository, LogService logService, UsuarioService usuarioService) {
+    public ProdutoService(ProdutoRepository produtoRepository, LogService logService, UsuarioService usuarioService,
+            IndiceCatalogoService indiceCatalogo, EstoqueRepository estoqueRepository,
+            VersaoCatalogoService versaoCatalogo) {
         this.produtoRepository = produtoRepository;
+        this.versaoCatalogo = versaoCatalogo;
+        this.estoqueRepository = estoqueRepository;
         this.logService = logService;
         this.usuarioService = usuarioService;
+        this.indiceCatalogo = indiceCatalogo;
     }
 
     /**
@@ -49,6 +78,8 @@ public class ProdutoService {
 
         try {
             Produto saved = produtoRepository.save(produto);
+            indiceCatalogo.atualizar(saved);
+            versaoCatalogo.incrementar();
             logger.info("Produto salvo com sucesso: ID {}", saved.getId());
             
             // Registra log
@@ -85,6 +116,8 @@ public class ProdutoService {
 
         try {
             Produto updated = produtoRepository.save(produto);
+            indiceCatalogo.atualizar(updated);
+            versaoCatalogo.incrementar();
             logger.info("Produto atualizado com sucesso: ID {}", updated.getId());
             
             // Registra log
@@ -113,6 +146,8 @@ public class ProdutoService {
             Produto p = produto.get();
             p.setAtivo(false);
             produtoRepository.save(p);
+            indiceCatalogo.atualizar(p);
+            versaoCatalogo.incrementar();
             logger.info("Produto desativado: ID {}", id);
             
             // Registra log
@@ -140,6 +175,63 @@ public class ProdutoService {
         return produtoRepository.findByCodigoBarras(codigoBarras);
     }
 
+    /**
+     * Busca o resumo do produto para o PDV: consulta o índice em memória e
+     * só vai ao banco quando o código não está indexado
+     */
+    public Optional<ProdutoResumo> buscarResumoPorCodigoBarras(String codigoBarras) {
+        Optional<ProdutoResumo> resumo = indiceCatalogo.buscarPorCodigoBarras(codigoBarras);
+        if (resumo.isPresent()) {
+            return resumo;
+        }
+
+        logger.debug("Código {} fora do índice, consultando banco", codigoBarras);
+        Optional<ProdutoResumo> doBanco = produtoRepository.findByCodigoBarras(codigoBarras).map(ProdutoResumo::de);
+        doBanco.ifPresent(indiceCatalogo::registrar);
+        return doBanco;
+    }
+
+    /**
+     * Resolve vários códigos de barras de uma vez: os que estão no índice em memória saem
+     * direto dele, os demais em consultas IN de até {@value #LOTE_CONSULTA_CODIGOS} códigos.
+     *
+     * @return resumos encontrados por código, na ordem recebida (códigos ausentes ficam de fora)
+     */
+    public Map<String, ProdutoResumo> buscarResumosPorCodigosBarras(Collection<String> codigos) {
+        Map<String, ProdutoResumo> encontrados = new LinkedHashMap<>();
+        List<String> foraDoIndice = new ArrayList<>();
+        for (String codigo : codigos) {
+            Optional<ProdutoResumo> resumo = indiceCatalogo.buscarPorCodigoBarras(codigo);
+            if (resumo.isPresent()) {
+                encontrados.put(codigo, resumo.get());
+            } else {
+                encontrados.put(codigo, null);
+                foraDoIndice.add(codigo);
+            }
+        }
+
+        for (int i = 0; i < foraDoIndice.size(); i += LOTE_CONSULTA_CODIGOS) {
+            List<String> lote = foraDoIndice.subList(i, Math.min(i + LOTE_CONSULTA_CODIGOS, foraDoIndice.size()));
+            for (ProdutoResumo resumo : produtoRepository.findResumosByCodigoBarrasIn(lote)) {
+                encontrados.put(resumo.codigoBarras(), resumo);
+                indiceCatalogo.registrar(resumo);
+            }
+        }
+        if (!foraDoIndice.isEmpty()) {
+            logger.debug("{} de {} códigos fora do índice, consultados no banco", foraDoIndice.size(), codigos.size());
+        }
+
+        encontrados.values().removeIf(Objects::isNull);
+        return encontrados;
+    }
+
+    /**
+     * Busca o resumo do produto pelo ID no índice do catálogo
+     */
+    public Optional<ProdutoResumo> buscarResumoPorId(Long id) {
+        return indiceCatalogo.buscarPorId(id);
+    }
+
     /**
      * Busca produtos ativos
      */
@@ -152,10 +244,34 @@ public class ProdutoService {
     }
 
     /**
-     * Busca produtos por nome
+     * Busca produtos ativos por trecho do nome, sem diferenciar acentos e maiúsculas, pelo
+     * índice de trigramas do catálogo (prefixos primeiro), com busca aproximada quando nada
+     * é encontrado. Até {@value #LIMITE_BUSCA_NOME} resultados; cai na consulta LIKE do banco
+     * (coluna nome_busca) enquanto o índice não estiver carregado.
      */
     public List<Produto> buscarPorNome(String nome) {
-        return produtoRepository.findByNomeContainingIgnoreCase(nome);
+        if (!indiceCatalogo.isCarregado()) {
+            return produtoRepository.findByNomeBuscaContendo(NormalizadorTexto.normalizar(nome));
+        }
+
+        List<ProdutoResumo> resumos = buscarResumosPorNome(nome, LIMITE_BUSCA_NOME);
+        List<Long> ids = resumos.stream().map(ProdutoResumo::id).toList();
+        Map<Long, Produto> porId = produtoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Produto::getId, p -> p));
+        return ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Busca por trecho do nome só na memória (resumos), para telas de pesquisa incremental.
+     * Sem resultado exato, devolve os produtos com nomes a até duas edições do termo.
+     */
+    public List<ProdutoResumo> buscarResumosPorNome(String nome, int limite) {
+        List<ProdutoResumo> resumos = indiceCatalogo.buscarPorNome(nome, limite);
+        if (resumos.isEmpty()) {
+            // Nada encontrado: tenta corrigir erros de digitação
+            resumos = indiceCatalogo.buscarPorNomeAproximado(nome, limite);
+        }
+        return resumos;
     }
 
     /**
@@ -165,6 +281,20 @@ public class ProdutoService {
         return produtoRepository.findComEstoqueBaixo();
     }
 
+    /**
+     * Situação do estoque dos produtos ativos por categoria (somente contagens)
+     */
+    public List<SaudeEstoque> saudeEstoquePorCategoria() {
+        return produtoRepository.contarSaudeEstoquePorCategoria();
+    }
+
+    /**
+     * Situação do estoque do catálogo inteiro
+     */
+    public SaudeEstoque saudeEstoque() {
+        return SaudeEstoque.somar(produtoRepository.contarSaudeEstoquePorCategoria());
+    }
+
     /**
      * Atualiza estoque do produto
      */
@@ -186,7 +316,69 @@ public class ProdutoService {
         }
 
         produtoRepository.save(produto);
+        indiceCatalogo.atualizar(produto);
+        versaoCatalogo.incrementar();
         logger.info("Estoque atualizado para produto ID {}: nova quantidade {}",
                 produtoId, produto.getQuantidadeEstoque());
     }
+
+    /**
+     * Baixa o estoque de vários produtos com um único lote de UPDATEs condicionais.
+     * Se algum produto não tiver estoque suficiente, nenhuma baixa é aplicada.
+     *
+     * @param quantidades quantidade a baixar por ID de produto (ordenado por ID)
+     */
+    @Transactional
+    public void baixarEstoqueEmLote(Map<Long, Integer> quantidades) {
+        logger.debug("Baixando estoque em lote: {} produtos", quantidades.size());
+
+        List<Long> falhas = estoqueRepository.baixarEstoque(quantidades);
+        if (!falhas.isEmpty()) {
+            String produtos = falhas.stream()
+                    .map(id -> indiceCatalogo.buscarPorId(id).map(ProdutoResumo::nome).orElse("ID " + id))
+                    .collect(Collectors.joining(", "));
+            logger.warn("Baixa de estoque recusada para produtos: {}", falhas);
+            throw new IllegalStateException("Estoque insuficiente para: " + produtos);
+        }
+
+        quantidades.forEach((id, quantidade) -> indiceCatalogo.ajustarEstoque(id, -quantidade));
+        versaoCatalogo.incrementar();
+        logger.info("Estoque baixado em lote para {} produtos", quantidades.size());
+    }
+
+    /**
+     * Baixa o estoque de uma venda vinda do diário local, sem recusar por saldo.
+     * No índice, a reserva feita quando a venda entrou no diário é encerrada após o commit.
+     */
+    @Transactional
+    public void baixarEstoqueSemValidacao(Map<Long, Integer> quantidades) {
+        estoqueRepository.baixarEstoqueIncondicional(quantidades);
+        quantidades.forEach(indiceCatalogo::confirmarReserva);
+        versaoCatalogo.incrementar();
+
+        for (Map.Entry<Long, Integer> entrada : quantidades.entrySet()) {
+            indiceCatalogo.buscarPorId(entrada.getKey())
+                    .filter(resumo -> resumo.quantidadeEstoque() < 0)
+                    .ifPresent(resumo -> logger.warn("Estoque negativo após replicação de venda: {} ({})",
+                            resumo.nome(), resumo.quantidadeEstoque()));
+        }
+    }
+
+    /**
+     * Reserva no índice em memória o estoque de uma venda gravada no diário local,
+     * antes de a baixa chegar ao banco
+     */
+    public void reservarEstoqueEmMemoria(Map<Long, Integer> quantidades) {
+        quantidades.forEach(indiceCatalogo::reservarEstoque);
+        versaoCatalogo.incrementar();
+    }
+
+    /**
+     * Devolve ao índice em memória o estoque reservado por uma venda do diário que não vai
+     * chegar ao banco (descartada na replicação)
+     */
+    public void liberarEstoqueEmMemoria(Map<Long, Integer> quantidades) {
+        quantidades.forEach(indiceCatalogo::liberarReserva);
+        versaoCatalogo.incrementar();
+    }
 }
@@ -0,0 +1,331 @@
+package com.supermercado.service;
+
+import com.supermercado.model.ItemVenda;
+import com.supermercado.model.ProdutoResumo;
+import com.supermercado.model.Venda;
+import com.supermercado.util.SpaceSaving;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranking dos produtos mais vendidos, em memória, por ID do produto.
+ *
+ * As quantidades vendidas entram em sketches Space-Saving de uma hora cada, num anel de
+ * 168 horas (7 dias). As janelas (hora corrente, hoje, últimos 7 dias) são a junção das
+ * horas correspondentes; o resultado de cada janela fica em cache até a próxima venda.
+ * O anel é gravado periodicamente em arquivo e recarregado na inicialização; sem arquivo,
+ * é populado com os itens vendidos nos últimos 7 dias. Carrega antes da replicação do
+ * diário de vendas começar, para não contar duas vezes as vendas replicadas.
+ */
+@Service
+public class RankingVendasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RankingVendasService.class);
+
+    private static final int HORAS = 168;
+    private static final int VERSAO_ARQUIVO = 1;
+    private static final long MS_POR_HORA = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Janela de tempo do ranking (granularidade de uma hora)
+     */
+    public enum Janela {
+        ULTIMA_HORA, HOJE, SETE_DIAS
+    }
+
+    /**
+     * Produto no ranking: quantidade estimada e erro máximo da estimativa
+     */
+    public record ProdutoRanking(Long produtoId, String nome, long quantidade, long erroMaximo) {
+    }
+
+    private final IndiceCatalogoService indiceCatalogo;
+    private final JdbcTemplate jdbcTemplate;
+    private final int capacidade;
+    private final File arquivo;
+    private final long intervaloSnapshotMs;
+
+    private final SpaceSaving[] horas = new SpaceSaving[HORAS];
+    private final long[] horaDoBalde = new long[HORAS];
+    private final Map<Janela, List<SpaceSaving.Entrada>> cache = new EnumMap<>(Janela.class);
+    private final Map<Janela, Long> horaDoCache = new EnumMap<>(Janela.class);
+    private boolean alterado;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ranking-vendas");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RankingVendasService(IndiceCatalogoService indiceCatalogo, JdbcTemplate jdbcTemplate,
+            @Value("${ranking.capacidade:200}") int capacidade,
+            @Value("${ranking.arquivo:dados/ranking-vendas.dat}") String arquivo,
+            @Value("${ranking.snapshot.intervalo-ms:60000}") long intervaloSnapshotMs) {
+        this.indiceCatalogo = indiceCatalogo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.capacidade = capacidade;
+        this.arquivo = new File(arquivo);
+        this.intervaloSnapshotMs = intervaloSnapshotMs;
+        for (int i = 0; i < HORAS; i++) {
+            horas[i] = new SpaceSaving(capacidade);
+            horaDoBalde[i] = -1;
+        }
+    }
+
+    /**
+     * Restaura o ranking (arquivo ou banco) e agenda a gravação periódica
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void iniciar() {
+        if (!carregarArquivo()) {
+            carregarDoBanco();
+        }
+        executor.scheduleWithFixedDelay(this::gravarSeAlterado, intervaloSnapshotMs, intervaloSnapshotMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+        gravarSeAlterado();
+    }
+
+    /**
+     * Soma os itens de uma venda finalizada ao ranking
+     */
+    public synchronized void registrar(Venda venda) {
+        long hora = horaEpoch(venda.getDataVenda());
+        SpaceSaving balde = balde(hora);
+        if (balde == null) {
+            return;
+        }
+        for (ItemVenda item : venda.getItens()) {
+            balde.adicionar(item.getProduto().getId(), item.getQuantidade());
+        }
+        invalidar();
+    }
+
+    /**
+     * Retira do ranking os itens de uma venda cancelada
+     */
+    public synchronized void remover(Venda venda) {
+        long hora = horaEpoch(venda.getDataVenda());
+        SpaceSaving balde = balde(hora);
+        if (balde == null) {
+            return;
+        }
+        for (ItemVenda item : venda.getItens()) {
+            balde.remover(item.getProduto().getId(), item.getQuantidade());
+        }
+        invalidar();
+    }
+
+    /**
+     * Os produtos mais vendidos na janela. Resultado em cache até a próxima venda
+     * ou a virada da hora.
+     */
+    public List<ProdutoRanking> topo(Janela janela, int limite) {
+        List<SpaceSaving.Entrada> entradas;
+        synchronized (this) {
+            long agora = horaEpoch(System.currentTimeMillis());
+            entradas = cache.get(janela);
+            if (entradas == null || horaDoCache.get(janela) != agora) {
+                entradas = calcular(janela, agora);
+                cache.put(janela, entradas);
+                horaDoCache.put(janela, agora);
+            }
+        }
+
+        int n = Math.min(limite, entradas.size());
+        List<ProdutoRanking> resultado = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            SpaceSaving.Entrada e = entradas.get(i);
+            String nome = indiceCatalogo.buscarPorId(e.chave()).map(ProdutoResumo::nome).orElse("ID " + e.chave());
+            resultado.add(new ProdutoRanking(e.chave(), nome, e.contagem(), e.erro()));
+        }
+        return resultado;
+    }
+
+    private List<SpaceSaving.Entrada> calcular(Janela janela, long agora) {
+        long primeiraHora = switch (janela) {
+            case ULTIMA_HORA -> agora;
+            case HOJE -> horaEpoch(LocalDate.now().atStartOfDay());
+            case SETE_DIAS -> agora - HORAS + 1;
+        };
+
+        SpaceSaving juncao = new SpaceSaving(capacidade);
+        for (long hora = primeiraHora; hora <= agora; hora++) {
+            int i = (int) Math.floorMod(hora, (long) HORAS);
+            if (horaDoBalde[i] == hora) {
+                juncao.mesclar(horas[i]);
+            }
+        }
+        return juncao.topo(capacidade);
+    }
+
+    /**
+     * Balde da hora, reciclando o que guardava uma hora de mais de 7 dias atrás.
+     * Retorna null para horas fora do anel.
+     */
+    private SpaceSaving balde(long hora) {
+        long agora = horaEpoch(System.currentTimeMillis());
+        if (hora <= agora - HORAS || hora > agora + 1) {
+            return null;
+        }
+        int i = (int) Math.floorMod(hora, (long) HORAS);
+        if (horaDoBalde[i] != hora) {
+            horas[i].limpar();
+            horaDoBalde[i] = hora;
+        }
+        return horas[i];
+    }
+
+    private void invalidar() {
+        cache.clear();
+        alterado = true;
+    }
+
+    // ================== Persistência ==================
+
+    private void gravarSeAlterado() {
+        List<long[]> linhas = new ArrayList<>();
+        synchronized (this) {
+            if (!alterado) {
+                return;
+            }
+            for (int i = 0; i < HORAS; i++) {
+                if (horaDoBalde[i] < 0 || horas[i].isEmpty()) {
+                    continue;
+                }
+                for (SpaceSaving.Entrada e : horas[i].entradas()) {
+                    linhas.add(new long[] { horaDoBalde[i], e.chave(), e.contagem(), e.erro() });
+                }
+                // O piso vai numa linha de chave 0 (reservada no sketch)
+                if (horas[i].getPiso() > 0) {
+                    linhas.add(new long[] { horaDoBalde[i], 0L, horas[i].getPiso(), 0L });
+                }
+            }
+            alterado = false;
+        }
+
+        File temporario = new File(arquivo.getPath() + ".tmp");
+        try {
+            File diretorio = arquivo.getAbsoluteFile().getParentFile();
+            if (diretorio != null && !diretorio.exists()) {
+                diretorio.mkdirs();
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temporario)))) {
+                out.writeInt(VERSAO_ARQUIVO);
+                out.writeInt(linhas.size());
+                for (long[] linha : linhas) {
+                    for (long valor : linha) {
+                        out.writeLong(valor);
+                    }
+                }
+            }
+            Files.move(temporario.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Ranking de vendas gravado: {} entradas", linhas.size());
+        } catch (IOException e) {
+            synchronized (this) {
+                alterado = true;
+            }
+            logger.warn("Erro ao gravar ranking de vendas em {}: {}", arquivo.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    private boolean carregarArquivo() {
+        if (!arquivo.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo)))) {
+            if (in.readInt() != VERSAO_ARQUIVO) {
+                return false;
+            }
+            int quantidade = in.readInt();
+            synchronized (this) {
+                for (int i = 0; i < quantidade; i++) {
+                    long hora = in.readLong();
+                    SpaceSaving.Entrada entrada = new SpaceSaving.Entrada(in.readLong(), in.readLong(), in.readLong());
+                    SpaceSaving balde = balde(hora);
+                    if (balde == null) {
+                        continue;
+                    }
+                    if (entrada.chave() == 0L) {
+                        balde.restaurarPiso(entrada.contagem());
+                    } else {
+                        balde.restaurar(entrada);
+                    }
+                }
+                cache.clear();
+            }
+            logger.info("Ranking de vendas restaurado de {}: {} entradas", arquivo.getPath(), quantidade);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Arquivo de ranking de vendas inválido, recarregando do banco: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void carregarDoBanco() {
+        LocalDateTime inicio = LocalDateTime.now().minusHours(HORAS - 1);
+        List<Object[]> linhas = jdbcTemplate.query(
+                "SELECT date_trunc('hour', v.data_venda), iv.produto_id, SUM(iv.quantidade) " +
+                        "FROM itens_venda iv JOIN vendas v ON v.id = iv.venda_id " +
+                        "WHERE v.status = 'FINALIZADA' AND v.data_venda >= ? GROUP BY 1, 2",
+                (rs, i) -> new Object[] { rs.getTimestamp(1), rs.getLong(2), rs.getLong(3) },
+                Timestamp.valueOf(inicio));
+
+        synchronized (this) {
+            for (Object[] linha : linhas) {
+                SpaceSaving balde = balde(horaEpoch(((Timestamp) linha[0]).toLocalDateTime()));
+                if (balde != null) {
+                    balde.adicionar((Long) linha[1], (Long) linha[2]);
+                }
+            }
+            invalidar();
+        }
+        logger.info("Ranking de vendas carregado do banco: {} linhas dos últimos 7 dias", linhas.size());
+    }
+
+    private static long horaEpoch(LocalDateTime dataHora) {
+        LocalDateTime referencia = dataHora != null ? dataHora : LocalDateTime.now();
+        return horaEpoch(referencia.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private static long horaEpoch(long epochMs) {
+        return Math.floorDiv(epochMs, MS_POR_HORA);
+    }
+}
@@ -5,54 +5,98 @@ import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
-import com.supermercado.model.Venda;
-import com.supermercado.repository.VendaRepository;
+import com.supermercado.repository.VendaAgregadaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.File;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 
 @Service
 public class RelatorioService {
 
+    /**
+     * Linhas lidas do banco por ida ao servidor (cursor do PostgreSQL)
+     */
+    private static final int TAMANHO_LOTE_CURSOR = 500;
+
+    /**
+     * Linhas da tabela do PDF acumuladas antes de descarregar no arquivo
+     */
+    private static final int LINHAS_POR_FLUSH = 200;
+
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter FORMATO_DATA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private static final String SQL_VENDAS_PERIODO = "SELECT id, data_venda, status, total FROM vendas " +
+            "WHERE data_venda BETWEEN ? AND ? ORDER BY data_venda DESC";
+
+    @Autowired
+    private VendaAgregadaRepository vendaAgregadaRepository;
+
     @Autowired
-    private VendaRepository vendaRepository;
+    private JdbcTemplate jdbcTemplate;
 
+    /**
+     * Gera o relatório financeiro do período em modo streaming: as vendas são lidas por
+     * cursor (apenas id, data, status e total, sem entidades) e a tabela do PDF é gravada
+     * em partes, de modo que a memória usada não depende do tamanho do período.
+     * A transação somente leitura é necessária para o driver usar o cursor (fetch size).
+     */
+    @Transactional(readOnly = true)
     public void gerarRelatorioFinanceiro(LocalDateTime inicio, LocalDateTime fim, String destPath) throws Exception {
-        List<Venda> vendas = vendaRepository.findByDataVendaBetweenOrderByDataVendaDesc(inicio, fim);
-        BigDecimal total = vendaRepository.calcularTotalPeriodo(inicio, fim);
+        BigDecimal total = vendaAgregadaRepository.somarTotal(inicio, fim);
 
-        PdfWriter writer = new PdfWriter(destPath);
+        PdfWriter writer = new PdfWriter(new BufferedOutputStream(new FileOutputStream(destPath)));
         PdfDocument pdf = new PdfDocument(writer);
         Document document = new Document(pdf);
 
-        document.add(new Paragraph("Relatório Financeiro de Vendas").setFontSize(20).setBold());
-        document.add(new Paragraph("Período: " + inicio.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")) +
-                " a " + fim.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))));
-        document.add(new Paragraph("\n"));
-
-        float[] columnWidths = { 1, 3, 2, 2 };
-        Table table = new Table(columnWidths);
-        table.addHeaderCell("ID");
-        table.addHeaderCell("Data");
-        table.addHeaderCell("Status");
-        table.addHeaderCell("Total");
-
-        for (Venda venda : vendas) {
-            table.addCell(venda.getId().toString());
-            table.addCell(venda.getDataVenda().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
-            table.addCell(venda.getStatus().toString());
-            table.addCell("R$ " + venda.getTotal().toString());
-        }
+        try {
+            document.add(new Paragraph("Relatório Financeiro de Vendas").setFontSize(20).setBold());
+            document.add(new Paragraph("Período: " + inicio.format(FORMATO_DATA) + " a " + fim.format(FORMATO_DATA)));
+            document.add(new Paragraph("\n"));
+
+            float[] columnWidths = { 1, 3, 2, 2 };
+            Table table = new Table(columnWidths, true);
+            table.addHeaderCell("ID");
+            table.addHeaderCell("Data");
+            table.addHeaderCell("Status");
+            table.addHeaderCell("Total");
+            document.add(table);
+
+            int[] linhas = { 0 };
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SQL_VENDAS_PERIODO,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(TAMANHO_LOTE_CURSOR);
+                ps.setTimestamp(1, Timestamp.valueOf(inicio));
+                ps.setTimestamp(2, Timestamp.valueOf(fim));
+                return ps;
+            }, rs -> {
+                table.addCell(String.valueOf(rs.getLong("id")));
+                table.addCell(rs.getTimestamp("data_venda").toLocalDateTime().format(FORMATO_DATA_HORA));
+                table.addCell(rs.getString("status"));
+                table.addCell("R$ " + rs.getBigDecimal("total").toString());
 
-        document.add(table);
-        document.add(new Paragraph("\n"));
-        document.add(new Paragraph("Total do Período: R$ " + total.toString()).setBold().setFontSize(16));
+                if (++linhas[0] % LINHAS_POR_FLUSH == 0) {
+                    table.flush();
+                }
+            });
 
-        document.close();
+            table.complete();
+
+            document.add(new Paragraph("\n"));
+            document.add(new Paragraph("Total do Período: R$ " + total.toString()).setBold().setFontSize(16));
+        } finally {
+            document.close();
+        }
     }
 }
@@ -0,0 +1,222 @@
+package com.supermercado.service;
+
+import com.supermercado.model.ItemVenda;
+import com.supermercado.model.Venda;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionTimedOutException;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Leva ao banco as vendas gravadas no diário local, em ordem e uma de cada vez.
+ * Roda a cada intervalo e também logo após cada nova venda no diário. Em falhas
+ * transitórias (conexão, timeout, deadlock) espera cada vez mais (até um limite) e tenta
+ * de novo a mesma venda; em falhas definitivas (chave estrangeira, restrição, dado inválido)
+ * a venda é descartada no diário, para correção manual, e a fila segue.
+ */
+@Service
+public class ReplicacaoVendaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicacaoVendaService.class);
+    private static final long ESPERA_MAXIMA_MS = 60_000;
+    // Classes de SQLSTATE que indicam falha passageira: conexão, serialização/deadlock,
+    // recursos insuficientes, intervenção do operador e erro de sistema
+    private static final Set<String> CLASSES_SQLSTATE_TRANSITORIAS = Set.of("08", "40", "53", "57", "58");
+
+    private final DiarioVendaService diarioVenda;
+    private final VendaService vendaService;
+    private final ProdutoService produtoService;
+    private final long intervaloMs;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replicacao-vendas");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean agendado = new AtomicBoolean();
+    private volatile long proximaTentativa;
+    private long espera;
+
+    public ReplicacaoVendaService(DiarioVendaService diarioVenda, VendaService vendaService,
+            ProdutoService produtoService,
+            @Value("${vendas.diario.replicacao.intervalo-ms:1000}") long intervaloMs) {
+        this.diarioVenda = diarioVenda;
+        this.vendaService = vendaService;
+        this.produtoService = produtoService;
+        this.intervaloMs = intervaloMs;
+    }
+
+    /**
+     * Inicia a replicação depois que o índice do catálogo foi carregado
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!diarioVenda.isHabilitado()) {
+            return;
+        }
+
+        reservarRecuperados();
+
+        diarioVenda.aoRegistrar(this::acordar);
+        executor.scheduleWithFixedDelay(this::replicarPendentes, 0, intervaloMs, TimeUnit.MILLISECONDS);
+        logger.info("Replicação do diário de vendas iniciada (intervalo {} ms)", intervaloMs);
+    }
+
+    /**
+     * Reserva no índice (carregado do banco) o estoque das vendas pendentes de execuções
+     * anteriores. Uma venda pode ter chegado ao banco sem ter sido marcada como replicada
+     * (queda entre o commit e a marcação): a baixa dela já está no índice, então ela só é
+     * marcada, sem reservar de novo.
+     */
+    private void reservarRecuperados() {
+        Map<String, DiarioVendaService.Registro> recuperados = new LinkedHashMap<>();
+        Map<String, Venda> vendas = new HashMap<>();
+        for (DiarioVendaService.Registro registro : diarioVenda.listarPendentes()) {
+            if (registro.isRecuperado()) {
+                Venda venda = diarioVenda.lerVenda(registro);
+                recuperados.put(venda.getChaveIdempotencia(), registro);
+                vendas.put(venda.getChaveIdempotencia(), venda);
+            }
+        }
+        if (recuperados.isEmpty()) {
+            return;
+        }
+
+        Set<String> gravadas = vendaService.filtrarChavesGravadas(recuperados.keySet());
+        for (Map.Entry<String, DiarioVendaService.Registro> recuperado : recuperados.entrySet()) {
+            if (gravadas.contains(recuperado.getKey())) {
+                // Fora da ordem, a marcação fica para a replicação, que acha a venda já gravada
+                diarioVenda.marcarReplicado(recuperado.getValue());
+            } else {
+                produtoService.reservarEstoqueEmMemoria(quantidades(vendas.get(recuperado.getKey())));
+            }
+        }
+        if (!gravadas.isEmpty()) {
+            logger.info("{} vendas do diário já estavam no banco e foram marcadas como replicadas", gravadas.size());
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Agenda uma rodada imediata, sem empilhar rodadas repetidas
+     */
+    private void acordar() {
+        if (agendado.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    agendado.set(false);
+                    replicarPendentes();
+                });
+            } catch (RuntimeException e) {
+                agendado.set(false);
+            }
+        }
+    }
+
+    private void replicarPendentes() {
+        if (System.currentTimeMillis() < proximaTentativa) {
+            return;
+        }
+
+        DiarioVendaService.Registro registro;
+        while ((registro = diarioVenda.proximoPendente()) != null) {
+            Venda venda = null;
+            try {
+                venda = diarioVenda.lerVenda(registro);
+                Venda gravada = vendaService.replicarVendaDoDiario(venda);
+                diarioVenda.marcarReplicado(registro);
+                logger.debug("Venda {} replicada: ID {}", venda.getChaveIdempotencia(), gravada.getId());
+                espera = 0;
+            } catch (RuntimeException e) {
+                if (!isFalhaTransitoria(e)) {
+                    descartar(registro, venda, e);
+                    continue;
+                }
+                espera = espera == 0 ? intervaloMs : Math.min(espera * 2, ESPERA_MAXIMA_MS);
+                proximaTentativa = System.currentTimeMillis() + espera;
+                logger.warn("Falha ao replicar venda do diário; nova tentativa em {} ms: {}", espera, e.getMessage());
+                return;
+            }
+        }
+
+        diarioVenda.compactarSeNecessario();
+    }
+
+    /**
+     * Tira a venda da fila (ela fica no diário como descartada) e devolve ao índice o estoque
+     * que ela reservava, pois a baixa nunca vai chegar ao banco
+     */
+    private void descartar(DiarioVendaService.Registro registro, Venda venda, RuntimeException e) {
+        diarioVenda.marcarDescartado(registro);
+        if (venda != null) {
+            produtoService.liberarEstoqueEmMemoria(quantidades(venda));
+        }
+        logger.error("Venda {} recusada pelo banco de forma definitiva; descartada da replicação e mantida no "
+                + "diário para correção manual ({} descartadas)",
+                venda != null ? venda.getChaveIdempotencia() : "ilegível", diarioVenda.getMetricas().descartadas(), e);
+    }
+
+    /**
+     * Indica se a falha tende a passar sozinha (banco fora do ar, conexão perdida, timeout,
+     * deadlock), caso em que vale tentar de novo a mesma venda
+     */
+    static boolean isFalhaTransitoria(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof TransientDataAccessException
+                    || causa instanceof RecoverableDataAccessException
+                    || causa instanceof DataAccessResourceFailureException
+                    || causa instanceof CannotCreateTransactionException
+                    || causa instanceof TransactionTimedOutException
+                    || causa instanceof SQLTransientException
+                    || causa instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (causa instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().length() >= 2
+                    && CLASSES_SQLSTATE_TRANSITORIAS.contains(sql.getSQLState().substring(0, 2))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<Long, Integer> quantidades(Venda venda) {
+        Map<Long, Integer> quantidades = new TreeMap<>();
+        for (ItemVenda item : venda.getItens()) {
+            quantidades.merge(item.getProduto().getId(), item.getQuantidade(), Integer::sum);
+        }
+        return quantidades;
+    }
+}
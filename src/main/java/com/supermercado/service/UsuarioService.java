@@ -2,7 +2,6 @@ package com.supermercado.service;
 
 import com.supermercado.model.LogAcao;
 import com.supermercado.model.Usuario;
-import com.supermercado.repository.LogAcaoRepository;
 import com.supermercado.repository.UsuarioRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,14 +22,14 @@ public class UsuarioService {
     private static final Logger logger = LoggerFactory.getLogger(UsuarioService.class);
 
     private final UsuarioRepository usuarioRepository;
-    private final LogAcaoRepository logAcaoRepository;
+    private final LogService logService;
 
     private static Usuario usuarioLogado;
 
     @Autowired
-    public UsuarioService(UsuarioRepository usuarioRepository, LogAcaoRepository logAcaoRepository) {
+    public UsuarioService(UsuarioRepository usuarioRepository, LogService logService) {
         this.usuarioRepository = usuarioRepository;
-        this.logAcaoRepository = logAcaoRepository;
+        this.logService = logService;
     }
 
     /**
@@ -145,15 +144,9 @@ public class UsuarioService {
     /**
      * Registra log de ação
      */
-    @Transactional
     public void registrarLog(Usuario usuario, LogAcao.TipoAcao acao, String entidade,
             Long entidadeId, String descricao) {
-        try {
-            LogAcao log = new LogAcao(usuario, acao, entidade, entidadeId, descricao);
-            logAcaoRepository.save(log);
-        } catch (Exception e) {
-            logger.error("Erro ao registrar log", e);
-        }
+        logService.registrarLog(usuario, acao, entidade, entidadeId, descricao);
     }
 
     /**
@@ -1,21 +1,32 @@
 package com.supermercado.service;
 
 import com.supermercado.model.*;
+import com.supermercado.repository.VendaAgregadaRepository;
 import com.supermercado.repository.VendaRepository;
 import com.supermercado.util.Validador;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 
 /**
  * Service para lógica de negócio de Venda
@@ -24,15 +35,32 @@ import java.util.Optional;
 public class VendaService {
 
     private static final Logger logger = LoggerFactory.getLogger(VendaService.class);
+    private static final int LOTE_CONSULTA_CHAVES = 500;
+
     private final VendaRepository vendaRepository;
     private final ProdutoService produtoService;
     private final LogService logService;
+    private final DiarioVendaService diarioVenda;
+    private final TransactionTemplate transactionTemplate;
+    private final VendaAgregadaRepository vendaAgregadaRepository;
+    private final RankingVendasService rankingVendas;
+    private final UsuarioService usuarioService;
+    private final EventosVendaService eventosVenda;
 
     @Autowired
-    public VendaService(VendaRepository vendaRepository, ProdutoService produtoService, LogService logService) {
+    public VendaService(VendaRepository vendaRepository, ProdutoService produtoService, LogService logService,
+            DiarioVendaService diarioVenda, TransactionTemplate transactionTemplate,
+            VendaAgregadaRepository vendaAgregadaRepository, RankingVendasService rankingVendas,
+            UsuarioService usuarioService, EventosVendaService eventosVenda) {
+        this.usuarioService = usuarioService;
+        this.eventosVenda = eventosVenda;
         this.vendaRepository = vendaRepository;
         this.produtoService = produtoService;
         this.logService = logService;
+        this.diarioVenda = diarioVenda;
+        this.transactionTemplate = transactionTemplate;
+        this.vendaAgregadaRepository = vendaAgregadaRepository;
+        this.rankingVendas = rankingVendas;
     }
 
     /**
@@ -49,22 +77,24 @@ public class VendaService {
     }
 
     /**
-     * Adiciona item à venda
+     * Adiciona item à venda. Se o produto já estiver na venda, soma a quantidade na mesma linha.
+     *
+     * @return a linha da venda incluída ou atualizada
      */
-    public void adicionarItem(Venda venda, String codigoBarras, int quantidade) {
+    public ItemVenda adicionarItem(Venda venda, String codigoBarras, int quantidade) {
         logger.debug("Adicionando item à venda: código {}, quantidade {}", codigoBarras, quantidade);
 
         if (venda.getStatus() != Venda.StatusVenda.ABERTA) {
             throw new IllegalStateException("Não é possível adicionar itens a uma venda finalizada ou cancelada");
         }
 
-        // Busca o produto
-        Optional<Produto> optProduto = produtoService.buscarPorCodigoBarras(codigoBarras);
+        // Busca o produto no índice do catálogo
+        Optional<ProdutoResumo> optProduto = produtoService.buscarResumoPorCodigoBarras(codigoBarras);
         if (optProduto.isEmpty()) {
             throw new IllegalArgumentException("Produto não encontrado: " + codigoBarras);
         }
 
-        Produto produto = optProduto.get();
+        Produto produto = optProduto.get().paraProduto();
 
         if (!produto.getAtivo()) {
             throw new IllegalStateException("Produto inativo: " + produto.getNome());
@@ -78,27 +108,25 @@ public class VendaService {
         }
 
         // Verifica se produto já está na venda
-        Optional<ItemVenda> itemExistente = venda.getItens().stream()
-                .filter(i -> i.getCodigoBarras().equals(codigoBarras))
-                .findFirst();
+        ItemVenda item = venda.buscarItem(codigoBarras);
 
-        if (itemExistente.isPresent()) {
+        if (item != null) {
             // Atualiza quantidade
-            ItemVenda item = itemExistente.get();
             int novaQuantidade = item.getQuantidade() + quantidade;
 
             if (produto.getQuantidadeEstoque() < novaQuantidade) {
                 throw new IllegalStateException("Estoque insuficiente para a quantidade total");
             }
 
-            item.setQuantidade(novaQuantidade);
+            venda.alterarQuantidadeItem(item, novaQuantidade);
         } else {
             // Adiciona novo item
-            ItemVenda novoItem = new ItemVenda(produto, quantidade);
-            venda.adicionarItem(novoItem);
+            item = new ItemVenda(produto, quantidade);
+            venda.adicionarItem(item);
         }
 
         logger.info("Item adicionado à venda: {}", produto.getNome());
+        return item;
     }
 
     /**
@@ -126,15 +154,16 @@ public class VendaService {
         }
 
         venda.setDescontoPercentual(percentual);
-        venda.recalcularTotais();
+        venda.atualizarTotais();
 
         logger.info("Desconto aplicado: {}%", percentual);
     }
 
     /**
-     * Finaliza a venda
+     * Finaliza a venda. Com o diário de vendas habilitado, a venda é gravada no diário local
+     * e retorna sem esperar o banco (a gravação é feita pelo ReplicacaoVendaService);
+     * sem o diário, ou se ele falhar, é gravada diretamente no banco.
      */
-    @Transactional
     public Venda finalizarVenda(Venda venda, String formaPagamento, BigDecimal valorPago) {
         logger.debug("Finalizando venda");
 
@@ -148,17 +177,175 @@ public class VendaService {
             throw new IllegalArgumentException("Valor pago insuficiente");
         }
 
-        // Finaliza a venda
+        if (!venda.isTotaisConsistentes()) {
+            logger.warn("Subtotal acumulado divergente da soma dos itens; reconciliando antes de finalizar");
+        }
+
+        // Quantidades por produto, ordenadas por ID para evitar deadlocks na baixa
+        Map<Long, Integer> quantidades = agruparQuantidades(venda);
+
+        if (diarioVenda.isHabilitado()) {
+            verificarEstoqueNoIndice(quantidades);
+        }
+
+        // Finaliza a venda (reconcilia os totais com a soma completa dos itens)
         venda.finalizar(formaPagamento, valorPago);
+        if (venda.getChaveIdempotencia() == null) {
+            venda.setChaveIdempotencia(UUID.randomUUID().toString());
+        }
+
+        if (diarioVenda.isHabilitado()) {
+            if (venda.getDataVenda() == null) {
+                venda.setDataVenda(LocalDateTime.now());
+            }
+            try {
+                diarioVenda.registrar(venda);
+                produtoService.reservarEstoqueEmMemoria(quantidades);
+                logger.info("Venda finalizada e gravada no diário: {}, Total: {}",
+                        venda.getIdentificacao(), venda.getTotal());
+                eventosVenda.publicarFinalizada(venda);
+                return venda;
+            } catch (RuntimeException e) {
+                logger.error("Falha ao gravar venda no diário; gravando diretamente no banco", e);
+            }
+        }
+
+        Venda vendaSalva = transactionTemplate.execute(status -> persistirVendaFinalizada(venda, quantidades, true));
+        eventosVenda.publicarFinalizada(vendaSalva);
+        return vendaSalva;
+    }
+
+    /**
+     * Registra uma venda completa recebida pela API (caixas remotos e autoatendimento).
+     * Idempotente pela chave do cliente: um reenvio devolve a venda já gravada. Os itens são
+     * conferidos com o catálogo (produto ativo, preço e estoque) e a venda é gravada direto no
+     * banco em uma transação: inserts dos itens em lote e baixa de estoque em um único lote de UPDATEs.
+     *
+     * @return a venda gravada e se ela já existia (reenvio)
+     */
+    public VendaRegistrada registrarVendaRemota(PedidoVenda pedido) {
+        if (pedido.chaveIdempotencia() == null || pedido.chaveIdempotencia().isBlank()) {
+            throw new IllegalArgumentException("Chave de idempotência é obrigatória");
+        }
+        if (pedido.itens() == null || pedido.itens().isEmpty()) {
+            throw new IllegalArgumentException("A venda deve ter pelo menos um item");
+        }
+        if (pedido.valorPago() == null) {
+            throw new IllegalArgumentException("Valor pago é obrigatório");
+        }
+
+        Optional<VendaRegistrada> repetida = buscarVendaRegistrada(pedido.chaveIdempotencia());
+        if (repetida.isPresent()) {
+            return repetida.get();
+        }
+
+        if (pedido.usuarioId() == null) {
+            throw new IllegalArgumentException("Usuário é obrigatório");
+        }
+        Usuario usuario = usuarioService.buscarPorId(pedido.usuarioId())
+                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado: ID " + pedido.usuarioId()));
+
+        Venda venda = new Venda();
+        venda.setUsuario(usuario);
+        venda.setStatus(Venda.StatusVenda.ABERTA);
+        for (PedidoVenda.Item item : pedido.itens()) {
+            if (item.quantidade() == null || item.quantidade() <= 0) {
+                throw new IllegalArgumentException("Quantidade inválida para o código " + item.codigoBarras());
+            }
+            ItemVenda linha = adicionarItem(venda, item.codigoBarras(), item.quantidade());
+            if (item.precoUnitario() != null && item.precoUnitario().compareTo(linha.getPrecoUnitario()) != 0) {
+                throw new IllegalArgumentException(String.format("Preço divergente para %s: enviado %s, catálogo %s",
+                        linha.getNomeProduto(), item.precoUnitario(), linha.getPrecoUnitario()));
+            }
+        }
+        if (pedido.descontoPercentual() != null) {
+            aplicarDesconto(venda, pedido.descontoPercentual());
+        }
+
+        Validador.validarVenda(venda);
+        if (pedido.valorPago().compareTo(venda.getTotal()) < 0) {
+            throw new IllegalArgumentException("Valor pago insuficiente");
+        }
+
+        Map<Long, Integer> quantidades = agruparQuantidades(venda);
+        venda.finalizar(pedido.formaPagamento(), pedido.valorPago());
+        venda.setChaveIdempotencia(pedido.chaveIdempotencia());
+
+        try {
+            VendaRegistrada registrada = transactionTemplate.execute(status -> {
+                Venda salva = persistirVendaFinalizada(venda, quantidades, true);
+                return new VendaRegistrada(VendaResumo.de(salva),
+                        salva.getItens().stream().map(ItemVendaResumo::de).toList(), salva != venda);
+            });
+            if (!registrada.repetida()) {
+                eventosVenda.publicarFinalizada(venda);
+            }
+            return registrada;
+        } catch (DataIntegrityViolationException e) {
+            // Mesma chave gravada por uma requisição concorrente
+            return buscarVendaRegistrada(pedido.chaveIdempotencia()).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<VendaRegistrada> buscarVendaRegistrada(String chaveIdempotencia) {
+        return transactionTemplate.execute(status -> vendaRepository.findByChaveIdempotencia(chaveIdempotencia)
+                .map(v -> new VendaRegistrada(VendaResumo.de(v), v.getItens().stream().map(ItemVendaResumo::de).toList(),
+                        true)));
+    }
+
+    /**
+     * Resultado de {@link #registrarVendaRemota}: a venda, seus itens e se era um reenvio
+     */
+    public record VendaRegistrada(VendaResumo venda, List<ItemVendaResumo> itens, boolean repetida) {
+    }
+
+    /**
+     * Grava no banco uma venda lida do diário local. Idempotente pela chave da venda:
+     * se ela já foi gravada, nada é feito. O estoque é baixado sem validação de saldo,
+     * pois a venda já foi concluída no caixa.
+     */
+    public Venda replicarVendaDoDiario(Venda venda) {
+        Map<Long, Integer> quantidades = agruparQuantidades(venda);
+        return transactionTemplate.execute(status -> persistirVendaFinalizada(venda, quantidades, false));
+    }
+
+    /**
+     * Das chaves de idempotência informadas, as que já têm venda gravada no banco
+     * (consultas IN de até {@value #LOTE_CONSULTA_CHAVES} chaves)
+     */
+    public Set<String> filtrarChavesGravadas(Collection<String> chaves) {
+        List<String> lista = new ArrayList<>(chaves);
+        Set<String> gravadas = new HashSet<>();
+        for (int i = 0; i < lista.size(); i += LOTE_CONSULTA_CHAVES) {
+            gravadas.addAll(vendaRepository.findChavesIdempotenciaExistentes(
+                    lista.subList(i, Math.min(i + LOTE_CONSULTA_CHAVES, lista.size()))));
+        }
+        return gravadas;
+    }
+
+    /**
+     * Salva a venda, baixa o estoque e registra o log. Deve rodar dentro de uma transação.
+     */
+    private Venda persistirVendaFinalizada(Venda venda, Map<Long, Integer> quantidades, boolean validarEstoque) {
+        Optional<Venda> existente = vendaRepository.findByChaveIdempotencia(venda.getChaveIdempotencia());
+        if (existente.isPresent()) {
+            logger.info("Venda {} já gravada no banco: ID {}", venda.getChaveIdempotencia(), existente.get().getId());
+            return existente.get();
+        }
 
-        // Salva a venda
         Venda vendaSalva = vendaRepository.save(venda);
 
-        // Baixa estoque dos produtos
-        for (ItemVenda item : vendaSalva.getItens()) {
-            produtoService.atualizarEstoque(item.getProduto().getId(), -item.getQuantidade());
+        // Baixa estoque dos produtos em um único lote
+        if (validarEstoque) {
+            produtoService.baixarEstoqueEmLote(quantidades);
+        } else {
+            produtoService.baixarEstoqueSemValidacao(quantidades);
         }
 
+        // Atualiza os totais pré-agregados na mesma transação
+        vendaAgregadaRepository.acumular(vendaSalva, 1);
+        aposCommit(() -> rankingVendas.registrar(vendaSalva));
+
         logger.info("Venda finalizada com sucesso: ID {}, Total: {}",
                 vendaSalva.getId(), vendaSalva.getTotal());
 
@@ -166,13 +353,50 @@ public class VendaService {
         Usuario usuario = vendaSalva.getUsuario();
         if (usuario != null) {
             String descricao = String.format("Venda finalizada - Total: R$ %.2f | Forma Pagamento: %s | Valor Pago: R$ %.2f | Troco: R$ %.2f | Itens: %d",
-                    vendaSalva.getTotal(), formaPagamento, valorPago, vendaSalva.getTroco(), vendaSalva.getItens().size());
+                    vendaSalva.getTotal(), vendaSalva.getFormaPagamento(), vendaSalva.getValorPago(),
+                    vendaSalva.getTroco(), vendaSalva.getItens().size());
             logService.registrarLog(usuario, LogAcao.TipoAcao.VENDA_FINALIZADA, "Venda", vendaSalva.getId(), descricao);
         }
 
         return vendaSalva;
     }
 
+    private static void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+
+    /**
+     * Soma as quantidades da venda por produto, ordenadas por ID
+     */
+    private static Map<Long, Integer> agruparQuantidades(Venda venda) {
+        Map<Long, Integer> quantidades = new TreeMap<>();
+        for (ItemVenda item : venda.getItens()) {
+            quantidades.merge(item.getProduto().getId(), item.getQuantidade(), Integer::sum);
+        }
+        return quantidades;
+    }
+
+    /**
+     * Confere o saldo no índice do catálogo, que já desconta as vendas ainda no diário
+     */
+    private void verificarEstoqueNoIndice(Map<Long, Integer> quantidades) {
+        for (Map.Entry<Long, Integer> entrada : quantidades.entrySet()) {
+            Optional<ProdutoResumo> resumo = produtoService.buscarResumoPorId(entrada.getKey());
+            if (resumo.isPresent() && resumo.get().quantidadeEstoque() < entrada.getValue()) {
+                throw new IllegalStateException("Estoque insuficiente para: " + resumo.get().nome());
+            }
+        }
+    }
+
     /**
      * Cancela a venda
      */
@@ -180,28 +404,44 @@ public class VendaService {
     public void cancelarVenda(Venda venda) {
         logger.debug("Cancelando venda ID {}", venda.getId());
 
+        boolean estavaFinalizada = venda.getId() != null && venda.getStatus() == Venda.StatusVenda.FINALIZADA;
         venda.cancelar();
         vendaRepository.save(venda);
 
+        if (estavaFinalizada) {
+            vendaAgregadaRepository.acumular(venda, -1);
+            aposCommit(() -> {
+                rankingVendas.remover(venda);
+                eventosVenda.publicarCancelada(venda);
+            });
+        }
+
         logger.info("Venda cancelada: ID {}", venda.getId());
     }
 
     /**
      * Busca vendas do dia
      */
-    public List<Venda> buscarVendasDoDia(LocalDate data) {
+    public List<VendaResumo> buscarVendasDoDia(LocalDate data) {
         LocalDateTime inicio = data.atStartOfDay();
         LocalDateTime fim = data.atTime(LocalTime.MAX);
-        return vendaRepository.findVendasFinalizadasDoDia(inicio, fim);
+        return vendaRepository.findResumosFinalizadosPorPeriodo(inicio, fim);
     }
 
     /**
      * Busca vendas por período
      */
-    public List<Venda> buscarVendasPorPeriodo(LocalDate dataInicio, LocalDate dataFim) {
+    public List<VendaResumo> buscarVendasPorPeriodo(LocalDate dataInicio, LocalDate dataFim) {
         LocalDateTime inicio = dataInicio.atStartOfDay();
         LocalDateTime fim = dataFim.atTime(LocalTime.MAX);
-        return vendaRepository.findByDataVendaBetweenOrderByDataVendaDesc(inicio, fim);
+        return vendaRepository.findResumosPorPeriodo(inicio, fim);
+    }
+
+    /**
+     * Busca os itens de uma venda (detalhamento)
+     */
+    public List<ItemVendaResumo> buscarItensDaVenda(Long vendaId) {
+        return vendaRepository.findItensResumo(vendaId);
     }
 
     /**
@@ -210,7 +450,7 @@ public class VendaService {
     public BigDecimal calcularTotalPeriodo(LocalDate dataInicio, LocalDate dataFim) {
         LocalDateTime inicio = dataInicio.atStartOfDay();
         LocalDateTime fim = dataFim.atTime(LocalTime.MAX);
-        return vendaRepository.calcularTotalPeriodo(inicio, fim);
+        return vendaAgregadaRepository.somarTotal(inicio, fim);
     }
 
     /**
@@ -219,7 +459,7 @@ public class VendaService {
     public long contarVendasPeriodo(LocalDate dataInicio, LocalDate dataFim) {
         LocalDateTime inicio = dataInicio.atStartOfDay();
         LocalDateTime fim = dataFim.atTime(LocalTime.MAX);
-        return vendaRepository.countVendasPeriodo(inicio, fim);
+        return vendaAgregadaRepository.contarVendas(inicio, fim);
     }
 
     /**
@@ -228,6 +468,20 @@ public class VendaService {
     public List<Object[]> buscarProdutosMaisVendidos(LocalDate dataInicio, LocalDate dataFim, int limit) {
         LocalDateTime inicio = dataInicio.atStartOfDay();
         LocalDateTime fim = dataFim.atTime(LocalTime.MAX);
-        return vendaRepository.findProdutosMaisVendidos(inicio, fim, PageRequest.of(0, limit));
+        return vendaAgregadaRepository.findProdutosMaisVendidos(inicio, fim, limit);
+    }
+
+    /**
+     * Recalcula a tabela de totais pré-agregados a partir de todas as vendas
+     *
+     * @return quantidade de linhas geradas
+     */
+    @Transactional
+    public int reconstruirAgregados() {
+        long inicio = System.currentTimeMillis();
+        int linhas = vendaAgregadaRepository.reconstruir();
+        logger.info("Totais agregados de vendas reconstruídos: {} linhas em {} ms",
+                linhas, System.currentTimeMillis() - inicio);
+        return linhas;
     }
 }
@@ -0,0 +1,60 @@
+package com.supermercado.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versão em memória do catálogo (produtos, estoque e categorias), incrementada após o
+ * commit de cada escrita feita pelos services. Usada como ETag/Last-Modified da API:
+ * uma consulta sem alterações custa só a comparação da versão, sem ir ao banco.
+ * A ETag leva o instante de inicialização para não repetir valores após um reinício.
+ */
+@Service
+public class VersaoCatalogoService {
+
+    private final String instancia = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong versao = new AtomicLong();
+    private volatile long ultimaAlteracao = System.currentTimeMillis();
+
+    /**
+     * Marca o catálogo como alterado após o commit da transação corrente
+     */
+    public void incrementar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar();
+                }
+            });
+        } else {
+            aplicar();
+        }
+    }
+
+    public long getVersao() {
+        return versao.get();
+    }
+
+    /**
+     * ETag (sem aspas) da versão atual
+     */
+    public String getEtag() {
+        return instancia + "-" + versao.get();
+    }
+
+    /**
+     * Instante (epoch ms) da última alteração
+     */
+    public long getUltimaAlteracao() {
+        return ultimaAlteracao;
+    }
+
+    private void aplicar() {
+        ultimaAlteracao = System.currentTimeMillis();
+        versao.incrementAndGet();
+    }
+}
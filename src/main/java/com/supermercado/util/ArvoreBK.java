@@ -0,0 +1,183 @@
+package com.supermercado.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Árvore BK de palavras pela distância de Levenshtein, para achar as palavras do vocabulário
+ * a até N edições de uma palavra digitada errado.
+ *
+ * Cada filho fica pendurado na aresta com a distância até o pai; pela desigualdade triangular,
+ * a busca só desce nas arestas entre d - N e d + N. As palavras contam quantas vezes foram
+ * incluídas: ao chegar a zero o nó fica inativo (não aparece nos resultados) e volta a valer
+ * se a palavra for incluída de novo, então não é preciso reconstruir a árvore a cada alteração.
+ * Não é thread-safe.
+ */
+public class ArvoreBK {
+
+    /**
+     * Palavra encontrada, sua distância até a consultada e quantas vezes aparece no vocabulário
+     */
+    public record Resultado(String palavra, int distancia, int ocorrencias) {
+    }
+
+    private static final class No {
+        private final String palavra;
+        private int ocorrencias;
+        private Map<Integer, No> filhos;
+        private int maiorAresta = -1;
+
+        private No(String palavra) {
+            this.palavra = palavra;
+        }
+    }
+
+    private final Map<String, No> porPalavra = new HashMap<>();
+    private No raiz;
+
+    /**
+     * Inclui uma ocorrência da palavra
+     */
+    public void adicionar(String palavra) {
+        No existente = porPalavra.get(palavra);
+        if (existente != null) {
+            existente.ocorrencias++;
+            return;
+        }
+
+        No novo = new No(palavra);
+        novo.ocorrencias = 1;
+        porPalavra.put(palavra, novo);
+        if (raiz == null) {
+            raiz = novo;
+            return;
+        }
+
+        No atual = raiz;
+        while (true) {
+            int d = distancia(atual.palavra, palavra, Integer.MAX_VALUE);
+            if (atual.filhos == null) {
+                atual.filhos = new HashMap<>(4);
+            }
+            No filho = atual.filhos.get(d);
+            if (filho == null) {
+                atual.filhos.put(d, novo);
+                atual.maiorAresta = Math.max(atual.maiorAresta, d);
+                return;
+            }
+            atual = filho;
+        }
+    }
+
+    /**
+     * Retira uma ocorrência da palavra
+     */
+    public void remover(String palavra) {
+        No no = porPalavra.get(palavra);
+        if (no != null && no.ocorrencias > 0) {
+            no.ocorrencias--;
+        }
+    }
+
+    /**
+     * Indica se a palavra está no vocabulário (com ao menos uma ocorrência)
+     */
+    public boolean contem(String palavra) {
+        No no = porPalavra.get(palavra);
+        return no != null && no.ocorrencias > 0;
+    }
+
+    public void limpar() {
+        porPalavra.clear();
+        raiz = null;
+    }
+
+    /**
+     * Palavras a até {@code distanciaMaxima} edições, da mais próxima para a mais distante
+     * (e, na mesma distância, da mais frequente para a menos frequente)
+     */
+    public List<Resultado> buscar(String palavra, int distanciaMaxima) {
+        List<Resultado> resultado = new ArrayList<>();
+        if (raiz == null) {
+            return resultado;
+        }
+
+        int[][] linhas = { new int[palavra.length() + 1], new int[palavra.length() + 1] };
+        List<No> pendentes = new ArrayList<>();
+        pendentes.add(raiz);
+        while (!pendentes.isEmpty()) {
+            No no = pendentes.remove(pendentes.size() - 1);
+            // A distância só precisa ser exata até onde ainda alcança alguma aresta do nó;
+            // acima disso o cálculo para cedo e nem o nó nem os filhos interessam
+            int limite = Math.max(distanciaMaxima, no.maiorAresta + distanciaMaxima);
+            int d = distancia(no.palavra, palavra, limite, linhas);
+            if (d > limite) {
+                continue;
+            }
+            if (d <= distanciaMaxima && no.ocorrencias > 0) {
+                resultado.add(new Resultado(no.palavra, d, no.ocorrencias));
+            }
+            if (no.filhos != null) {
+                for (int aresta = Math.max(0, d - distanciaMaxima); aresta <= d + distanciaMaxima; aresta++) {
+                    No filho = no.filhos.get(aresta);
+                    if (filho != null) {
+                        pendentes.add(filho);
+                    }
+                }
+            }
+        }
+
+        resultado.sort((a, b) -> a.distancia != b.distancia
+                ? Integer.compare(a.distancia, b.distancia)
+                : Integer.compare(b.ocorrencias, a.ocorrencias));
+        return resultado;
+    }
+
+    /**
+     * Quantidade de palavras distintas já incluídas (inclusive inativas)
+     */
+    public int tamanho() {
+        return porPalavra.size();
+    }
+
+    /**
+     * Distância de Levenshtein com duas linhas (reaproveitadas durante uma busca). Se todas as
+     * células de uma linha passarem de {@code limite}, retorna limite + 1 sem terminar o cálculo.
+     */
+    static int distancia(String a, String b, int limite) {
+        return distancia(a, b, limite, new int[][] { new int[b.length() + 1], new int[b.length() + 1] });
+    }
+
+    private static int distancia(String a, String b, int limite, int[][] linhas) {
+        int n = a.length();
+        int m = b.length();
+        if (limite != Integer.MAX_VALUE && Math.abs(n - m) > limite) {
+            return limite + 1;
+        }
+
+        int[] anterior = linhas[0];
+        int[] atual = linhas[1];
+        for (int j = 0; j <= m; j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            atual[0] = i;
+            int menor = atual[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                int custo = ca == b.charAt(j - 1) ? 0 : 1;
+                atual[j] = Math.min(Math.min(atual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + custo);
+                menor = Math.min(menor, atual[j]);
+            }
+            if (menor > limite) {
+                return limite + 1;
+            }
+            int[] troca = anterior;
+            anterior = atual;
+            atual = troca;
+        }
+        return anterior[m];
+    }
+}
@@ -2,9 +2,16 @@ package com.supermercado.util;
 
 import com.supermercado.model.Venda;
 import com.supermercado.model.ItemVenda;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
+import com.itextpdf.layout.Style;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.element.Cell;
@@ -13,19 +20,40 @@ import com.itextpdf.layout.properties.UnitValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
 
 /**
- * Utilitário para geração de comprovantes em PDF
+ * Utilitário para geração de comprovantes em PDF.
+ * Os programas de fonte e os estilos são montados uma única vez e reaproveitados;
+ * por documento só é criada a fonte PDF (que no iText pertence a um documento).
  */
 public class ComprovantePDF {
 
     private static final Logger logger = LoggerFactory.getLogger(ComprovantePDF.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
     private static final String DIRETORIO_COMPROVANTES = "comprovantes";
+    private static final float[] LARGURAS_COLUNAS = { 4, 1, 2, 2 };
+
+    private static final FontProgram FONTE_NORMAL;
+    private static final FontProgram FONTE_NEGRITO;
+    private static final FontProgram FONTE_ITALICO;
+
+    private static final Style TITULO = new Style().setTextAlignment(TextAlignment.CENTER).setFontSize(18);
+    private static final Style SUBTITULO = new Style().setTextAlignment(TextAlignment.CENTER).setFontSize(14)
+            .setMarginBottom(10);
+    private static final Style INFO = new Style().setFontSize(10);
+    private static final Style CELULA_TEXTO = new Style().setFontSize(9);
+    private static final Style CELULA_CENTRO = new Style().setFontSize(9).setTextAlignment(TextAlignment.CENTER);
+    private static final Style CELULA_DIREITA = new Style().setFontSize(9).setTextAlignment(TextAlignment.RIGHT);
+    private static final Style TOTAL_LINHA = new Style().setTextAlignment(TextAlignment.RIGHT).setFontSize(10);
+    private static final Style TOTAL_GERAL = new Style().setTextAlignment(TextAlignment.RIGHT).setFontSize(14);
+    private static final Style RODAPE = new Style().setTextAlignment(TextAlignment.CENTER).setFontSize(10);
 
     static {
         // Cria diretório de comprovantes se não existir
@@ -33,112 +61,101 @@ public class ComprovantePDF {
         if (!dir.exists()) {
             dir.mkdirs();
         }
+
+        try {
+            FONTE_NORMAL = FontProgramFactory.createFont(StandardFonts.HELVETICA);
+            FONTE_NEGRITO = FontProgramFactory.createFont(StandardFonts.HELVETICA_BOLD);
+            FONTE_ITALICO = FontProgramFactory.createFont(StandardFonts.HELVETICA_OBLIQUE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao carregar fontes do comprovante", e);
+        }
     }
 
     /**
-     * Gera comprovante em PDF
+     * Gera comprovante em PDF. Pode ser chamado de qualquer thread.
      */
     public static File gerarComprovante(Venda venda) {
-        logger.debug("Gerando comprovante para venda ID {}", venda.getId());
+        logger.debug("Gerando comprovante para venda {}", venda.getIdentificacao());
 
+        File arquivo = null;
+        PdfWriter writer = null;
+        Document document = null;
         try {
-            String nomeArquivo = String.format("%s/venda_%d_%s.pdf",
+            String nomeArquivo = String.format("%s/venda_%s_%s.pdf",
                     DIRETORIO_COMPROVANTES,
-                    venda.getId(),
+                    venda.getId() != null ? venda.getId() : venda.getChaveIdempotencia().substring(0, 8),
                     System.currentTimeMillis());
 
-            File arquivo = new File(nomeArquivo);
+            arquivo = new File(nomeArquivo);
 
-            PdfWriter writer = new PdfWriter(new FileOutputStream(arquivo));
+            writer = new PdfWriter(new BufferedOutputStream(new FileOutputStream(arquivo)));
             PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
+            document = new Document(pdf);
+
+            PdfFont normal = PdfFontFactory.createFont(FONTE_NORMAL, PdfEncodings.WINANSI);
+            PdfFont negrito = PdfFontFactory.createFont(FONTE_NEGRITO, PdfEncodings.WINANSI);
+            PdfFont italico = PdfFontFactory.createFont(FONTE_ITALICO, PdfEncodings.WINANSI);
+            document.setFont(normal);
 
             // Cabeçalho
-            document.add(new Paragraph("SUPERMERCADO PDV")
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setFontSize(18)
-                    .setBold());
-
-            document.add(new Paragraph("Comprovante de Venda")
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setFontSize(14)
-                    .setBold()
-                    .setMarginBottom(10));
+            document.add(new Paragraph("SUPERMERCADO PDV").addStyle(TITULO).setFont(negrito));
+            document.add(new Paragraph("Comprovante de Venda").addStyle(SUBTITULO).setFont(negrito));
 
             // Informações da venda
-            document.add(new Paragraph("Venda #" + venda.getId())
-                    .setFontSize(10));
-            document.add(new Paragraph("Data: " + venda.getDataVenda().format(DATE_FORMATTER))
-                    .setFontSize(10));
+            document.add(new Paragraph("Venda " + venda.getIdentificacao()).addStyle(INFO));
+            document.add(new Paragraph("Data: " + venda.getDataVenda().format(DATE_FORMATTER)).addStyle(INFO));
             document.add(new Paragraph("Atendente: " + venda.getUsuario().getNome())
-                    .setFontSize(10)
+                    .addStyle(INFO)
                     .setMarginBottom(10));
 
             // Tabela de itens
-            float[] columnWidths = { 4, 1, 2, 2 };
-            Table table = new Table(UnitValue.createPercentArray(columnWidths));
+            Table table = new Table(UnitValue.createPercentArray(LARGURAS_COLUNAS));
             table.setWidth(UnitValue.createPercentValue(100));
 
             // Cabeçalho da tabela
-            table.addHeaderCell(new Cell().add(new Paragraph("Produto")).setBold());
-            table.addHeaderCell(new Cell().add(new Paragraph("Qtd")).setBold()
+            table.addHeaderCell(new Cell().add(new Paragraph("Produto")).setFont(negrito));
+            table.addHeaderCell(new Cell().add(new Paragraph("Qtd")).setFont(negrito)
                     .setTextAlignment(TextAlignment.CENTER));
-            table.addHeaderCell(new Cell().add(new Paragraph("Preço Unit.")).setBold()
+            table.addHeaderCell(new Cell().add(new Paragraph("Preço Unit.")).setFont(negrito)
                     .setTextAlignment(TextAlignment.RIGHT));
-            table.addHeaderCell(new Cell().add(new Paragraph("Subtotal")).setBold()
+            table.addHeaderCell(new Cell().add(new Paragraph("Subtotal")).setFont(negrito)
                     .setTextAlignment(TextAlignment.RIGHT));
 
             // Itens
             for (ItemVenda item : venda.getItens()) {
-                table.addCell(new Cell().add(new Paragraph(item.getNomeProduto())
-                        .setFontSize(9)));
-                table.addCell(new Cell().add(new Paragraph(String.valueOf(item.getQuantidade()))
-                        .setFontSize(9))
-                        .setTextAlignment(TextAlignment.CENTER));
-                table.addCell(new Cell().add(new Paragraph(formatarMoeda(item.getPrecoUnitario()))
-                        .setFontSize(9))
-                        .setTextAlignment(TextAlignment.RIGHT));
-                table.addCell(new Cell().add(new Paragraph(formatarMoeda(item.getSubtotal()))
-                        .setFontSize(9))
-                        .setTextAlignment(TextAlignment.RIGHT));
+                table.addCell(new Cell().add(new Paragraph(item.getNomeProduto())).addStyle(CELULA_TEXTO));
+                table.addCell(new Cell().add(new Paragraph(String.valueOf(item.getQuantidade())))
+                        .addStyle(CELULA_CENTRO));
+                table.addCell(new Cell().add(new Paragraph(formatarMoeda(item.getPrecoUnitario())))
+                        .addStyle(CELULA_DIREITA));
+                table.addCell(new Cell().add(new Paragraph(formatarMoeda(item.getSubtotal())))
+                        .addStyle(CELULA_DIREITA));
             }
 
             document.add(table);
 
             // Totais
             document.add(new Paragraph("\n"));
-            document.add(new Paragraph("Subtotal: " + formatarMoeda(venda.getSubtotal()))
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .setFontSize(10));
+            document.add(new Paragraph("Subtotal: " + formatarMoeda(venda.getSubtotal())).addStyle(TOTAL_LINHA));
 
             if (venda.getDesconto().compareTo(BigDecimal.ZERO) > 0) {
-                document.add(new Paragraph("Desconto: -" + formatarMoeda(venda.getDesconto()))
-                        .setTextAlignment(TextAlignment.RIGHT)
-                        .setFontSize(10));
+                document.add(new Paragraph("Desconto: -" + formatarMoeda(venda.getDesconto())).addStyle(TOTAL_LINHA));
             }
 
-            document.add(new Paragraph("TOTAL: " + formatarMoeda(venda.getTotal()))
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .setFontSize(14)
-                    .setBold());
+            document.add(new Paragraph("TOTAL: " + formatarMoeda(venda.getTotal())).addStyle(TOTAL_GERAL)
+                    .setFont(negrito));
 
             // Pagamento
             document.add(new Paragraph("\n"));
-            document.add(new Paragraph("Forma de Pagamento: " + venda.getFormaPagamento())
-                    .setFontSize(10));
-            document.add(new Paragraph("Valor Pago: " + formatarMoeda(venda.getValorPago()))
-                    .setFontSize(10));
+            document.add(new Paragraph("Forma de Pagamento: " + venda.getFormaPagamento()).addStyle(INFO));
+            document.add(new Paragraph("Valor Pago: " + formatarMoeda(venda.getValorPago())).addStyle(INFO));
 
             if (venda.getTroco().compareTo(BigDecimal.ZERO) > 0) {
-                document.add(new Paragraph("Troco: " + formatarMoeda(venda.getTroco()))
-                        .setFontSize(10));
+                document.add(new Paragraph("Troco: " + formatarMoeda(venda.getTroco())).addStyle(INFO));
             }
 
             // Rodapé
-            document.add(new Paragraph("\n\nObrigado pela preferência!")
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setFontSize(10)
-                    .setItalic());
+            document.add(new Paragraph("\n\nObrigado pela preferência!").addStyle(RODAPE).setFont(italico));
 
             document.close();
 
@@ -147,10 +164,30 @@ public class ComprovantePDF {
 
         } catch (Exception e) {
             logger.error("Erro ao gerar comprovante", e);
+            descartar(document, writer, arquivo);
             throw new RuntimeException("Erro ao gerar comprovante: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Fecha o arquivo de um comprovante que falhou no meio e o exclui, para não deixar
+     * o arquivo aberto nem um PDF incompleto no diretório
+     */
+    private static void descartar(Document document, PdfWriter writer, File arquivo) {
+        try {
+            if (document != null) {
+                document.close();
+            } else if (writer != null) {
+                writer.close();
+            }
+        } catch (Exception e) {
+            logger.debug("Erro ao fechar comprovante incompleto", e);
+        }
+        if (arquivo != null && arquivo.exists() && !arquivo.delete()) {
+            logger.warn("Não foi possível excluir o comprovante incompleto: {}", arquivo.getAbsolutePath());
+        }
+    }
+
     /**
      * Formata valor monetário
      */
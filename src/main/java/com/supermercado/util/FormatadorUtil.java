@@ -1,5 +1,7 @@
 package com.supermercado.util;
 
+import com.supermercado.model.Dinheiro;
+
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -32,9 +34,60 @@ public class FormatadorUtil {
         if (valor == null) {
             return "R$ 0,00";
         }
+        // Até duas casas o valor é exato em centavos; acima disso mantém o arredondamento do DecimalFormat
+        if (valor.scale() <= 2 && valor.precision() - valor.scale() < 17) {
+            return formatarMoeda(valor.movePointRight(2).longValue());
+        }
         return "R$ " + DECIMAL_FORMAT.format(valor);
     }
 
+    /**
+     * Formata Dinheiro como moeda brasileira
+     */
+    public static String formatarMoeda(Dinheiro valor) {
+        if (valor == null) {
+            return "R$ 0,00";
+        }
+        return formatarMoeda(valor.getCentavos());
+    }
+
+    /**
+     * Formata um valor em centavos como moeda brasileira (R$ 1.234,56), sem DecimalFormat
+     */
+    public static String formatarMoeda(long centavos) {
+        if (centavos == Long.MIN_VALUE) {
+            return "R$ " + DECIMAL_FORMAT.format(BigDecimal.valueOf(centavos, 2));
+        }
+
+        char[] buffer = new char[32];
+        int pos = buffer.length;
+        long resto = Math.abs(centavos);
+
+        buffer[--pos] = (char) ('0' + resto % 10);
+        resto /= 10;
+        buffer[--pos] = (char) ('0' + resto % 10);
+        resto /= 10;
+        buffer[--pos] = ',';
+
+        int digitos = 0;
+        do {
+            if (digitos > 0 && digitos % 3 == 0) {
+                buffer[--pos] = '.';
+            }
+            buffer[--pos] = (char) ('0' + resto % 10);
+            resto /= 10;
+            digitos++;
+        } while (resto > 0);
+
+        if (centavos < 0) {
+            buffer[--pos] = '-';
+        }
+        buffer[--pos] = ' ';
+        buffer[--pos] = '$';
+        buffer[--pos] = 'R';
+        return new String(buffer, pos, buffer.length - pos);
+    }
+
     /**
      * Formata data
      */
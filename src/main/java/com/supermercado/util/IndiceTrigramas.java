@@ -0,0 +1,339 @@
+package com.supermercado.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Índice invertido de trigramas para busca por trecho de texto (equivalente a LIKE '%termo%').
+ *
+ * Cada texto é indexado com dois espaços antes e um depois ("  arroz "), de modo que os
+ * trigramas iniciados por espaço marcam o começo das palavras. Para cada trigrama há uma
+ * lista ordenada de IDs, gravada como diferenças em varint (1 a 2 bytes por ID na prática).
+ * Inclusões fora de ordem e remoções ficam em buffers pequenos até a próxima compactação,
+ * então atualizar um produto não exige reescrever as listas inteiras.
+ *
+ * O índice devolve candidatos: quem chama confere o texto, pois conter todos os trigramas
+ * do termo não garante conter o termo. Não é thread-safe.
+ */
+public class IndiceTrigramas {
+
+    private final LongHashMap<ListaPostings> postings = new LongHashMap<>(4096);
+
+    /**
+     * Indexa o texto (já normalizado) sob o ID
+     */
+    public void adicionar(long id, String texto) {
+        for (long trigrama : trigramas("  " + texto + " ")) {
+            ListaPostings lista = postings.get(trigrama);
+            if (lista == null) {
+                lista = new ListaPostings();
+                postings.put(trigrama, lista);
+            }
+            lista.adicionar(id);
+        }
+    }
+
+    /**
+     * Remove o ID das listas do texto com que foi indexado
+     */
+    public void remover(long id, String texto) {
+        for (long trigrama : trigramas("  " + texto + " ")) {
+            ListaPostings lista = postings.get(trigrama);
+            if (lista != null) {
+                lista.remover(id);
+                if (lista.isEmpty()) {
+                    postings.remove(trigrama);
+                }
+            }
+        }
+    }
+
+    public void limpar() {
+        postings.clear();
+    }
+
+    /**
+     * IDs (ordenados) que contêm todos os trigramas do termo normalizado.
+     * Termos de 2 caracteres juntam as listas de todos os trigramas que terminam neles
+     * (o texto é indexado com dois espaços à frente, então isso cobre qualquer posição).
+     *
+     * @return candidatos, ou null se o termo for curto demais para o índice (1 caractere)
+     */
+    public long[] candidatos(String termo) {
+        if (termo.length() == 2) {
+            return candidatosBigrama(termo.charAt(0), termo.charAt(1));
+        }
+        if (termo.length() < 3) {
+            return null;
+        }
+        long[] chaves = trigramas(termo);
+
+        ListaPostings[] listas = new ListaPostings[chaves.length];
+        for (int i = 0; i < chaves.length; i++) {
+            listas[i] = postings.get(chaves[i]);
+            if (listas[i] == null) {
+                return new long[0];
+            }
+        }
+
+        // Começa pela lista mais curta e intersecta com as seguintes enquanto valer a pena
+        Arrays.sort(listas, (a, b) -> Integer.compare(a.tamanho(), b.tamanho()));
+        long[] resultado = listas[0].ids();
+        for (int i = 1; i < listas.length && resultado.length > 32; i++) {
+            resultado = intersectar(resultado, listas[i].ids());
+        }
+        return resultado;
+    }
+
+    /**
+     * União das listas dos trigramas "?ab", sem repetições
+     */
+    private long[] candidatosBigrama(char a, char b) {
+        long sufixo = trigrama('\0', a, b);
+        List<ListaPostings> listas = new ArrayList<>();
+        postings.forEachKey(chave -> {
+            if ((chave & 0xFFFFFFFFL) == sufixo) {
+                listas.add(postings.get(chave));
+            }
+        });
+        if (listas.size() == 1) {
+            return listas.get(0).ids();
+        }
+
+        int total = 0;
+        for (ListaPostings lista : listas) {
+            total += lista.tamanho();
+        }
+        long[] resultado = new long[total];
+        int n = 0;
+        for (ListaPostings lista : listas) {
+            long[] ids = lista.ids();
+            System.arraycopy(ids, 0, resultado, n, ids.length);
+            n += ids.length;
+        }
+        Arrays.sort(resultado);
+        int distintos = 0;
+        for (int i = 0; i < n; i++) {
+            if (distintos == 0 || resultado[distintos - 1] != resultado[i]) {
+                resultado[distintos++] = resultado[i];
+            }
+        }
+        return Arrays.copyOf(resultado, distintos);
+    }
+
+    /**
+     * Quantidade de trigramas distintos no índice
+     */
+    public int tamanho() {
+        return postings.size();
+    }
+
+    private static long[] intersectar(long[] a, long[] b) {
+        long[] resultado = new long[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                resultado[n++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    /**
+     * Trigramas distintos do texto
+     */
+    private static long[] trigramas(String texto) {
+        int n = texto.length() - 2;
+        if (n <= 0) {
+            return new long[0];
+        }
+        long[] resultado = new long[n];
+        for (int i = 0; i < n; i++) {
+            resultado[i] = trigrama(texto.charAt(i), texto.charAt(i + 1), texto.charAt(i + 2));
+        }
+        Arrays.sort(resultado);
+        int distintos = 0;
+        for (int i = 0; i < n; i++) {
+            if (distintos == 0 || resultado[distintos - 1] != resultado[i]) {
+                resultado[distintos++] = resultado[i];
+            }
+        }
+        return Arrays.copyOf(resultado, distintos);
+    }
+
+    private static long trigrama(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /**
+     * Lista de IDs de um trigrama: bloco compactado (diferenças em varint, em ordem crescente)
+     * mais buffers de inclusões fora de ordem e de remoções
+     */
+    private static final class ListaPostings {
+
+        private static final int LIMITE_BUFFER = 32;
+
+        private byte[] dados = new byte[4];
+        private int bytes;
+        private int quantidade;
+        private long ultimo;
+
+        private long[] incluidos = new long[0];
+        private int nIncluidos;
+        private long[] removidos = new long[0];
+        private int nRemovidos;
+
+        void adicionar(long id) {
+            int r = indice(removidos, nRemovidos, id);
+            if (r >= 0) {
+                System.arraycopy(removidos, r + 1, removidos, r, --nRemovidos - r);
+                return;
+            }
+            if (quantidade == 0 || id > ultimo) {
+                acrescentar(id);
+                return;
+            }
+            if (indice(incluidos, nIncluidos, id) >= 0 || contemCompactado(id)) {
+                return;
+            }
+            incluidos = inserirOrdenado(incluidos, nIncluidos++, id);
+            compactarSeNecessario();
+        }
+
+        void remover(long id) {
+            int i = indice(incluidos, nIncluidos, id);
+            if (i >= 0) {
+                System.arraycopy(incluidos, i + 1, incluidos, i, --nIncluidos - i);
+                return;
+            }
+            if (indice(removidos, nRemovidos, id) < 0 && contemCompactado(id)) {
+                removidos = inserirOrdenado(removidos, nRemovidos++, id);
+                compactarSeNecessario();
+            }
+        }
+
+        int tamanho() {
+            return quantidade + nIncluidos - nRemovidos;
+        }
+
+        boolean isEmpty() {
+            return tamanho() == 0;
+        }
+
+        /**
+         * IDs vivos, em ordem crescente
+         */
+        long[] ids() {
+            long[] resultado = new long[tamanho()];
+            int n = 0;
+            int inc = 0;
+            int rem = 0;
+            long id = 0;
+            int pos = 0;
+            for (int k = 0; k < quantidade; k++) {
+                long delta = 0;
+                int deslocamento = 0;
+                byte b;
+                do {
+                    b = dados[pos++];
+                    delta |= (long) (b & 0x7F) << deslocamento;
+                    deslocamento += 7;
+                } while (b < 0);
+                id += delta;
+
+                while (inc < nIncluidos && incluidos[inc] < id) {
+                    resultado[n++] = incluidos[inc++];
+                }
+                while (rem < nRemovidos && removidos[rem] < id) {
+                    rem++;
+                }
+                if (rem < nRemovidos && removidos[rem] == id) {
+                    rem++;
+                } else {
+                    resultado[n++] = id;
+                }
+            }
+            while (inc < nIncluidos) {
+                resultado[n++] = incluidos[inc++];
+            }
+            return n == resultado.length ? resultado : Arrays.copyOf(resultado, n);
+        }
+
+        private void acrescentar(long id) {
+            long delta = quantidade == 0 ? id : id - ultimo;
+            if (bytes + 10 > dados.length) {
+                dados = Arrays.copyOf(dados, Math.max(dados.length * 2, bytes + 10));
+            }
+            while ((delta & ~0x7FL) != 0) {
+                dados[bytes++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            dados[bytes++] = (byte) delta;
+            ultimo = id;
+            quantidade++;
+        }
+
+        private boolean contemCompactado(long id) {
+            if (quantidade == 0 || id > ultimo) {
+                return false;
+            }
+            long atual = 0;
+            int pos = 0;
+            for (int k = 0; k < quantidade; k++) {
+                long delta = 0;
+                int deslocamento = 0;
+                byte b;
+                do {
+                    b = dados[pos++];
+                    delta |= (long) (b & 0x7F) << deslocamento;
+                    deslocamento += 7;
+                } while (b < 0);
+                atual += delta;
+                if (atual >= id) {
+                    return atual == id;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Regrava o bloco compactado quando os buffers crescem
+         */
+        private void compactarSeNecessario() {
+            if (nIncluidos + nRemovidos < LIMITE_BUFFER) {
+                return;
+            }
+            long[] vivos = ids();
+            dados = new byte[Math.max(4, vivos.length * 2)];
+            bytes = 0;
+            quantidade = 0;
+            ultimo = 0;
+            nIncluidos = 0;
+            nRemovidos = 0;
+            for (long id : vivos) {
+                acrescentar(id);
+            }
+        }
+
+        private static int indice(long[] ordenado, int n, long id) {
+            return n == 0 ? -1 : Arrays.binarySearch(ordenado, 0, n, id);
+        }
+
+        private static long[] inserirOrdenado(long[] ordenado, int n, long id) {
+            long[] destino = n == ordenado.length ? Arrays.copyOf(ordenado, Math.max(4, n * 2)) : ordenado;
+            int pos = -Arrays.binarySearch(ordenado, 0, n, id) - 1;
+            System.arraycopy(ordenado, pos, destino, pos + 1, n - pos);
+            destino[pos] = id;
+            return destino;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.supermercado.util;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Mapa de endereçamento aberto com chaves primitivas {@code long}.
+ * Evita o boxing de {@link Long} e as entradas encadeadas do {@code HashMap}
+ * nas consultas feitas a cada leitura de código de barras.
+ *
+ * A chave {@code 0} é reservada para marcar posições vazias.
+ * Não é thread-safe: a sincronização fica a cargo de quem usa.
+ */
+public class LongHashMap<V> {
+
+    private static final long VAZIO = 0L;
+    private static final float FATOR_CARGA = 0.5f;
+
+    private long[] chaves;
+    private Object[] valores;
+    private int tamanho;
+    private int limite;
+
+    public LongHashMap() {
+        this(16);
+    }
+
+    public LongHashMap(int capacidadeInicial) {
+        int capacidade = Integer.highestOneBit(Math.max(2, (int) (capacidadeInicial / FATOR_CARGA)) - 1) << 1;
+        alocar(capacidade);
+    }
+
+    /**
+     * Retorna o valor associado à chave ou {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long chave) {
+        if (chave == VAZIO) {
+            return null;
+        }
+        int mascara = chaves.length - 1;
+        int i = indice(chave, mascara);
+        long atual;
+        while ((atual = chaves[i]) != VAZIO) {
+            if (atual == chave) {
+                return (V) valores[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    /**
+     * Associa o valor à chave, retornando o valor anterior ou {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long chave, V valor) {
+        if (chave == VAZIO) {
+            throw new IllegalArgumentException("Chave 0 é reservada");
+        }
+        int mascara = chaves.length - 1;
+        int i = indice(chave, mascara);
+        long atual;
+        while ((atual = chaves[i]) != VAZIO) {
+            if (atual == chave) {
+                V anterior = (V) valores[i];
+                valores[i] = valor;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = chave;
+        valores[i] = valor;
+        if (++tamanho > limite) {
+            redimensionar();
+        }
+        return null;
+    }
+
+    /**
+     * Remove a chave, retornando o valor removido ou {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long chave) {
+        if (chave == VAZIO) {
+            return null;
+        }
+        int mascara = chaves.length - 1;
+        int i = indice(chave, mascara);
+        long atual;
+        while ((atual = chaves[i]) != VAZIO) {
+            if (atual == chave) {
+                V anterior = (V) valores[i];
+                compactarApos(i, mascara);
+                tamanho--;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(chaves, VAZIO);
+        Arrays.fill(valores, null);
+        tamanho = 0;
+    }
+
+    /**
+     * Percorre todas as chaves, sem ordem definida
+     */
+    public void forEachKey(LongConsumer acao) {
+        for (long chave : chaves) {
+            if (chave != VAZIO) {
+                acao.accept(chave);
+            }
+        }
+    }
+
+    /**
+     * Percorre todos os valores, sem ordem definida
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> acao) {
+        for (int i = 0; i < chaves.length; i++) {
+            if (chaves[i] != VAZIO) {
+                acao.accept((V) valores[i]);
+            }
+        }
+    }
+
+    /**
+     * Remoção sem lápides: desloca para trás os elementos da mesma sequência de sondagem
+     */
+    private void compactarApos(int livre, int mascara) {
+        int i = livre;
+        while (true) {
+            i = (i + 1) & mascara;
+            long chave = chaves[i];
+            if (chave == VAZIO) {
+                break;
+            }
+            int ideal = indice(chave, mascara);
+            boolean podeMover = livre <= i ? (ideal <= livre || ideal > i) : (ideal <= livre && ideal > i);
+            if (podeMover) {
+                chaves[livre] = chave;
+                valores[livre] = valores[i];
+                livre = i;
+            }
+        }
+        chaves[livre] = VAZIO;
+        valores[livre] = null;
+    }
+
+    private void redimensionar() {
+        long[] chavesAntigas = chaves;
+        Object[] valoresAntigos = valores;
+        alocar(chavesAntigas.length << 1);
+        int mascara = chaves.length - 1;
+        for (int j = 0; j < chavesAntigas.length; j++) {
+            long chave = chavesAntigas[j];
+            if (chave != VAZIO) {
+                int i = indice(chave, mascara);
+                while (chaves[i] != VAZIO) {
+                    i = (i + 1) & mascara;
+                }
+                chaves[i] = chave;
+                valores[i] = valoresAntigos[j];
+            }
+        }
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new long[capacidade];
+        valores = new Object[capacidade];
+        limite = (int) (capacidade * FATOR_CARGA);
+    }
+
+    private static int indice(long chave, int mascara) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+}
@@ -0,0 +1,54 @@
+package com.supermercado.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chave de busca de texto: sem acentos (Unicode NFD sem as marcas diacríticas), em
+ * minúsculas e com as palavras separadas por um único espaço ("Açúcar  Refinado-1kg"
+ * vira "acucar refinado 1kg"). Calculada quando o produto é gravado, para que a busca
+ * compare apenas chaves já normalizadas.
+ */
+public final class NormalizadorTexto {
+
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private NormalizadorTexto() {
+    }
+
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        if (isNormalizado(texto)) {
+            return texto;
+        }
+        String semAcentos = DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(semAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    /**
+     * Atalho para o caso comum (ASCII minúsculo, palavras separadas por um espaço)
+     */
+    private static boolean isNormalizado(String texto) {
+        int n = texto.length();
+        if (n == 0) {
+            return true;
+        }
+        if (texto.charAt(0) == ' ' || texto.charAt(n - 1) == ' ') {
+            return false;
+        }
+        char anterior = 'a';
+        for (int i = 0; i < n; i++) {
+            char c = texto.charAt(i);
+            boolean valido = (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || (c == ' ' && anterior != ' ');
+            if (!valido) {
+                return false;
+            }
+            anterior = c;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,270 @@
+package com.supermercado.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Contador aproximado dos itens mais frequentes (algoritmo Space-Saving) com memória fixa.
+ *
+ * Mantém no máximo {@code capacidade} contadores. Quando chega uma chave nova e não há
+ * espaço, ela herda o contador de menor valor (que vira seu erro máximo). Todo item com
+ * frequência real acima de total/capacidade está garantidamente presente, e a contagem
+ * estimada nunca fica abaixo da real. Os contadores ficam num heap de mínimo indexado
+ * por um {@link LongHashMap}, então cada atualização custa O(log capacidade).
+ *
+ * Como {@link #remover} pode baixar contadores abaixo do que uma chave já descartada
+ * tinha, o sketch guarda um piso: o maior contador já descartado, limite da contagem
+ * real de qualquer chave fora do sketch. Chaves novas herdam pelo menos o piso.
+ *
+ * Não é thread-safe.
+ */
+public class SpaceSaving {
+
+    /**
+     * Entrada do ranking: chave, contagem estimada e erro máximo da estimativa
+     */
+    public record Entrada(long chave, long contagem, long erro) {
+    }
+
+    private static final class Contador {
+        private final long chave;
+        private long contagem;
+        private long erro;
+        private int posicao;
+
+        private Contador(long chave) {
+            this.chave = chave;
+        }
+    }
+
+    private final int capacidade;
+    private final Contador[] heap;
+    private final LongHashMap<Contador> porChave;
+    private int tamanho;
+    private long total;
+    private long piso;
+
+    public SpaceSaving(int capacidade) {
+        if (capacidade <= 0) {
+            throw new IllegalArgumentException("Capacidade deve ser positiva");
+        }
+        this.capacidade = capacidade;
+        this.heap = new Contador[capacidade];
+        this.porChave = new LongHashMap<>(capacidade * 2);
+    }
+
+    /**
+     * Soma o peso à chave (chave 0 é reservada e ignorada)
+     */
+    public void adicionar(long chave, long peso) {
+        adicionar(chave, peso, 0L);
+    }
+
+    private void adicionar(long chave, long peso, long erro) {
+        if (chave == 0L || peso <= 0) {
+            return;
+        }
+        total += peso;
+
+        Contador contador = porChave.get(chave);
+        if (contador != null) {
+            contador.contagem += peso;
+            contador.erro += erro;
+            descer(contador.posicao);
+            return;
+        }
+
+        if (tamanho < capacidade) {
+            contador = new Contador(chave);
+            contador.contagem = peso;
+            contador.erro = erro;
+            contador.posicao = tamanho;
+            heap[tamanho++] = contador;
+            porChave.put(chave, contador);
+            subir(contador.posicao);
+            return;
+        }
+
+        // Substitui o menor contador: a nova chave herda a contagem dele (ou o piso) como erro
+        Contador menor = heap[0];
+        porChave.remove(menor.chave);
+        long herdado = Math.max(menor.contagem, piso);
+        piso = Math.max(piso, menor.contagem);
+        contador = new Contador(chave);
+        contador.contagem = herdado + peso;
+        contador.erro = herdado + erro;
+        contador.posicao = 0;
+        heap[0] = contador;
+        porChave.put(chave, contador);
+        descer(0);
+    }
+
+    /**
+     * Retira peso de uma chave (ex.: venda cancelada). Chaves fora do sketch só saem do
+     * total, pois a contagem delas já está absorvida no erro e no piso.
+     */
+    public void remover(long chave, long peso) {
+        if (chave == 0L || peso <= 0) {
+            return;
+        }
+        total -= Math.min(peso, total);
+        Contador contador = porChave.get(chave);
+        if (contador == null) {
+            return;
+        }
+        contador.contagem -= Math.min(peso, contador.contagem);
+        contador.erro = Math.min(contador.erro, contador.contagem);
+        subir(contador.posicao);
+    }
+
+    /**
+     * Soma as contagens de outro sketch neste (usado para juntar janelas de tempo).
+     * Uma chave ausente de um dos lados soma o piso daquele lado, contagem e erro; da união
+     * ficam as {@code capacidade} maiores, e o maior contador que sobrar vira o piso.
+     */
+    public void mesclar(SpaceSaving outro) {
+        List<Contador> uniao = new ArrayList<>(tamanho + outro.tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            Contador c = heap[i];
+            Contador o = outro.porChave.get(c.chave);
+            Contador m = new Contador(c.chave);
+            m.contagem = c.contagem + (o != null ? o.contagem : outro.piso);
+            m.erro = c.erro + (o != null ? o.erro : outro.piso);
+            uniao.add(m);
+        }
+        for (int i = 0; i < outro.tamanho; i++) {
+            Contador o = outro.heap[i];
+            if (porChave.get(o.chave) == null) {
+                Contador m = new Contador(o.chave);
+                m.contagem = o.contagem + piso;
+                m.erro = o.erro + piso;
+                uniao.add(m);
+            }
+        }
+        uniao.sort(Comparator.comparingLong((Contador c) -> c.contagem).reversed());
+
+        long novoPiso = piso + outro.piso;
+        long novoTotal = total + outro.total;
+        limpar();
+        for (Contador m : uniao) {
+            if (tamanho < capacidade) {
+                m.posicao = tamanho;
+                heap[tamanho++] = m;
+                porChave.put(m.chave, m);
+                subir(m.posicao);
+            } else {
+                novoPiso = Math.max(novoPiso, m.contagem);
+            }
+        }
+        piso = novoPiso;
+        total = novoTotal;
+    }
+
+    /**
+     * As n chaves de maior contagem, em ordem decrescente
+     */
+    public List<Entrada> topo(int n) {
+        Contador[] ordenados = Arrays.copyOf(heap, tamanho);
+        Arrays.sort(ordenados, Comparator.comparingLong((Contador c) -> c.contagem).reversed());
+
+        int limite = Math.min(n, ordenados.length);
+        List<Entrada> resultado = new ArrayList<>(limite);
+        for (int i = 0; i < limite; i++) {
+            Contador c = ordenados[i];
+            if (c.contagem > 0) {
+                resultado.add(new Entrada(c.chave, c.contagem, c.erro));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Todas as entradas, sem ordem definida (para gravar em arquivo)
+     */
+    public List<Entrada> entradas() {
+        List<Entrada> resultado = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            resultado.add(new Entrada(heap[i].chave, heap[i].contagem, heap[i].erro));
+        }
+        return resultado;
+    }
+
+    /**
+     * Restaura uma entrada gravada por {@link #entradas()}
+     */
+    public void restaurar(Entrada entrada) {
+        adicionar(entrada.chave(), entrada.contagem(), entrada.erro());
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Limite da contagem real de qualquer chave fora do sketch
+     */
+    public long getPiso() {
+        return piso;
+    }
+
+    /**
+     * Restaura o piso gravado junto com as entradas
+     */
+    public void restaurarPiso(long piso) {
+        this.piso = Math.max(this.piso, piso);
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    public void limpar() {
+        Arrays.fill(heap, 0, tamanho, null);
+        porChave.clear();
+        tamanho = 0;
+        total = 0;
+        piso = 0;
+    }
+
+    private void subir(int i) {
+        Contador c = heap[i];
+        while (i > 0) {
+            int pai = (i - 1) >>> 1;
+            if (heap[pai].contagem <= c.contagem) {
+                break;
+            }
+            colocar(i, heap[pai]);
+            i = pai;
+        }
+        colocar(i, c);
+    }
+
+    private void descer(int i) {
+        Contador c = heap[i];
+        int metade = tamanho >>> 1;
+        while (i < metade) {
+            int filho = 2 * i + 1;
+            int direito = filho + 1;
+            if (direito < tamanho && heap[direito].contagem < heap[filho].contagem) {
+                filho = direito;
+            }
+            if (c.contagem <= heap[filho].contagem) {
+                break;
+            }
+            colocar(i, heap[filho]);
+            i = filho;
+        }
+        colocar(i, c);
+    }
+
+    private void colocar(int i, Contador c) {
+        heap[i] = c;
+        c.posicao = i;
+    }
+}
@@ -0,0 +1,131 @@
+package com.supermercado.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dinheiro (centavos em long) comparado com o cálculo em BigDecimal que ele substituiu
+ */
+class DinheiroTest {
+
+    private static final BigDecimal CEM = BigDecimal.valueOf(100);
+
+    @Test
+    void conversaoDeBigDecimalArredondaHalfUp() {
+        assertEquals(1L, Dinheiro.de(new BigDecimal("0.005")).getCentavos());
+        assertEquals(0L, Dinheiro.de(new BigDecimal("0.0049")).getCentavos());
+        assertEquals(-1L, Dinheiro.de(new BigDecimal("-0.005")).getCentavos());
+        assertEquals(1235L, Dinheiro.de(new BigDecimal("12.345")).getCentavos());
+        assertEquals(1200L, Dinheiro.de(new BigDecimal("12")).getCentavos());
+        assertNull(Dinheiro.de(null));
+
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal valor = BigDecimal.valueOf(random.nextLong() % 100_000_000_000L, 2 + random.nextInt(4));
+            BigDecimal esperado = valor.setScale(2, RoundingMode.HALF_UP);
+            assertEquals(0, esperado.compareTo(Dinheiro.de(valor).paraBigDecimal()), valor.toPlainString());
+        }
+    }
+
+    @Test
+    void divisaoArredondadaBateComBigDecimal() {
+        Random random = new Random(2);
+        for (int i = 0; i < 100_000; i++) {
+            long dividendo = random.nextLong() % 1_000_000_000_000L;
+            long divisor = 1 + random.nextInt(20_000);
+            BigDecimal esperado = BigDecimal.valueOf(dividendo)
+                    .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP);
+            assertEquals(esperado.longValueExact(), Dinheiro.dividirArredondando(dividendo, divisor),
+                    dividendo + " / " + divisor);
+        }
+        // Empates exatos se afastam do zero
+        assertEquals(1L, Dinheiro.dividirArredondando(1, 2));
+        assertEquals(-1L, Dinheiro.dividirArredondando(-1, 2));
+        assertEquals(3L, Dinheiro.dividirArredondando(5, 2));
+    }
+
+    @Test
+    void descontoPercentualBateComOCalculoAnteriorEmBigDecimal() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            long subtotal = random.nextInt(10_000_000);
+            // Percentuais de 0 a 100 com duas casas, como os aceitos no caixa
+            BigDecimal percentual = BigDecimal.valueOf(random.nextInt(10_001), 2);
+
+            BigDecimal esperado = BigDecimal.valueOf(subtotal, 2).multiply(percentual)
+                    .divide(CEM, 2, RoundingMode.HALF_UP);
+            Dinheiro desconto = Dinheiro.centavos(subtotal).percentual(Dinheiro.pontosBase(percentual));
+
+            assertEquals(0, esperado.compareTo(desconto.paraBigDecimal()), subtotal + " x " + percentual + "%");
+        }
+    }
+
+    @Test
+    void somasEMultiplicacoesSaoExatas() {
+        Random random = new Random(4);
+        for (int i = 0; i < 100_000; i++) {
+            long a = random.nextInt(100_000_000);
+            long b = random.nextInt(100_000_000) - 50_000_000;
+            int quantidade = random.nextInt(1000);
+            BigDecimal ba = BigDecimal.valueOf(a, 2);
+            BigDecimal bb = BigDecimal.valueOf(b, 2);
+
+            assertEquals(0, ba.add(bb).compareTo(Dinheiro.centavos(a).mais(Dinheiro.centavos(b)).paraBigDecimal()));
+            assertEquals(0, ba.subtract(bb).compareTo(Dinheiro.centavos(a).menos(Dinheiro.centavos(b)).paraBigDecimal()));
+            assertEquals(0, ba.multiply(BigDecimal.valueOf(quantidade))
+                    .compareTo(Dinheiro.centavos(a).vezes(quantidade).paraBigDecimal()));
+        }
+    }
+
+    @Test
+    void estouroLancaArithmeticException() {
+        Dinheiro maximo = Dinheiro.centavos(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> maximo.mais(Dinheiro.centavos(1)));
+        assertThrows(ArithmeticException.class, () -> Dinheiro.centavos(Long.MIN_VALUE).menos(Dinheiro.centavos(1)));
+        assertThrows(ArithmeticException.class, () -> Dinheiro.centavos(Long.MAX_VALUE / 2 + 1).vezes(2));
+        assertThrows(ArithmeticException.class, () -> maximo.percentual(2));
+        assertThrows(ArithmeticException.class, () -> Dinheiro.de(new BigDecimal("1e30")));
+    }
+
+    @Test
+    void totalDaVendaBateComASomaEmBigDecimal() {
+        Random random = new Random(5);
+        for (int v = 0; v < 2_000; v++) {
+            Venda venda = new Venda();
+            BigDecimal subtotal = BigDecimal.ZERO;
+            for (int i = 0; i < 1 + random.nextInt(40); i++) {
+                Produto produto = new Produto();
+                produto.setId((long) i + 1);
+                produto.setCodigoBarras("789" + i);
+                produto.setNome("Produto " + i);
+                produto.setPrecoVenda(BigDecimal.valueOf(1 + random.nextInt(50_000), 2));
+                int quantidade = 1 + random.nextInt(12);
+                venda.adicionarItem(new ItemVenda(produto, quantidade));
+                subtotal = subtotal.add(produto.getPrecoVenda().multiply(BigDecimal.valueOf(quantidade)));
+            }
+            BigDecimal percentual = BigDecimal.valueOf(random.nextInt(5_001), 2);
+            venda.setDescontoPercentual(percentual);
+            venda.atualizarTotais();
+
+            BigDecimal desconto = subtotal.multiply(percentual).divide(CEM, 2, RoundingMode.HALF_UP);
+            assertEquals(0, subtotal.compareTo(venda.getSubtotal()));
+            assertEquals(0, desconto.compareTo(venda.getDesconto()));
+            assertEquals(0, subtotal.subtract(desconto).compareTo(venda.getTotal()));
+        }
+    }
+
+    @Test
+    void igualdadeEOrdemPeloValorEmCentavos() {
+        assertEquals(Dinheiro.de(new BigDecimal("1.50")), Dinheiro.de(new BigDecimal("1.5")));
+        assertEquals(Dinheiro.centavos(150).hashCode(), Dinheiro.de(new BigDecimal("1.500")).hashCode());
+        assertTrue(Dinheiro.centavos(-1).compareTo(Dinheiro.ZERO) < 0);
+        assertSame(Dinheiro.ZERO, Dinheiro.centavos(0));
+        assertEquals("-0.05", Dinheiro.centavos(-5).toString());
+    }
+}
@@ -0,0 +1,126 @@
+package com.supermercado.model;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Medição da latência de bipar, alterar e cancelar itens conforme a cesta cresce de 1 para 500 itens.
+ * Segue o formato de um benchmark JMH (aquecimento, várias rodadas medidas, resultado consumido
+ * para não ser eliminado pelo JIT); a rodada mais rápida de cada cenário é a reportada.
+ * A reconciliação completa (a soma que todo item fazia antes) entra como contraste linear.
+ * Fica fora da execução padrão: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class VendaLatenciaTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VendaLatenciaTest.class);
+
+    private static final int[] TAMANHOS = { 1, 10, 100, 500 };
+    private static final int AQUECIMENTO = 5;
+    private static final int RODADAS = 10;
+    private static final int OPERACOES = 200_000;
+
+    private long consumido;
+
+    @Test
+    void latenciaDasAlteracoesNaoCresceComACesta() {
+        double[] alterar = new double[TAMANHOS.length];
+        double[] incluirERetirar = new double[TAMANHOS.length];
+        double[] reconciliar = new double[TAMANHOS.length];
+
+        for (int t = 0; t < TAMANHOS.length; t++) {
+            Venda venda = cesta(TAMANHOS[t]);
+            ItemVenda meio = venda.getItens().get(TAMANHOS[t] / 2);
+            ItemVenda avulso = new ItemVenda(produto(TAMANHOS[t]), 1);
+
+            // Bipar de novo um produto já na cesta: soma a quantidade na mesma linha
+            alterar[t] = nanosPorOperacao(OPERACOES, i -> {
+                venda.alterarQuantidadeItem(meio, 1 + (i & 1));
+                return venda.getTotalDinheiro().getCentavos();
+            });
+            // Bipar um produto novo e cancelar o último item
+            incluirERetirar[t] = nanosPorOperacao(OPERACOES, i -> {
+                venda.adicionarItem(avulso);
+                venda.removerItem(avulso);
+                return venda.getTotalDinheiro().getCentavos();
+            });
+            reconciliar[t] = nanosPorOperacao(OPERACOES / 50, i -> {
+                venda.recalcularTotais();
+                return venda.getTotalDinheiro().getCentavos();
+            });
+
+            assertTrue(venda.isTotaisConsistentes());
+            assertEquals(TAMANHOS[t], venda.getItens().size());
+        }
+
+        for (int t = 0; t < TAMANHOS.length; t++) {
+            logger.info(String.format("itens=%3d  alterar quantidade %7.1f ns/op  incluir+cancelar %7.1f ns/op  "
+                    + "soma completa %8.1f ns/op", TAMANHOS[t], alterar[t], incluirERetirar[t], reconciliar[t]));
+        }
+
+        // Folga larga para ruído de máquina; a soma completa a cada item cresce com a cesta
+        int ultimo = TAMANHOS.length - 1;
+        assertTrue(alterar[ultimo] < 3 * cestaPequena(alterar) + 50, Arrays.toString(alterar));
+        assertTrue(incluirERetirar[ultimo] < 3 * cestaPequena(incluirERetirar) + 50, Arrays.toString(incluirERetirar));
+        assertTrue(reconciliar[ultimo] > 10 * cestaPequena(reconciliar), Arrays.toString(reconciliar));
+    }
+
+    /**
+     * Menor medição entre as cestas de 1 e 10 itens (a primeira ainda pode pegar compilação do JIT)
+     */
+    private static double cestaPequena(double[] medicoes) {
+        return Math.min(medicoes[0], medicoes[1]);
+    }
+
+    private interface Operacao {
+        long executar(int i);
+    }
+
+    private double nanosPorOperacao(int operacoes, Operacao operacao) {
+        for (int r = 0; r < AQUECIMENTO; r++) {
+            rodada(operacoes, operacao);
+        }
+        long melhor = Long.MAX_VALUE;
+        for (int r = 0; r < RODADAS; r++) {
+            melhor = Math.min(melhor, rodada(operacoes, operacao));
+        }
+        assertNotEquals(42L, consumido);
+        return (double) melhor / operacoes;
+    }
+
+    private long rodada(int operacoes, Operacao operacao) {
+        long acumulado = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < operacoes; i++) {
+            acumulado += operacao.executar(i);
+        }
+        long duracao = System.nanoTime() - inicio;
+        consumido += acumulado;
+        return duracao;
+    }
+
+    private static Venda cesta(int itens) {
+        Venda venda = new Venda();
+        venda.setDescontoPercentual(new BigDecimal("5.00"));
+        for (int i = 0; i < itens; i++) {
+            venda.adicionarItem(new ItemVenda(produto(i), 1 + i % 3));
+        }
+        return venda;
+    }
+
+    private static Produto produto(int i) {
+        Produto produto = new Produto();
+        produto.setId((long) i + 1);
+        produto.setCodigoBarras("7891000" + (10_000 + i));
+        produto.setNome("Produto " + i);
+        produto.setPrecoVenda(BigDecimal.valueOf(199 + i * 37L % 5_000, 2));
+        return produto;
+    }
+}
@@ -0,0 +1,75 @@
+package com.supermercado.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Subtotal acumulado da venda conferido com a soma completa dos itens depois de
+ * inclusões, remoções, alterações de quantidade e descontos em qualquer ordem
+ */
+class VendaTest {
+
+    @Test
+    void subtotalAcumuladoBateComASomaCompleta() {
+        Random random = new Random(3);
+        for (int v = 0; v < 200; v++) {
+            Venda venda = new Venda();
+            List<ItemVenda> itens = new ArrayList<>();
+            for (int passo = 0; passo < 500; passo++) {
+                int operacao = random.nextInt(10);
+                if (operacao < 5 || itens.isEmpty()) {
+                    ItemVenda item = new ItemVenda(produto(passo, random), 1 + random.nextInt(5));
+                    venda.adicionarItem(item);
+                    itens.add(item);
+                } else if (operacao < 7) {
+                    // Cancelamentos do último item e de itens do meio
+                    int indice = random.nextBoolean() ? itens.size() - 1 : random.nextInt(itens.size());
+                    venda.removerItem(itens.remove(indice));
+                } else if (operacao < 9) {
+                    venda.alterarQuantidadeItem(itens.get(random.nextInt(itens.size())), 1 + random.nextInt(20));
+                } else {
+                    venda.setDescontoPercentual(BigDecimal.valueOf(random.nextInt(2_001), 2));
+                    venda.atualizarTotais();
+                }
+
+                assertTrue(venda.isTotaisConsistentes(), "venda " + v + ", passo " + passo);
+            }
+
+            assertEquals(itens, venda.getItens());
+            BigDecimal soma = BigDecimal.ZERO;
+            for (ItemVenda item : itens) {
+                soma = soma.add(item.getSubtotal());
+            }
+            assertEquals(0, soma.compareTo(venda.getSubtotal()));
+        }
+    }
+
+    @Test
+    void removerItemQueNaoEstaNaVendaNaoAlteraOsTotais() {
+        Venda venda = new Venda();
+        ItemVenda item = new ItemVenda(produto(1, new Random(4)), 2);
+        venda.adicionarItem(item);
+        BigDecimal total = venda.getTotal();
+
+        venda.removerItem(new ItemVenda(produto(2, new Random(5)), 1));
+
+        assertEquals(0, total.compareTo(venda.getTotal()));
+        assertEquals(1, venda.getItens().size());
+        assertTrue(venda.isTotaisConsistentes());
+    }
+
+    private static Produto produto(int i, Random random) {
+        Produto produto = new Produto();
+        produto.setId((long) i + 1);
+        produto.setCodigoBarras("789" + (100_000 + i));
+        produto.setNome("Produto " + i);
+        produto.setPrecoVenda(BigDecimal.valueOf(1 + random.nextInt(20_000), 2));
+        return produto;
+    }
+}
@@ -0,0 +1,169 @@
+package com.supermercado.repository;
+
+import com.supermercado.model.Categoria;
+import com.supermercado.model.ItemVenda;
+import com.supermercado.model.Produto;
+import com.supermercado.model.Usuario;
+import com.supermercado.model.Venda;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Totais por hora em vendas_agregadas: soma incremental (com linhas novas e existentes),
+ * retirada no cancelamento, produto chaveado pelo ID e reconstrução a partir das vendas
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("teste")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:agregados;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@Import(VendaAgregadaRepository.class)
+class VendaAgregadaRepositoryTest {
+
+    private static final LocalDateTime DIA = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired
+    private VendaAgregadaRepository vendaAgregadaRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Usuario operador;
+    private final List<Produto> produtos = new ArrayList<>();
+
+    @BeforeEach
+    void popular() {
+        vendaAgregadaRepository.criarTabelaSeNecessario();
+
+        operador = new Usuario();
+        operador.setUsername("caixa1");
+        operador.setSenha("x");
+        operador.setNome("Operador 1");
+        entityManager.persist(operador);
+
+        Categoria categoria = new Categoria();
+        categoria.setNome("Mercearia");
+        entityManager.persist(categoria);
+        for (int i = 0; i < 3; i++) {
+            Produto produto = new Produto();
+            produto.setCodigoBarras("789100000000" + i);
+            produto.setNome("Produto " + i);
+            produto.setCategoria(categoria);
+            produto.setPrecoCusto(new BigDecimal("1.00"));
+            produto.setPrecoVenda(new BigDecimal("2.50").add(BigDecimal.valueOf(i)));
+            produto.setQuantidadeEstoque(1000);
+            entityManager.persist(produto);
+            produtos.add(produto);
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void produtoRenomeadoContinuaNaMesmaLinha() {
+        vendaAgregadaRepository.acumular(venda(DIA.withHour(10), "DINHEIRO", 2, 0), 1);
+
+        Produto produto = produtos.get(0);
+        produto.setNome("Arroz Tipo 1");
+        entityManager.flush();
+        vendaAgregadaRepository.acumular(venda(DIA.withHour(10).withMinute(30), "PIX", 3, 0), 1);
+
+        List<Object[]> ranking = vendaAgregadaRepository.findProdutosMaisVendidos(DIA, DIA.plusDays(1), 10);
+        assertEquals(1, ranking.size());
+        assertEquals("Arroz Tipo 1", ranking.get(0)[0]);
+        assertEquals(5L, ranking.get(0)[1]);
+        assertEquals(0, new BigDecimal("12.50").compareTo((BigDecimal) ranking.get(0)[2]));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM vendas_agregadas WHERE dimensao = 'PRODUTO'", Integer.class));
+    }
+
+    @Test
+    void cancelamentoRetiraAVendaDosTotais() {
+        Venda mantida = venda(DIA.withHour(9), "DINHEIRO", 2, 0);
+        Venda cancelada = venda(DIA.withHour(9).withMinute(20), "PIX", 1, 1, 2);
+        vendaAgregadaRepository.acumular(mantida, 1);
+        vendaAgregadaRepository.acumular(cancelada, 1);
+        assertEquals(2, vendaAgregadaRepository.contarVendas(DIA, DIA.plusDays(1)));
+
+        vendaAgregadaRepository.acumular(cancelada, -1);
+
+        assertEquals(1, vendaAgregadaRepository.contarVendas(DIA, DIA.plusDays(1)));
+        assertEquals(0, mantida.getTotal().compareTo(vendaAgregadaRepository.somarTotal(DIA, DIA.plusDays(1))));
+        List<Object[]> ranking = vendaAgregadaRepository.findProdutosMaisVendidos(DIA, DIA.plusDays(1), 10);
+        assertEquals(1, ranking.size());
+        assertEquals("Produto 0", ranking.get(0)[0]);
+        assertEquals(2L, ranking.get(0)[1]);
+        List<Object[]> pagamentos = vendaAgregadaRepository.totaisPorDimensao(VendaAgregadaRepository.PAGAMENTO,
+                DIA, DIA.plusDays(1));
+        assertEquals("DINHEIRO", pagamentos.get(0)[0]);
+        assertEquals(1L, pagamentos.get(0)[1]);
+    }
+
+    @Test
+    void reconstrucaoBateComOsTotaisIncrementais() {
+        List<Venda> vendas = List.of(
+                venda(DIA.withHour(10).withMinute(5), "DINHEIRO", 1, 0, 1),
+                venda(DIA.withHour(10).withMinute(40), "PIX", 2, 1, 2),
+                venda(DIA.withHour(11).withMinute(10), "DINHEIRO", 3, 0),
+                venda(DIA.withHour(11).withMinute(50), "CARTAO_DEBITO", 1, 2),
+                venda(DIA.withHour(12), "PIX", 4, 0, 2));
+        for (Venda venda : vendas) {
+            vendaAgregadaRepository.acumular(venda, 1);
+        }
+        Venda cancelada = vendas.get(3);
+        cancelada.cancelar();
+        entityManager.flush();
+        vendaAgregadaRepository.acumular(cancelada, -1);
+
+        List<String> incrementais = linhas();
+        int geradas = vendaAgregadaRepository.reconstruir();
+
+        assertEquals(incrementais, linhas());
+        assertEquals(incrementais.size(), geradas);
+        assertTrue(incrementais.contains("2024-03-01 10:00:00.0|PRODUTO|" + produtos.get(1).getId() + "|2|3|10.50"),
+                incrementais.toString());
+    }
+
+    /**
+     * Venda finalizada e gravada com a quantidade informada de cada produto (pelo índice)
+     */
+    private Venda venda(LocalDateTime data, String formaPagamento, int quantidade, int... indicesProdutos) {
+        Venda venda = new Venda();
+        venda.setUsuario(operador);
+        venda.setDataVenda(data);
+        for (int indice : indicesProdutos) {
+            venda.adicionarItem(new ItemVenda(produtos.get(indice), quantidade));
+        }
+        venda.finalizar(formaPagamento, new BigDecimal("1000.00"));
+        entityManager.persist(venda);
+        entityManager.flush();
+        return venda;
+    }
+
+    /**
+     * Linhas com algum valor, em ordem fixa (a retirada de um cancelamento deixa linhas zeradas)
+     */
+    private List<String> linhas() {
+        return jdbcTemplate.query("SELECT periodo, dimensao, chave, quantidade_vendas, quantidade_itens, valor " +
+                "FROM vendas_agregadas WHERE quantidade_vendas <> 0 OR quantidade_itens <> 0 OR valor <> 0 " +
+                "ORDER BY dimensao, periodo, chave",
+                (rs, i) -> rs.getTimestamp(1) + "|" + rs.getString(2) + "|" + rs.getString(3) + "|" + rs.getLong(4)
+                        + "|" + rs.getLong(5) + "|" + rs.getBigDecimal(6).setScale(2));
+    }
+}
@@ -0,0 +1,137 @@
+package com.supermercado.repository;
+
+import com.supermercado.model.Categoria;
+import com.supermercado.model.ItemVenda;
+import com.supermercado.model.ItemVendaResumo;
+import com.supermercado.model.Produto;
+import com.supermercado.model.Usuario;
+import com.supermercado.model.Venda;
+import com.supermercado.model.VendaResumo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Quantidade de comandos SQL das listagens de vendas: as projeções devem ser uma única
+ * consulta, sem o fetch EAGER de usuário, itens, produtos e categorias
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("teste")
+class VendaRepositoryTest {
+
+    private static final int VENDAS = 20;
+    private static final int ITENS_POR_VENDA = 5;
+
+    @Autowired
+    private VendaRepository vendaRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estatisticas;
+    private LocalDateTime inicio;
+    private LocalDateTime fim;
+    private Long primeiraVendaId;
+
+    @BeforeEach
+    void popular() {
+        estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Usuario operador = new Usuario();
+        operador.setUsername("caixa1");
+        operador.setSenha("x");
+        operador.setNome("Operador 1");
+        entityManager.persist(operador);
+
+        List<Produto> produtos = new ArrayList<>();
+        for (int c = 0; c < ITENS_POR_VENDA; c++) {
+            Categoria categoria = new Categoria();
+            categoria.setNome("Categoria " + c);
+            entityManager.persist(categoria);
+
+            Produto produto = new Produto();
+            produto.setCodigoBarras("789000000000" + c);
+            produto.setNome("Produto " + c);
+            produto.setCategoria(categoria);
+            produto.setPrecoCusto(new BigDecimal("1.00"));
+            produto.setPrecoVenda(new BigDecimal("2.50"));
+            produto.setQuantidadeEstoque(1000);
+            entityManager.persist(produto);
+            produtos.add(produto);
+        }
+
+        inicio = LocalDateTime.now().withNano(0).minusHours(1);
+        for (int v = 0; v < VENDAS; v++) {
+            Venda venda = new Venda();
+            venda.setUsuario(operador);
+            venda.setDataVenda(inicio.plusMinutes(v));
+            for (Produto produto : produtos) {
+                venda.adicionarItem(new ItemVenda(produto, v + 1));
+            }
+            venda.finalizar("DINHEIRO", new BigDecimal("1000.00"));
+            entityManager.persist(venda);
+            if (primeiraVendaId == null) {
+                primeiraVendaId = venda.getId();
+            }
+        }
+        fim = inicio.plusHours(2);
+
+        entityManager.flush();
+        entityManager.clear();
+        estatisticas.clear();
+    }
+
+    @Test
+    void listagemPorPeriodoEUmaUnicaConsulta() {
+        List<VendaResumo> resumos = vendaRepository.findResumosPorPeriodo(inicio, fim);
+
+        assertEquals(VENDAS, resumos.size());
+        assertEquals("Operador 1", resumos.get(0).operador());
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void vendasFinalizadasDoDiaEUmaUnicaConsulta() {
+        List<VendaResumo> resumos = vendaRepository.findResumosFinalizadosPorPeriodo(inicio, fim);
+
+        assertEquals(VENDAS, resumos.size());
+        assertTrue(resumos.stream().allMatch(r -> r.status() == Venda.StatusVenda.FINALIZADA));
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void detalhamentoDosItensEUmaUnicaConsulta() {
+        List<ItemVendaResumo> itens = vendaRepository.findItensResumo(primeiraVendaId);
+
+        assertEquals(ITENS_POR_VENDA, itens.size());
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void listagemPelaEntidadeFazUmaConsultaPorVenda() {
+        // Referência: a consulta antiga carrega itens (EAGER) de cada venda em comandos separados
+        List<Venda> vendas = vendaRepository.findByDataVendaBetweenOrderByDataVendaDesc(inicio, fim);
+
+        assertEquals(VENDAS, vendas.size());
+        assertTrue(estatisticas.getPrepareStatementCount() > VENDAS,
+                "esperava N+1 consultas, houve " + estatisticas.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,191 @@
+package com.supermercado.service;
+
+import com.supermercado.model.Categoria;
+import com.supermercado.model.Compra;
+import com.supermercado.model.Fornecedor;
+import com.supermercado.model.ItemCompra;
+import com.supermercado.model.ItemVenda;
+import com.supermercado.model.Produto;
+import com.supermercado.model.Usuario;
+import com.supermercado.model.Venda;
+import com.supermercado.repository.CategoriaRepository;
+import com.supermercado.repository.EstoqueRepository;
+import com.supermercado.repository.FornecedorRepository;
+import com.supermercado.repository.ProdutoRepository;
+import com.supermercado.repository.UsuarioRepository;
+import com.supermercado.repository.VendaAgregadaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comandos SQL enviados ao banco por finalizarVenda (sem o diário, gravação direta) e por
+ * salvarCompra, com 40 itens. Com IDs por sequência em pool, os inserts dos itens saem em
+ * lotes de hibernate.jdbc.batch_size; os serviços que usam SQL só do PostgreSQL ficam simulados.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("teste")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:comandos;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@Import({ VendaService.class, ProdutoService.class, CompraService.class, EstoqueRepository.class, ContadorSql.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ComandosSqlPersistenciaTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ComandosSqlPersistenciaTest.class);
+
+    private static final int ITENS = 40;
+    private static final int MAXIMO_COMANDOS = ITENS / 4;
+
+    @Autowired
+    private VendaService vendaService;
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private ProdutoRepository produtoRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private FornecedorRepository fornecedorRepository;
+
+    @Autowired
+    private ContadorSql contador;
+
+    @MockBean
+    private LogService logService;
+
+    @MockBean
+    private DiarioVendaService diarioVenda;
+
+    @MockBean
+    private VendaAgregadaRepository vendaAgregadaRepository;
+
+    @MockBean
+    private RankingVendasService rankingVendas;
+
+    @MockBean
+    private UsuarioService usuarioService;
+
+    @MockBean
+    private EventosVendaService eventosVenda;
+
+    @MockBean
+    private IndiceCatalogoService indiceCatalogo;
+
+    @MockBean
+    private VersaoCatalogoService versaoCatalogo;
+
+    private Usuario operador;
+    private List<Produto> produtos;
+
+    @BeforeEach
+    void popular() {
+        operador = new Usuario();
+        operador.setUsername("caixa" + System.nanoTime());
+        operador.setSenha("x");
+        operador.setNome("Operador");
+        operador = usuarioRepository.save(operador);
+
+        Categoria categoria = new Categoria();
+        categoria.setNome("Mercearia " + System.nanoTime());
+        categoria = categoriaRepository.save(categoria);
+
+        produtos = new ArrayList<>();
+        long base = System.nanoTime() % 1_000_000_000L;
+        for (int i = 0; i < ITENS; i++) {
+            Produto produto = new Produto();
+            produto.setCodigoBarras(String.valueOf(base * 100 + i));
+            produto.setNome("Produto " + i);
+            produto.setCategoria(categoria);
+            produto.setPrecoCusto(new BigDecimal("1.00"));
+            produto.setPrecoVenda(new BigDecimal("2.50"));
+            produto.setQuantidadeEstoque(1_000);
+            produtos.add(produto);
+        }
+        produtos = produtoRepository.saveAll(produtos);
+        contador.zerar();
+    }
+
+    @Test
+    void finalizarVendaComQuarentaItens() {
+        Venda venda = vendaService.criarNovaVenda(operador);
+        for (Produto produto : produtos) {
+            venda.adicionarItem(new ItemVenda(produto, 2));
+        }
+
+        // Aquece o pool de IDs, como num caixa que já vendeu antes
+        vendaService.finalizarVenda(copia(venda), "DINHEIRO", new BigDecimal("1000.00"));
+        contador.zerar();
+        Venda salva = vendaService.finalizarVenda(venda, "DINHEIRO", new BigDecimal("1000.00"));
+
+        logger.info("finalizarVenda ({} itens): {} comandos SQL, {} linhas em lotes",
+                ITENS, contador.getComandos(), contador.getLinhasEmLote());
+        assertNotNull(salva.getId());
+        // Consulta da chave, insert da venda, 2 lotes de itens, 1 lote de baixa de estoque e,
+        // quando o pool de IDs acaba, uma chamada de sequência (com IDENTITY eram 40 inserts de itens)
+        assertTrue(contador.getComandos() <= MAXIMO_COMANDOS, "comandos: " + contador.getComandos());
+        assertTrue(contador.getLinhasEmLote() >= 2 * ITENS);
+    }
+
+    @Test
+    void salvarCompraComQuarentaItens() {
+        Fornecedor fornecedor = new Fornecedor();
+        fornecedor.setNome("Distribuidora");
+        fornecedor.setCnpj(String.valueOf(System.nanoTime() % 100_000_000_000_000L));
+        fornecedor = fornecedorRepository.save(fornecedor);
+
+        compraService.salvarCompra(compra(fornecedor));
+        contador.zerar();
+        Compra salva = compraService.salvarCompra(compra(fornecedor));
+
+        logger.info("salvarCompra ({} itens): {} comandos SQL, {} linhas em lotes",
+                ITENS, contador.getComandos(), contador.getLinhasEmLote());
+        assertNotNull(salva.getId());
+        // SELECTs do merge dos produtos, insert da compra, 2 lotes de itens, 2 lotes de UPDATE
+        // dos produtos e chamadas de sequência (com IDENTITY eram 40 inserts de itens)
+        assertTrue(contador.getComandos() <= MAXIMO_COMANDOS, "comandos: " + contador.getComandos());
+        assertTrue(contador.getLinhasEmLote() >= 2 * ITENS);
+    }
+
+    private Compra compra(Fornecedor fornecedor) {
+        Compra compra = new Compra();
+        compra.setFornecedor(fornecedor);
+        compra.setUsuario(operador);
+        compra.setNumeroNotaFiscal("NF-" + System.nanoTime());
+        for (Produto produto : produtos) {
+            compra.adicionarItem(new ItemCompra(produto, 12, new BigDecimal("1.10")));
+        }
+        return compra;
+    }
+
+    private static Venda copia(Venda venda) {
+        Venda copia = new Venda();
+        copia.setUsuario(venda.getUsuario());
+        for (ItemVenda item : venda.getItens()) {
+            copia.adicionarItem(new ItemVenda(item.getProduto(), item.getQuantidade()));
+        }
+        return copia;
+    }
+}
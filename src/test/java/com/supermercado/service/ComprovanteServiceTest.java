@@ -0,0 +1,167 @@
+package com.supermercado.service;
+
+import com.supermercado.model.ItemVenda;
+import com.supermercado.model.Produto;
+import com.supermercado.model.Usuario;
+import com.supermercado.model.Venda;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprovantes em PDF gerados no executor dedicado. A medição de p50/p99 (geração completa e
+ * tempo em que a thread que chama, a da interface no caixa, fica ocupada) fica fora da execução
+ * padrão: {@code mvn test -Pbenchmark}.
+ */
+class ComprovanteServiceTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ComprovanteServiceTest.class);
+
+    private static final int AQUECIMENTO = 100;
+    private static final int MEDIDOS = 500;
+    private static final int ITENS = 30;
+
+    private static final File DIRETORIO = new File("comprovantes");
+    private static boolean diretorioExistia;
+
+    @BeforeAll
+    static void verificarDiretorio() {
+        // ComprovantePDF cria o diretório ao ser carregada; só é removido no fim se não existia
+        diretorioExistia = DIRETORIO.exists();
+    }
+
+    @AfterAll
+    static void removerDiretorio() {
+        String[] restantes = DIRETORIO.list();
+        if (!diretorioExistia && restantes != null && restantes.length == 0) {
+            DIRETORIO.delete();
+        }
+    }
+
+    @Test
+    void geraUmComprovanteValido() throws Exception {
+        ComprovanteService service = new ComprovanteService();
+        try {
+            File arquivo = service.gerar(venda(0)).get(30, TimeUnit.SECONDS);
+
+            assertPdf(arquivo);
+            excluir(arquivo);
+        } finally {
+            service.encerrar();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void p99DaGeracaoEDaThreadQueChama() throws Exception {
+        ComprovanteService service = new ComprovanteService();
+        try {
+            for (int i = 0; i < AQUECIMENTO; i++) {
+                excluir(service.gerar(venda(i)).get(30, TimeUnit.SECONDS));
+            }
+
+            long[] chamada = new long[MEDIDOS];
+            long[] geracao = new long[MEDIDOS];
+            for (int i = 0; i < MEDIDOS; i++) {
+                Venda venda = venda(i);
+                long inicio = System.nanoTime();
+                CompletableFuture<File> futuro = service.gerar(venda);
+                chamada[i] = System.nanoTime() - inicio;
+                File arquivo = futuro.get(30, TimeUnit.SECONDS);
+                geracao[i] = System.nanoTime() - inicio;
+
+                assertPdf(arquivo);
+                excluir(arquivo);
+            }
+
+            logger.info(String.format("comprovante (%d itens): geração p50 %.2f ms, p99 %.2f ms, máx %.2f ms; "
+                            + "thread que chama p50 %.3f ms, p99 %.3f ms",
+                    ITENS, ms(percentil(geracao, 50)), ms(percentil(geracao, 99)), ms(percentil(geracao, 100)),
+                    ms(percentil(chamada, 50)), ms(percentil(chamada, 99))));
+        } finally {
+            service.encerrar();
+        }
+    }
+
+    @Test
+    void falhaNaGeracaoConcluiOFuturoComExcecao() {
+        ComprovanteService service = new ComprovanteService();
+        try {
+            Venda semUsuario = venda(1);
+            semUsuario.setUsuario(null);
+
+            CompletableFuture<File> futuro = service.gerar(semUsuario);
+
+            Exception erro = assertThrows(Exception.class, () -> futuro.get(30, TimeUnit.SECONDS));
+            assertInstanceOf(RuntimeException.class, erro.getCause());
+            // O arquivo incompleto é fechado e excluído
+            String[] restantes = DIRETORIO.list((dir, nome) -> nome.startsWith("venda_" + semUsuario.getId() + "_"));
+            assertEquals(0, restantes.length, Arrays.toString(restantes));
+        } finally {
+            service.encerrar();
+        }
+    }
+
+    private static long percentil(long[] valores, int percentil) {
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        int indice = (int) Math.ceil(percentil / 100.0 * ordenados.length) - 1;
+        return ordenados[Math.max(0, indice)];
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static void assertPdf(File arquivo) throws IOException {
+        byte[] conteudo = Files.readAllBytes(arquivo.toPath());
+        assertTrue(conteudo.length > 1_000, arquivo + ": " + conteudo.length + " bytes");
+        assertEquals("%PDF-", new String(conteudo, 0, 5));
+    }
+
+    private static void excluir(File arquivo) throws IOException {
+        Files.deleteIfExists(arquivo.toPath());
+    }
+
+    private static Venda venda(int semente) {
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        usuario.setNome("Operador de Caixa");
+
+        Venda venda = new Venda();
+        venda.setId((long) semente + 1);
+        venda.setUsuario(usuario);
+        venda.setDataVenda(LocalDateTime.now());
+        venda.setChaveIdempotencia(UUID.randomUUID().toString());
+        List<ItemVenda> itens = new ArrayList<>();
+        for (int i = 0; i < ITENS; i++) {
+            Produto produto = new Produto();
+            produto.setId((long) i + 1);
+            produto.setCodigoBarras("78912345" + (1000 + i));
+            produto.setNome("Produto de mercearia com nome longo " + i);
+            produto.setPrecoVenda(BigDecimal.valueOf(150 + (semente + i) * 37L % 5_000, 2));
+            itens.add(new ItemVenda(produto, 1 + i % 4));
+        }
+        itens.forEach(venda::adicionarItem);
+        venda.setDescontoPercentual(new BigDecimal("3.00"));
+        venda.finalizar("DINHEIRO", new BigDecimal("5000.00"));
+        return venda;
+    }
+}
@@ -0,0 +1,77 @@
+package com.supermercado.service;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envolve o DataSource do contexto de teste e conta os comandos que chegam ao banco:
+ * cada execute/executeQuery/executeUpdate e cada executeBatch (um lote inteiro) conta
+ * como uma ida ao banco; as linhas incluídas em lotes são contadas à parte
+ */
+class ContadorSql implements BeanPostProcessor {
+
+    private final AtomicLong comandos = new AtomicLong();
+    private final AtomicLong linhasEmLote = new AtomicLong();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return envolver(dataSource, DataSource.class);
+        }
+        return bean;
+    }
+
+    long getComandos() {
+        return comandos.get();
+    }
+
+    long getLinhasEmLote() {
+        return linhasEmLote.get();
+    }
+
+    void zerar() {
+        comandos.set(0);
+        linhasEmLote.set(0);
+    }
+
+    private Object envolver(Object alvo, Class<?> tipo) {
+        InvocationHandler handler = (proxy, metodo, argumentos) -> {
+            contar(metodo);
+            Object resultado;
+            try {
+                resultado = metodo.invoke(alvo, argumentos);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (resultado instanceof Connection || resultado instanceof Statement) {
+                Class<?> interfaceRetornada = metodo.getReturnType();
+                if (interfaceRetornada.isInterface()) {
+                    return envolver(resultado, interfaceRetornada);
+                }
+            }
+            return resultado;
+        };
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { tipo }, handler);
+    }
+
+    private void contar(Method metodo) {
+        if (!Statement.class.isAssignableFrom(metodo.getDeclaringClass())) {
+            return;
+        }
+        switch (metodo.getName()) {
+            case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch",
+                    "executeLargeBatch" -> comandos.incrementAndGet();
+            case "addBatch" -> linhasEmLote.incrementAndGet();
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.supermercado.service;
+
+import com.supermercado.model.Dinheiro;
+import com.supermercado.model.ItemVenda;
+import com.supermercado.model.Produto;
+import com.supermercado.model.Usuario;
+import com.supermercado.model.Venda;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Diário de vendas em arquivos mapeados: gravação, CRC, troca de geração na compactação,
+ * recuperação ao reabrir e registros descartados
+ */
+class DiarioVendaServiceTest {
+
+    private static final int CABECALHO = 16;
+    private static final int CABECALHO_REGISTRO = 9;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void recuperaAoReabrirSoOsRegistrosNaoReplicados() {
+        DiarioVendaService diario = abrir();
+        List<Venda> vendas = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Venda venda = venda(i, 3);
+            vendas.add(venda);
+            diario.registrar(venda);
+        }
+        for (int i = 0; i < 3; i++) {
+            diario.marcarReplicado(diario.proximoPendente());
+        }
+
+        DiarioVendaService reaberto = abrir();
+
+        List<DiarioVendaService.Registro> pendentes = reaberto.listarPendentes();
+        assertEquals(7, pendentes.size());
+        for (int i = 0; i < pendentes.size(); i++) {
+            assertTrue(pendentes.get(i).isRecuperado());
+            assertMesmaVenda(vendas.get(i + 3), reaberto.lerVenda(pendentes.get(i)));
+        }
+    }
+
+    @Test
+    void registroComCrcInvalidoEncerraARecuperacao() throws IOException {
+        DiarioVendaService diario = abrir();
+        Venda primeira = venda(1, 2);
+        diario.registrar(primeira);
+        diario.registrar(venda(2, 2));
+        diario.registrar(venda(3, 2));
+
+        // Corrompe um byte do conteúdo do segundo registro
+        try (RandomAccessFile arquivo = new RandomAccessFile(arquivo(0), "rw")) {
+            arquivo.seek(CABECALHO);
+            int segundo = CABECALHO + CABECALHO_REGISTRO + arquivo.readInt();
+            arquivo.seek(segundo + CABECALHO_REGISTRO + 20);
+            int original = arquivo.read();
+            arquivo.seek(segundo + CABECALHO_REGISTRO + 20);
+            arquivo.write(original ^ 0xFF);
+        }
+
+        DiarioVendaService reaberto = abrir();
+
+        assertEquals(1, reaberto.listarPendentes().size());
+        assertMesmaVenda(primeira, reaberto.lerVenda(reaberto.proximoPendente()));
+
+        // A próxima gravação continua de onde o último registro válido terminou
+        Venda seguinte = venda(4, 2);
+        reaberto.registrar(seguinte);
+        DiarioVendaService deNovo = abrir();
+        assertEquals(2, deNovo.listarPendentes().size());
+        assertMesmaVenda(seguinte, deNovo.lerVenda(deNovo.listarPendentes().get(1)));
+    }
+
+    @Test
+    void gravacaoInterrompidaAntesDoTamanhoNaoERecuperada() throws IOException {
+        DiarioVendaService diario = abrir();
+        diario.registrar(venda(1, 2));
+        diario.registrar(venda(2, 2));
+
+        // O tamanho é o último campo gravado: zerado, o registro nunca existiu
+        try (RandomAccessFile arquivo = new RandomAccessFile(arquivo(0), "rw")) {
+            arquivo.seek(CABECALHO);
+            int segundo = CABECALHO + CABECALHO_REGISTRO + arquivo.readInt();
+            arquivo.seek(segundo);
+            arquivo.writeInt(0);
+        }
+
+        assertEquals(1, abrir().listarPendentes().size());
+    }
+
+    @Test
+    void compactacaoTrocaDeArquivoEAumentaAGeracao() throws IOException {
+        DiarioVendaService diario = abrir();
+        int capacidade = diario.getMetricas().capacidade();
+        while (diario.getMetricas().bytesUsados() <= capacidade / 2) {
+            diario.registrar(venda(1, 20));
+        }
+        while (diario.proximoPendente() != null) {
+            diario.marcarReplicado(diario.proximoPendente());
+        }
+
+        diario.compactarSeNecessario();
+
+        assertEquals(CABECALHO, diario.getMetricas().bytesUsados());
+        assertEquals(1, geracao(0));
+        assertEquals(2, geracao(1));
+
+        // Depois da troca, a reabertura lê o arquivo de geração maior
+        Venda depois = venda(2, 1);
+        diario.registrar(depois);
+        DiarioVendaService reaberto = abrir();
+        assertEquals(1, reaberto.listarPendentes().size());
+        assertMesmaVenda(depois, reaberto.lerVenda(reaberto.proximoPendente()));
+    }
+
+    @Test
+    void diarioCheioDePendentesRecusaEDepoisCompactaAoGravar() {
+        DiarioVendaService diario = abrir();
+        int gravadas = 0;
+        IllegalStateException cheio = null;
+        while (cheio == null) {
+            try {
+                diario.registrar(venda(gravadas, 20));
+                gravadas++;
+            } catch (IllegalStateException e) {
+                cheio = e;
+            }
+        }
+        assertEquals("Diário de vendas cheio", cheio.getMessage());
+        assertEquals(gravadas, diario.listarPendentes().size());
+
+        // Replicadas as mais antigas, a gravação compacta o arquivo e mantém as demais pendentes
+        for (int i = 0; i < gravadas / 2; i++) {
+            diario.marcarReplicado(diario.proximoPendente());
+        }
+        diario.registrar(venda(gravadas, 20));
+
+        assertEquals(gravadas - gravadas / 2 + 1, diario.listarPendentes().size());
+        assertEquals(gravadas - gravadas / 2 + 1, abrir().listarPendentes().size());
+    }
+
+    @Test
+    void descartadoSaiDaFilaMasContinuaNoDiario() {
+        DiarioVendaService diario = abrir();
+        Venda recusada = venda(1, 2);
+        Venda seguinte = venda(2, 2);
+        diario.registrar(recusada);
+        diario.registrar(seguinte);
+
+        diario.marcarDescartado(diario.proximoPendente());
+
+        assertEquals(1, diario.getMetricas().descartadas());
+        assertMesmaVenda(seguinte, diario.lerVenda(diario.proximoPendente()));
+
+        DiarioVendaService reaberto = abrir();
+        assertEquals(1, reaberto.getMetricas().descartadas());
+        assertEquals(1, reaberto.getMetricas().pendentes());
+        assertMesmaVenda(seguinte, reaberto.lerVenda(reaberto.proximoPendente()));
+
+        // A compactação copia o descartado para o arquivo novo
+        while (reaberto.getMetricas().bytesUsados() <= reaberto.getMetricas().capacidade() / 2) {
+            reaberto.registrar(venda(3, 20));
+        }
+        while (reaberto.proximoPendente() != null) {
+            reaberto.marcarReplicado(reaberto.proximoPendente());
+        }
+        reaberto.compactarSeNecessario();
+
+        DiarioVendaService compactado = abrir();
+        assertEquals(1, compactado.getMetricas().descartadas());
+        assertEquals(0, compactado.getMetricas().pendentes());
+    }
+
+    @Test
+    void marcarForaDaCabecaDaFilaNaoFazNada() {
+        DiarioVendaService diario = abrir();
+        diario.registrar(venda(1, 1));
+        diario.registrar(venda(2, 1));
+        DiarioVendaService.Registro segundo = diario.listarPendentes().get(1);
+
+        diario.marcarReplicado(segundo);
+        diario.marcarDescartado(segundo);
+
+        assertEquals(2, diario.getMetricas().pendentes());
+        assertEquals(0, diario.getMetricas().descartadas());
+    }
+
+    @Test
+    void totaisPendentesDoDiaSomamComoBigDecimal() {
+        DiarioVendaService diario = abrir();
+        List<Venda> vendas = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Venda venda = venda(i, 1 + i % 7);
+            vendas.add(venda);
+            diario.registrar(venda);
+        }
+        Venda ontem = venda(99, 2);
+        ontem.setDataVenda(LocalDateTime.now().minusDays(1));
+        diario.registrar(ontem);
+        diario.marcarReplicado(diario.proximoPendente());
+
+        Map<String, Dinheiro> totais = diario.totaisPendentesDoDia(LocalDate.now());
+
+        BigDecimal esperado = BigDecimal.ZERO;
+        for (Venda venda : vendas.subList(1, vendas.size())) {
+            esperado = esperado.add(venda.getTotal());
+        }
+        BigDecimal soma = BigDecimal.ZERO;
+        for (Dinheiro total : totais.values()) {
+            soma = soma.add(total.paraBigDecimal());
+        }
+        assertEquals(24, totais.size());
+        assertFalse(totais.containsKey(vendas.get(0).getChaveIdempotencia()));
+        assertFalse(totais.containsKey(ontem.getChaveIdempotencia()));
+        assertEquals(0, soma.compareTo(esperado));
+    }
+
+    private DiarioVendaService abrir() {
+        DiarioVendaService diario = new DiarioVendaService(true, diretorio.toString(), 1);
+        diario.abrir();
+        return diario;
+    }
+
+    private File arquivo(int indice) {
+        return diretorio.resolve("vendas-" + indice + ".diario").toFile();
+    }
+
+    private long geracao(int indice) throws IOException {
+        try (RandomAccessFile arquivo = new RandomAccessFile(arquivo(indice), "r")) {
+            arquivo.seek(8);
+            return arquivo.readLong();
+        }
+    }
+
+    private static Venda venda(int semente, int itens) {
+        Usuario usuario = new Usuario();
+        usuario.setId(7L);
+
+        Venda venda = new Venda();
+        venda.setUsuario(usuario);
+        venda.setDataVenda(LocalDateTime.now().withNano(0));
+        for (int i = 0; i < itens; i++) {
+            Produto produto = new Produto();
+            produto.setId(100L + i);
+            produto.setCodigoBarras("78900000" + (1000 + i));
+            produto.setNome("Produto " + i);
+            produto.setPrecoVenda(new BigDecimal(String.format("%d.%02d", 1 + (semente + i) % 50, (semente * 37 + i) % 100)));
+            venda.adicionarItem(new ItemVenda(produto, 1 + (semente + i) % 4));
+        }
+        venda.setDescontoPercentual(new BigDecimal("2.50"));
+        venda.finalizar("DINHEIRO", new BigDecimal("10000.00"));
+        venda.setChaveIdempotencia(UUID.randomUUID().toString());
+        return venda;
+    }
+
+    private static void assertMesmaVenda(Venda esperada, Venda lida) {
+        assertEquals(esperada.getChaveIdempotencia(), lida.getChaveIdempotencia());
+        assertEquals(esperada.getDataVenda(), lida.getDataVenda());
+        assertEquals(esperada.getUsuario().getId(), lida.getUsuario().getId());
+        assertEquals(esperada.getItens().size(), lida.getItens().size());
+        for (int i = 0; i < esperada.getItens().size(); i++) {
+            ItemVenda a = esperada.getItens().get(i);
+            ItemVenda b = lida.getItens().get(i);
+            assertEquals(a.getProduto().getId(), b.getProduto().getId());
+            assertEquals(a.getQuantidade(), b.getQuantidade());
+            assertEquals(0, a.getSubtotal().compareTo(b.getSubtotal()));
+        }
+        assertEquals(0, esperada.getTotal().compareTo(lida.getTotal()));
+        assertEquals(0, esperada.getValorPago().compareTo(lida.getValorPago()));
+    }
+}
@@ -0,0 +1,97 @@
+package com.supermercado.service;
+
+import com.supermercado.model.ProdutoResumo;
+import com.supermercado.repository.ProdutoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Estoque do índice com reservas do diário de vendas: as fotografias do banco
+ * (carga e registro após escrita) não apagam as reservas pendentes
+ */
+class IndiceCatalogoServiceTest {
+
+    private static final long ID = 1L;
+
+    private final ProdutoRepository produtoRepository = mock(ProdutoRepository.class);
+    private final IndiceCatalogoService indice = new IndiceCatalogoService(produtoRepository);
+
+    @BeforeEach
+    void carregar() {
+        when(produtoRepository.findResumos()).thenReturn(List.of(resumo(100)));
+        indice.carregar();
+    }
+
+    @Test
+    void reservaDescontaDoEstoqueEConfirmacaoNaoMudaOEstoque() {
+        indice.reservarEstoque(ID, 3);
+        assertEquals(97, estoque());
+        assertEquals(3, indice.reservado(ID));
+
+        // A baixa chegou ao banco (100 - 3): a quantidade passa da reserva para o estoque do banco
+        indice.confirmarReserva(ID, 3);
+        assertEquals(97, estoque());
+        assertEquals(0, indice.reservado(ID));
+    }
+
+    @Test
+    void fotografiaDoBancoMantemAsReservasPendentes() {
+        indice.reservarEstoque(ID, 3);
+        indice.reservarEstoque(ID, 2);
+
+        // Edição do produto ou compra gravada: o banco ainda não recebeu as baixas do diário
+        indice.registrar(resumo(120));
+        assertEquals(115, estoque());
+
+        when(produtoRepository.findResumos()).thenReturn(List.of(resumo(120)));
+        indice.carregar();
+        assertEquals(115, estoque());
+        assertEquals(5, indice.reservado(ID));
+    }
+
+    @Test
+    void descarteDevolveAReserva() {
+        indice.reservarEstoque(ID, 4);
+        indice.liberarReserva(ID, 4);
+
+        assertEquals(100, estoque());
+        assertEquals(0, indice.reservado(ID));
+        indice.registrar(resumo(100));
+        assertEquals(100, estoque());
+    }
+
+    @Test
+    void replicacaoAntesDaReservaTerminaNoMesmoEstoque() {
+        // O aviso de nova venda no diário pode replicar antes de a reserva ser feita
+        indice.confirmarReserva(ID, 3);
+        indice.reservarEstoque(ID, 3);
+        assertEquals(0, indice.reservado(ID));
+
+        indice.registrar(resumo(97));
+        assertEquals(97, estoque());
+    }
+
+    @Test
+    void reservaDeProdutoForaDoIndiceValeQuandoEleEntra() {
+        indice.reservarEstoque(2L, 5);
+
+        indice.registrar(new ProdutoResumo(2L, "7891000000002", "Feijão", BigDecimal.TEN, 30, "UN", true));
+
+        assertEquals(25, indice.buscarPorId(2L).orElseThrow().quantidadeEstoque());
+    }
+
+    private int estoque() {
+        return indice.buscarPorId(ID).orElseThrow().quantidadeEstoque();
+    }
+
+    private static ProdutoResumo resumo(int estoque) {
+        return new ProdutoResumo(ID, "7891000000001", "Arroz", BigDecimal.TEN, estoque, "UN", true);
+    }
+}
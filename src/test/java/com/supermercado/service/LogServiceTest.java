@@ -0,0 +1,123 @@
+package com.supermercado.service;
+
+import com.supermercado.model.LogAcao;
+import com.supermercado.repository.LogAcaoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Gravação da auditoria em lote: novas tentativas em falha transitória do banco,
+ * gravação um a um em falha definitiva e a política BLOQUEAR com a fila cheia
+ */
+class LogServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final List<String> gravados = new CopyOnWriteArrayList<>();
+    private LogService logService;
+
+    @AfterEach
+    void encerrar() {
+        if (logService != null) {
+            logService.encerrar();
+        }
+    }
+
+    @Test
+    void loteComFalhaTransitoriaEGravadoNaNovaTentativa() throws Exception {
+        AtomicInteger falhas = new AtomicInteger(3);
+        simularBanco(lote -> {
+            if (falhas.getAndDecrement() > 0) {
+                throw new TransientDataAccessResourceException("Conexão recusada");
+            }
+        });
+        logService = iniciar(100, LogService.PoliticaFilaCheia.BLOQUEAR);
+
+        for (int i = 0; i < 5; i++) {
+            logService.registrarLog(null, LogAcao.TipoAcao.UPDATE, "Produto", (long) i, "registro " + i);
+        }
+
+        aguardar(() -> gravados.size() == 5);
+        assertEquals(List.of("registro 0", "registro 1", "registro 2", "registro 3", "registro 4"), gravados);
+        assertEquals(0, logService.getDescartados());
+    }
+
+    @Test
+    void falhaDefinitivaGravaUmAUmEPerdeSoORecusado() throws Exception {
+        simularBanco(lote -> {
+            if (lote.stream().anyMatch(log -> log.getDescricao().equals("inválido"))) {
+                throw new DataIntegrityViolationException("valor longo demais");
+            }
+        });
+        logService = iniciar(100, LogService.PoliticaFilaCheia.BLOQUEAR);
+
+        logService.registrarLog(null, LogAcao.TipoAcao.UPDATE, "Produto", 1L, "antes");
+        logService.registrarLog(null, LogAcao.TipoAcao.UPDATE, "Produto", 2L, "inválido");
+        logService.registrarLog(null, LogAcao.TipoAcao.UPDATE, "Produto", 3L, "depois");
+        logService.flush();
+
+        aguardar(() -> gravados.size() == 2);
+        assertTrue(gravados.containsAll(List.of("antes", "depois")));
+    }
+
+    @Test
+    void filaCheiaBloqueiaEmVezDeDescartar() throws Exception {
+        AtomicInteger falhas = new AtomicInteger(5);
+        simularBanco(lote -> {
+            if (falhas.getAndDecrement() > 0) {
+                throw new TransientDataAccessResourceException("Conexão recusada");
+            }
+        });
+        logService = iniciar(2, LogService.PoliticaFilaCheia.BLOQUEAR);
+
+        for (int i = 0; i < 20; i++) {
+            logService.registrarLog(null, LogAcao.TipoAcao.UPDATE, "Produto", (long) i, "registro " + i);
+        }
+
+        aguardar(() -> gravados.size() == 20);
+        assertEquals(0, logService.getDescartados());
+    }
+
+    private LogService iniciar(int capacidade, LogService.PoliticaFilaCheia politica) {
+        LogService servico = new LogService(mock(LogAcaoRepository.class), jdbcTemplate, capacidade, 10, 5, politica);
+        servico.iniciar();
+        return servico;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void simularBanco(Consumer<List<LogAcao>> verificar) {
+        doAnswer(invocacao -> {
+            List<LogAcao> lote = new ArrayList<>((Collection<LogAcao>) invocacao.getArgument(1));
+            verificar.accept(lote);
+            lote.forEach(log -> gravados.add(log.getDescricao()));
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!condicao.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limite, "tempo esgotado");
+            Thread.sleep(10);
+        }
+    }
+}
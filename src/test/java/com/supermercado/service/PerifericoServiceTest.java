@@ -0,0 +1,304 @@
+package com.supermercado.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fila de impressão térmica contra uma impressora de mentira (ServerSocket local que
+ * separa os comprovantes pelo comando de corte)
+ */
+class PerifericoServiceTest {
+
+    private static final String HOST = "127.0.0.1";
+
+    private final List<ImpressoraFalsa> impressoras = new ArrayList<>();
+    private PerifericoService servico;
+
+    @AfterEach
+    void encerrar() {
+        if (servico != null) {
+            servico.encerrar();
+        }
+        impressoras.forEach(ImpressoraFalsa::parar);
+    }
+
+    @Test
+    void imprimeNaOrdemDeChegada() throws Exception {
+        ImpressoraFalsa impressora = iniciarImpressora(0);
+        servico = iniciarServico(5, 50);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(servico.imprimirComprovanteTermico("Comprovante " + i, HOST, impressora.porta));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals("Comprovante " + i, impressora.proximo(5000));
+        }
+        aguardar(() -> servico.getMetricasImpressao().impressos() == 50);
+        assertEquals(0, servico.getMetricasImpressao().falhas());
+        assertEquals(1, impressora.conexoesAceitas(), "deveria reaproveitar a mesma conexão");
+    }
+
+    @Test
+    void reconectaDepoisQueAImpressoraReinicia() throws Exception {
+        ImpressoraFalsa impressora = iniciarImpressora(0);
+        int porta = impressora.porta;
+        servico = iniciarServico(5, 50);
+
+        servico.imprimirComprovanteTermico("Antes", HOST, porta);
+        assertEquals("Antes", impressora.proximo(5000));
+
+        impressora.parar();
+        ImpressoraFalsa reiniciada = iniciarImpressora(porta);
+
+        servico.imprimirComprovanteTermico("Depois 1", HOST, porta);
+        servico.imprimirComprovanteTermico("Depois 2", HOST, porta);
+        assertEquals("Depois 1", reiniciada.proximo(5000));
+        assertEquals("Depois 2", reiniciada.proximo(5000));
+        assertEquals(0, servico.getMetricasImpressao().falhas());
+    }
+
+    @Test
+    void tentaDeNovoComEsperaCrescenteQuandoAConexaoERecusada() throws Exception {
+        int porta = portaLivre();
+        servico = iniciarServico(4, 100);
+
+        long inicio = System.nanoTime();
+        servico.imprimirComprovanteTermico("Perdido", HOST, porta);
+        aguardar(() -> servico.getMetricasImpressao().falhas() == 1);
+        long decorridoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        // 4 tentativas: esperas de 100, 200 e 400 ms entre elas
+        assertTrue(decorridoMs >= 700, "esperou só " + decorridoMs + " ms");
+        assertEquals(0, servico.getMetricasImpressao().impressos());
+        assertEquals(1, servico.getMetricasImpressao().impressoras().get(0).falhasSeguidas());
+    }
+
+    @Test
+    void entregaQuandoAImpressoraVoltaDuranteAsRetentativas() throws Exception {
+        int porta = portaLivre();
+        servico = iniciarServico(5, 200);
+
+        servico.imprimirComprovanteTermico("Atrasado", HOST, porta);
+        Thread.sleep(300);
+        ImpressoraFalsa impressora = iniciarImpressora(porta);
+
+        assertEquals("Atrasado", impressora.proximo(5000));
+        aguardar(() -> servico.getMetricasImpressao().impressos() == 1);
+        assertEquals(0, servico.getMetricasImpressao().falhas());
+    }
+
+    @Test
+    void impressoraForaDoArNaoAtrasaAsOutras() throws Exception {
+        int portaMorta = portaLivre();
+        ImpressoraFalsa viva = iniciarImpressora(0);
+        servico = iniciarServico(5, 1000);
+
+        servico.imprimirComprovanteTermico("Sem destino", HOST, portaMorta);
+        Thread.sleep(100);
+        long inicio = System.nanoTime();
+        servico.imprimirComprovanteTermico("Outro caixa", HOST, viva.porta);
+
+        assertEquals("Outro caixa", viva.proximo(5000));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) < 1000,
+                "a impressora viva esperou as retentativas da outra");
+        PerifericoService.MetricasImpressao metricas = servico.getMetricasImpressao();
+        assertEquals(2, metricas.impressoras().size());
+        assertEquals(0, metricas.falhas());
+    }
+
+    private PerifericoService iniciarServico(int tentativas, long esperaInicialMs) {
+        PerifericoService novo = new PerifericoService(200, tentativas, esperaInicialMs, 30_000, 1000);
+        novo.iniciar();
+        return novo;
+    }
+
+    private ImpressoraFalsa iniciarImpressora(int porta) throws IOException {
+        ImpressoraFalsa impressora = new ImpressoraFalsa(porta);
+        impressoras.add(impressora);
+        return impressora;
+    }
+
+    private static int portaLivre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!condicao.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                fail("Condição não atingida a tempo");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Impressora ESC/POS de mentira: aceita conexões, responde ao pedido de status
+     * (DLE EOT) e guarda o texto de cada comprovante recebido
+     */
+    private static final class ImpressoraFalsa {
+        private static final byte[] INICIALIZAR = { 0x1B, 0x40 };
+        private static final byte[] CORTAR = { 0x1D, 0x56, 0x41, 0x10 };
+        private static final byte[] STATUS = { 0x10, 0x04, 0x01 };
+        private static final Charset CP850 = Charset.forName("CP850");
+
+        private final ServerSocket servidor;
+        private final int porta;
+        private final BlockingQueue<String> recebidos = new LinkedBlockingQueue<>();
+        private final List<Socket> clientes = new CopyOnWriteArrayList<>();
+        private volatile int conexoes;
+
+        ImpressoraFalsa(int porta) throws IOException {
+            servidor = new ServerSocket();
+            servidor.setReuseAddress(true);
+            // Ao reiniciar na mesma porta, o fechamento da instância anterior pode levar um instante
+            for (int tentativa = 1; ; tentativa++) {
+                try {
+                    servidor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta));
+                    break;
+                } catch (BindException e) {
+                    if (tentativa == 50) {
+                        throw e;
+                    }
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                }
+            }
+            this.porta = servidor.getLocalPort();
+            Thread aceitador = new Thread(this::aceitar, "impressora-falsa-" + this.porta);
+            aceitador.setDaemon(true);
+            aceitador.start();
+        }
+
+        String proximo(long timeoutMs) throws InterruptedException {
+            String texto = recebidos.poll(timeoutMs, TimeUnit.MILLISECONDS);
+            assertNotNull(texto, "nenhum comprovante recebido na porta " + porta);
+            return texto;
+        }
+
+        int conexoesAceitas() {
+            return conexoes;
+        }
+
+        void parar() {
+            try {
+                servidor.close();
+            } catch (IOException e) {
+                // já fechado
+            }
+            for (Socket cliente : clientes) {
+                try {
+                    cliente.close();
+                } catch (IOException e) {
+                    // já fechado
+                }
+            }
+        }
+
+        private void aceitar() {
+            while (!servidor.isClosed()) {
+                try {
+                    Socket cliente = servidor.accept();
+                    conexoes++;
+                    clientes.add(cliente);
+                    Thread leitor = new Thread(() -> ler(cliente), "impressora-falsa-leitor");
+                    leitor.setDaemon(true);
+                    leitor.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void ler(Socket cliente) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (cliente) {
+                InputStream entrada = cliente.getInputStream();
+                byte[] bloco = new byte[4096];
+                int lidos;
+                while ((lidos = entrada.read(bloco)) >= 0) {
+                    buffer.write(bloco, 0, lidos);
+                    byte[] dados = buffer.toByteArray();
+                    int consumidos = processar(dados, cliente);
+                    buffer.reset();
+                    buffer.write(dados, consumidos, dados.length - consumidos);
+                }
+            } catch (IOException e) {
+                // conexão encerrada
+            }
+        }
+
+        /**
+         * Separa os comprovantes completos do que chegou e devolve quantos bytes foram usados
+         */
+        private int processar(byte[] dados, Socket cliente) throws IOException {
+            int inicio = 0;
+            while (true) {
+                if (comecaCom(dados, inicio, STATUS)) {
+                    cliente.getOutputStream().write(0x12);
+                    inicio += STATUS.length;
+                    continue;
+                }
+                int corte = indice(dados, inicio, CORTAR);
+                if (corte < 0) {
+                    return inicio;
+                }
+                byte[] comprovante = Arrays.copyOfRange(dados, inicio, corte);
+                String texto = new String(comprovante, CP850);
+                if (comecaCom(comprovante, 0, INICIALIZAR)) {
+                    texto = texto.substring(INICIALIZAR.length);
+                }
+                recebidos.add(texto.strip());
+                inicio = corte + CORTAR.length;
+            }
+        }
+
+        private static boolean comecaCom(byte[] dados, int inicio, byte[] prefixo) {
+            if (dados.length - inicio < prefixo.length) {
+                return false;
+            }
+            for (int i = 0; i < prefixo.length; i++) {
+                if (dados[inicio + i] != prefixo[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int indice(byte[] dados, int inicio, byte[] trecho) {
+            for (int i = inicio; i <= dados.length - trecho.length; i++) {
+                if (comecaCom(dados, i, trecho)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
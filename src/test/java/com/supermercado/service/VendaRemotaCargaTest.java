@@ -0,0 +1,272 @@
+package com.supermercado.service;
+
+import com.supermercado.model.Categoria;
+import com.supermercado.model.PedidoVenda;
+import com.supermercado.model.Produto;
+import com.supermercado.model.Usuario;
+import com.supermercado.repository.CategoriaRepository;
+import com.supermercado.repository.EstoqueRepository;
+import com.supermercado.repository.ProdutoRepository;
+import com.supermercado.repository.UsuarioRepository;
+import com.supermercado.repository.VendaAgregadaRepository;
+import com.supermercado.repository.VendaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Caixas remotos simultâneos em {@link VendaService#registrarVendaRemota}: consistência do estoque
+ * e da idempotência com poucos caixas e, sob {@code -Pbenchmark}, vazão e latência p50/p99 com 32.
+ * Roda no H2 (modo PostgreSQL) com o pool do Hikari da aplicação; os totais por hora e o ranking,
+ * que usam SQL só do PostgreSQL, ficam simulados.
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("teste")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:carga;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.jpa.properties.hibernate.generate_statistics=false",
+        "logging.level.com.supermercado.service.VendaService=WARN",
+        "logging.level.com.supermercado.service.ProdutoService=WARN" })
+@Import({ VendaService.class, ProdutoService.class, UsuarioService.class, IndiceCatalogoService.class,
+        VersaoCatalogoService.class, EstoqueRepository.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VendaRemotaCargaTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VendaRemotaCargaTest.class);
+
+    private static final int CAIXAS = 32;
+    private static final int VENDAS_AQUECIMENTO = 5;
+    private static final int VENDAS_POR_CAIXA = 50;
+    private static final int PRODUTOS = 500;
+    private static final int ESTOQUE_INICIAL = 1_000_000;
+
+    @Autowired
+    private VendaService vendaService;
+
+    @Autowired
+    private IndiceCatalogoService indiceCatalogo;
+
+    @Autowired
+    private ProdutoRepository produtoRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private VendaRepository vendaRepository;
+
+    @MockBean
+    private LogService logService;
+
+    @MockBean
+    private DiarioVendaService diarioVenda;
+
+    @MockBean
+    private VendaAgregadaRepository vendaAgregadaRepository;
+
+    @MockBean
+    private RankingVendasService rankingVendas;
+
+    @MockBean
+    private EventosVendaService eventosVenda;
+
+    private Long usuarioId;
+
+    private List<Produto> produtos;
+
+    @BeforeEach
+    void popular() {
+        // O banco do contexto é compartilhado entre os testes: popula só na primeira vez
+        usuarioId = usuarioRepository.findByUsername("autoatendimento").map(Usuario::getId).orElseGet(() -> {
+            Usuario operador = new Usuario();
+            operador.setUsername("autoatendimento");
+            operador.setSenha("x");
+            operador.setNome("Autoatendimento");
+            return usuarioRepository.save(operador).getId();
+        });
+        produtos = produtoRepository.count() == 0 ? popularCatalogo()
+                : produtoRepository.findAll().stream().sorted(Comparator.comparing(Produto::getCodigoBarras)).toList();
+        indiceCatalogo.carregar();
+    }
+
+    @Test
+    void caixasSimultaneosMantemEstoqueEIdempotencia() throws Exception {
+        Map<Long, Integer> estoqueAntes = estoqueAtual();
+        long vendasAntes = vendaRepository.count();
+        Map<Long, Integer> vendido = new HashMap<>();
+
+        int gravadas = executarCaixas(4, 12, new ConcurrentLinkedQueue<>(), vendido);
+
+        assertConsistente(estoqueAntes, vendasAntes, vendido, 4 * 12, gravadas);
+    }
+
+    /**
+     * Medição de vazão: fica fora da execução padrão ({@code mvn test -Pbenchmark})
+     */
+    @Test
+    @Tag("benchmark")
+    void trintaEDoisCaixasSimultaneos() throws Exception {
+        Map<Long, Integer> vendido = new HashMap<>();
+        executarCaixas(CAIXAS, VENDAS_AQUECIMENTO, new ConcurrentLinkedQueue<>(), vendido);
+        Map<Long, Integer> estoqueAntes = estoqueAtual();
+        long vendasAntes = vendaRepository.count();
+        vendido.clear();
+
+        ConcurrentLinkedQueue<Long> latencias = new ConcurrentLinkedQueue<>();
+        long inicio = System.nanoTime();
+        int gravadas = executarCaixas(CAIXAS, VENDAS_POR_CAIXA, latencias, vendido);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        long[] ordenadas = latencias.stream().mapToLong(Long::longValue).sorted().toArray();
+        logger.info(String.format("%d caixas, %d vendas de 10 itens em %.2f s: %.0f vendas/s; latência p50 %.1f ms, "
+                        + "p99 %.1f ms", CAIXAS, gravadas, segundos, gravadas / segundos,
+                percentil(ordenadas, 50) / 1e6, percentil(ordenadas, 99) / 1e6));
+
+        assertConsistente(estoqueAntes, vendasAntes, vendido, CAIXAS * VENDAS_POR_CAIXA, gravadas);
+    }
+
+    /**
+     * Cada caixa reenvia a 10ª venda: o reenvio não grava de novo, e o estoque baixa exatamente
+     * o que foi vendido
+     */
+    private void assertConsistente(Map<Long, Integer> estoqueAntes, long vendasAntes, Map<Long, Integer> vendido,
+            int esperadas, int gravadas) {
+        assertEquals(esperadas, gravadas);
+        assertEquals(vendasAntes + gravadas, vendaRepository.count());
+        Map<Long, Integer> estoqueDepois = estoqueAtual();
+        for (Produto produto : produtos) {
+            int esperado = estoqueAntes.get(produto.getId()) - vendido.getOrDefault(produto.getId(), 0);
+            assertEquals(esperado, estoqueDepois.get(produto.getId()), produto.getNome());
+        }
+    }
+
+    private Map<Long, Integer> estoqueAtual() {
+        Map<Long, Integer> estoque = new HashMap<>();
+        for (Produto produto : produtoRepository.findAll()) {
+            estoque.put(produto.getId(), produto.getQuantidadeEstoque());
+        }
+        return estoque;
+    }
+
+    /**
+     * Cada caixa registra suas vendas em sequência, todos ao mesmo tempo; soma em {@code vendido}
+     * as quantidades gravadas por produto
+     *
+     * @return vendas gravadas (sem contar reenvios)
+     */
+    private int executarCaixas(int quantidadeCaixas, int vendasPorCaixa, ConcurrentLinkedQueue<Long> latencias,
+            Map<Long, Integer> vendido) throws Exception {
+        ExecutorService caixas = Executors.newFixedThreadPool(quantidadeCaixas);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<List<PedidoVenda>>> resultados = new ArrayList<>();
+        for (int c = 0; c < quantidadeCaixas; c++) {
+            Random random = new Random(c);
+            resultados.add(caixas.submit(() -> {
+                largada.await();
+                List<PedidoVenda> gravados = new ArrayList<>();
+                for (int v = 0; v < vendasPorCaixa; v++) {
+                    PedidoVenda pedido = pedido(usuarioId, produtos, random);
+                    long inicio = System.nanoTime();
+                    VendaService.VendaRegistrada registrada = vendaService.registrarVendaRemota(pedido);
+                    latencias.add(System.nanoTime() - inicio);
+                    assertFalse(registrada.repetida());
+                    gravados.add(pedido);
+                    if (v == 9) {
+                        assertTrue(vendaService.registrarVendaRemota(pedido).repetida());
+                    }
+                }
+                return gravados;
+            }));
+        }
+        largada.countDown();
+        caixas.shutdown();
+        assertTrue(caixas.awaitTermination(5, TimeUnit.MINUTES));
+
+        int gravadas = 0;
+        for (Future<List<PedidoVenda>> resultado : resultados) {
+            for (PedidoVenda pedido : resultado.get()) {
+                gravadas++;
+                for (PedidoVenda.Item item : pedido.itens()) {
+                    vendido.merge(idPorCodigo(produtos, item.codigoBarras()), item.quantidade(), Integer::sum);
+                }
+            }
+        }
+        return gravadas;
+    }
+
+    private List<Produto> popularCatalogo() {
+        Categoria categoria = new Categoria();
+        categoria.setNome("Mercearia");
+        categoria = categoriaRepository.save(categoria);
+
+        List<Produto> produtos = new ArrayList<>();
+        for (int i = 0; i < PRODUTOS; i++) {
+            Produto produto = new Produto();
+            produto.setCodigoBarras(String.valueOf(7_891_000_000_000L + i));
+            produto.setNome("Produto " + i);
+            produto.setCategoria(categoria);
+            produto.setPrecoCusto(new BigDecimal("1.00"));
+            produto.setPrecoVenda(BigDecimal.valueOf(199 + i * 37L % 3_000, 2));
+            produto.setQuantidadeEstoque(ESTOQUE_INICIAL);
+            produtos.add(produto);
+        }
+        return produtoRepository.saveAll(produtos);
+    }
+
+    /**
+     * Cesta de 10 produtos distintos, com os mais vendidos concentrados no começo do catálogo
+     * (vários caixas baixando o estoque das mesmas linhas ao mesmo tempo)
+     */
+    private static PedidoVenda pedido(Long usuarioId, List<Produto> produtos, Random random) {
+        Map<Integer, PedidoVenda.Item> itens = new HashMap<>();
+        while (itens.size() < 10) {
+            int indice = (int) Math.pow(PRODUTOS, random.nextDouble()) - 1;
+            Produto produto = produtos.get(indice);
+            itens.putIfAbsent(indice, new PedidoVenda.Item(produto.getCodigoBarras(), 1 + random.nextInt(3),
+                    produto.getPrecoVenda()));
+        }
+        return new PedidoVenda(UUID.randomUUID().toString(), usuarioId, "PIX", new BigDecimal("10000.00"),
+                null, new ArrayList<>(itens.values()));
+    }
+
+    private static Long idPorCodigo(List<Produto> produtos, String codigoBarras) {
+        return produtos.get((int) (Long.parseLong(codigoBarras) - 7_891_000_000_000L)).getId();
+    }
+
+    private static long percentil(long[] ordenados, int percentil) {
+        int indice = (int) Math.ceil(percentil / 100.0 * ordenados.length) - 1;
+        return ordenados[Math.max(0, indice)];
+    }
+}
@@ -0,0 +1,156 @@
+package com.supermercado.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Árvore BK comparada com a busca por força bruta (Levenshtein completo contra todo o vocabulário),
+ * conferindo que a parada antecipada da distância e o corte das arestas não perdem nenhuma palavra
+ */
+class ArvoreBKTest {
+
+    private static final String ALFABETO = "abcdeao";
+
+    @Test
+    void distanciaComLimiteBateComACompletaAteOLimite() {
+        Random random = new Random(41);
+        for (int i = 0; i < 100_000; i++) {
+            String a = palavra(random);
+            String b = palavra(random);
+            int limite = random.nextInt(5);
+
+            int exata = levenshtein(a, b);
+            int obtida = ArvoreBK.distancia(a, b, limite);
+
+            assertEquals(exata, ArvoreBK.distancia(a, b, Integer.MAX_VALUE), a + " / " + b);
+            if (exata <= limite) {
+                assertEquals(exata, obtida, a + " / " + b + " limite " + limite);
+            } else {
+                assertTrue(obtida > limite, a + " / " + b + " limite " + limite + ": " + obtida);
+            }
+        }
+    }
+
+    @Test
+    void buscaBateComAForcaBrutaDepoisDeInclusoesERemocoes() {
+        Random random = new Random(42);
+        ArvoreBK arvore = new ArvoreBK();
+        Map<String, Integer> ocorrencias = new HashMap<>();
+        List<String> incluidas = new ArrayList<>();
+
+        for (int passo = 0; passo < 10_000; passo++) {
+            if (!incluidas.isEmpty() && random.nextInt(3) == 0) {
+                String palavra = incluidas.remove(random.nextInt(incluidas.size()));
+                arvore.remover(palavra);
+                ocorrencias.merge(palavra, -1, Integer::sum);
+            } else {
+                String palavra = palavra(random);
+                arvore.adicionar(palavra);
+                ocorrencias.merge(palavra, 1, Integer::sum);
+                incluidas.add(palavra);
+            }
+
+            if (passo % 1_000 == 0) {
+                for (int consulta = 0; consulta < 20; consulta++) {
+                    conferirBusca(arvore, ocorrencias, palavra(random), random.nextInt(4));
+                }
+            }
+        }
+
+        for (Map.Entry<String, Integer> palavra : ocorrencias.entrySet()) {
+            assertEquals(palavra.getValue() > 0, arvore.contem(palavra.getKey()), palavra.getKey());
+        }
+        assertEquals(ocorrencias.size(), arvore.tamanho());
+    }
+
+    @Test
+    void mesmaDistanciaVemDaMaisFrequente() {
+        ArvoreBK arvore = new ArvoreBK();
+        arvore.adicionar("arroz");
+        arvore.adicionar("arraz");
+        arvore.adicionar("arraz");
+        arvore.adicionar("arroz");
+        arvore.adicionar("arroz");
+        arvore.adicionar("feijao");
+
+        List<ArvoreBK.Resultado> resultado = arvore.buscar("arrez", 1);
+
+        assertEquals(List.of(new ArvoreBK.Resultado("arroz", 1, 3), new ArvoreBK.Resultado("arraz", 1, 2)), resultado);
+    }
+
+    @Test
+    void palavraRemovidaVoltaAoSerIncluidaDeNovo() {
+        ArvoreBK arvore = new ArvoreBK();
+        arvore.adicionar("leite");
+        arvore.adicionar("leito");
+        arvore.remover("leite");
+
+        assertFalse(arvore.contem("leite"));
+        assertEquals(List.of(new ArvoreBK.Resultado("leito", 1, 1)), arvore.buscar("leite", 1));
+
+        arvore.adicionar("leite");
+
+        assertTrue(arvore.contem("leite"));
+        assertEquals(new ArvoreBK.Resultado("leite", 0, 1), arvore.buscar("leite", 1).get(0));
+        assertTrue(new ArvoreBK().buscar("leite", 2).isEmpty());
+    }
+
+    private static void conferirBusca(ArvoreBK arvore, Map<String, Integer> ocorrencias, String consulta, int maxima) {
+        Set<ArvoreBK.Resultado> esperado = new HashSet<>();
+        for (Map.Entry<String, Integer> palavra : ocorrencias.entrySet()) {
+            int d = levenshtein(palavra.getKey(), consulta);
+            if (palavra.getValue() > 0 && d <= maxima) {
+                esperado.add(new ArvoreBK.Resultado(palavra.getKey(), d, palavra.getValue()));
+            }
+        }
+
+        List<ArvoreBK.Resultado> obtido = arvore.buscar(consulta, maxima);
+
+        assertEquals(esperado, new HashSet<>(obtido), "'" + consulta + "' até " + maxima);
+        assertEquals(esperado.size(), obtido.size(), "repetidos em '" + consulta + "'");
+        for (int i = 1; i < obtido.size(); i++) {
+            ArvoreBK.Resultado a = obtido.get(i - 1);
+            ArvoreBK.Resultado b = obtido.get(i);
+            assertTrue(a.distancia() < b.distancia()
+                    || a.distancia() == b.distancia() && a.ocorrencias() >= b.ocorrencias(), obtido.toString());
+        }
+    }
+
+    /**
+     * Levenshtein pela matriz completa, sem limite
+     */
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int custo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + custo);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static String palavra(Random random) {
+        int tamanho = 1 + random.nextInt(8);
+        StringBuilder palavra = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            palavra.append(ALFABETO.charAt(random.nextInt(ALFABETO.length())));
+        }
+        return palavra.toString();
+    }
+}
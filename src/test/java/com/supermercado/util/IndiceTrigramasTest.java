@@ -0,0 +1,180 @@
+package com.supermercado.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Índice de trigramas comparado com a busca por força bruta nos textos indexados.
+ * As listas de postings (diferenças em varint, buffers de inclusão e remoção e compactação)
+ * são conferidas por termos de exatamente um trigrama, cujo resultado é a lista inteira.
+ */
+class IndiceTrigramasTest {
+
+    private static final String ALFABETO = "abcde ";
+
+    @Test
+    void listasBatemComAForcaBrutaDepoisDeInclusoesRemocoesEAlteracoes() {
+        Random random = new Random(21);
+        IndiceTrigramas indice = new IndiceTrigramas();
+        Map<Long, String> textos = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            // IDs espaçados para exercitar varints de vários bytes
+            ids.add(1 + (long) i * 7_919 + random.nextInt(7_919) + (i % 10 == 0 ? 1L << 40 : 0));
+        }
+
+        for (int passo = 0; passo < 30_000; passo++) {
+            // Ordem aleatória: boa parte das inclusões chega fora de ordem e vai para o buffer
+            long id = ids.get(random.nextInt(ids.size()));
+            String atual = textos.get(id);
+            if (atual != null) {
+                indice.remover(id, atual);
+                textos.remove(id);
+                if (random.nextBoolean()) {
+                    String novo = texto(random);
+                    indice.adicionar(id, novo);
+                    textos.put(id, novo);
+                }
+            } else {
+                String novo = texto(random);
+                indice.adicionar(id, novo);
+                textos.put(id, novo);
+            }
+
+            if (passo % 3_000 == 0) {
+                conferirTodosOsTrigramas(indice, textos);
+            }
+        }
+
+        conferirTodosOsTrigramas(indice, textos);
+        conferirBigramas(indice, textos);
+    }
+
+    @Test
+    void candidatosNuncaPerdemUmTextoQueContemOTermo() {
+        Random random = new Random(22);
+        IndiceTrigramas indice = new IndiceTrigramas();
+        Map<Long, String> textos = new HashMap<>();
+        for (long id = 1; id <= 2_000; id++) {
+            String texto = texto(random);
+            indice.adicionar(id, texto);
+            textos.put(id, texto);
+        }
+
+        for (int i = 0; i < 2_000; i++) {
+            String termo = texto(random).strip();
+            if (termo.length() > 6) {
+                termo = termo.substring(0, 3 + random.nextInt(4)).strip();
+            }
+            if (termo.length() < 2) {
+                continue;
+            }
+            long[] candidatos = indice.candidatos(termo);
+            assertOrdenadoSemRepeticao(candidatos);
+            Set<Long> encontrados = conjunto(candidatos);
+            for (Map.Entry<Long, String> texto : textos.entrySet()) {
+                if (texto.getValue().contains(termo)) {
+                    assertTrue(encontrados.contains(texto.getKey()),
+                            "'" + termo + "' não trouxe " + texto.getKey() + " '" + texto.getValue() + "'");
+                }
+            }
+        }
+    }
+
+    @Test
+    void termoDeDoisCaracteresCasaEmQualquerPosicao() {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        indice.adicionar(1, "feijao carioca");
+        indice.adicionar(2, "arroz");
+        indice.adicionar(3, "ao vivo");
+
+        assertArrayEquals(new long[] { 1, 3 }, indice.candidatos("ao"));
+        assertArrayEquals(new long[] { 1 }, indice.candidatos("ca"));
+        assertArrayEquals(new long[0], indice.candidatos("zz"));
+        assertNull(indice.candidatos("a"));
+    }
+
+    @Test
+    void removerTudoEsvaziaOIndice() {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        Map<Long, String> textos = new HashMap<>();
+        Random random = new Random(23);
+        for (long id = 500; id >= 1; id--) {
+            String texto = texto(random);
+            indice.adicionar(id, texto);
+            textos.put(id, texto);
+        }
+
+        textos.forEach(indice::remover);
+
+        assertEquals(0, indice.tamanho());
+    }
+
+    private static void conferirTodosOsTrigramas(IndiceTrigramas indice, Map<Long, String> textos) {
+        Map<String, TreeSet<Long>> esperado = new HashMap<>();
+        for (Map.Entry<Long, String> texto : textos.entrySet()) {
+            String comBordas = "  " + texto.getValue() + " ";
+            for (int i = 0; i + 3 <= comBordas.length(); i++) {
+                esperado.computeIfAbsent(comBordas.substring(i, i + 3), t -> new TreeSet<>()).add(texto.getKey());
+            }
+        }
+
+        assertEquals(esperado.size(), indice.tamanho());
+        for (Map.Entry<String, TreeSet<Long>> trigrama : esperado.entrySet()) {
+            if (trigrama.getKey().charAt(0) == ' ' || trigrama.getKey().charAt(2) == ' ') {
+                // Termos começando ou terminando em espaço não são consultados (vêm normalizados)
+                continue;
+            }
+            long[] obtido = indice.candidatos(trigrama.getKey());
+            assertArrayEquals(trigrama.getValue().stream().mapToLong(Long::longValue).toArray(), obtido,
+                    "trigrama '" + trigrama.getKey() + "'");
+        }
+    }
+
+    private static void conferirBigramas(IndiceTrigramas indice, Map<Long, String> textos) {
+        for (char a : ALFABETO.strip().toCharArray()) {
+            for (char b : ALFABETO.strip().toCharArray()) {
+                String termo = "" + a + b;
+                long[] esperado = textos.entrySet().stream()
+                        .filter(t -> t.getValue().contains(termo))
+                        .mapToLong(Map.Entry::getKey).sorted().toArray();
+                assertArrayEquals(esperado, indice.candidatos(termo), "bigrama '" + termo + "'");
+            }
+        }
+    }
+
+    private static String texto(Random random) {
+        int tamanho = 3 + random.nextInt(12);
+        StringBuilder texto = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            texto.append(ALFABETO.charAt(random.nextInt(ALFABETO.length())));
+        }
+        // Como os nomes normalizados: sem espaços nas pontas nem repetidos
+        return texto.toString().strip().replaceAll(" +", " ") + "x";
+    }
+
+    private static void assertOrdenadoSemRepeticao(long[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i], Arrays.toString(ids));
+        }
+    }
+
+    private static Set<Long> conjunto(long[] ids) {
+        Set<Long> conjunto = new HashSet<>();
+        for (long id : ids) {
+            conjunto.add(id);
+        }
+        return conjunto;
+    }
+}
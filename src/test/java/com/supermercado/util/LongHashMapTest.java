@@ -0,0 +1,116 @@
+package com.supermercado.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LongHashMap comparado com um HashMap comum sob a mesma sequência de operações
+ */
+class LongHashMapTest {
+
+    @Test
+    void operacoesAleatoriasBatemComHashMap() {
+        Random random = new Random(42);
+        LongHashMap<String> mapa = new LongHashMap<>(4);
+        Map<Long, String> referencia = new HashMap<>();
+
+        for (int passo = 0; passo < 200_000; passo++) {
+            // Poucas chaves distintas: muitas colisões, remoções e reinserções da mesma chave
+            long chave = 1 + random.nextInt(2_000);
+            int operacao = random.nextInt(10);
+            if (operacao < 5) {
+                String valor = "v" + passo;
+                assertEquals(referencia.put(chave, valor), mapa.put(chave, valor));
+            } else if (operacao < 8) {
+                assertEquals(referencia.remove(chave), mapa.remove(chave));
+            } else {
+                assertEquals(referencia.get(chave), mapa.get(chave));
+            }
+            assertEquals(referencia.size(), mapa.size());
+        }
+        assertMesmoConteudo(referencia, mapa);
+    }
+
+    @Test
+    void remocaoNoMeioDaSequenciaDeSondagemMantemAsOutrasChaves() {
+        LongHashMap<Long> mapa = new LongHashMap<>(1024);
+        Map<Long, Long> referencia = new HashMap<>();
+
+        // Chaves sequenciais e múltiplos da capacidade formam agrupamentos longos
+        for (long chave = 1; chave <= 400; chave++) {
+            mapa.put(chave, chave);
+            referencia.put(chave, chave);
+            long multiplo = chave * 2048;
+            mapa.put(multiplo, multiplo);
+            referencia.put(multiplo, multiplo);
+        }
+        for (long chave = 1; chave <= 400; chave += 3) {
+            assertEquals(referencia.remove(chave), mapa.remove(chave));
+            assertEquals(referencia.remove(chave * 2048), mapa.remove(chave * 2048));
+        }
+        assertMesmoConteudo(referencia, mapa);
+    }
+
+    @Test
+    void redimensionaPreservandoTodasAsChaves() {
+        Random random = new Random(7);
+        LongHashMap<Long> mapa = new LongHashMap<>();
+        Map<Long, Long> referencia = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            long chave = random.nextLong();
+            if (chave == 0) {
+                continue;
+            }
+            mapa.put(chave, (long) i);
+            referencia.put(chave, (long) i);
+        }
+        assertMesmoConteudo(referencia, mapa);
+
+        for (Long chave : referencia.keySet()) {
+            assertEquals(referencia.get(chave), mapa.remove(chave));
+        }
+        assertTrue(mapa.isEmpty());
+        mapa.forEachKey(chave -> fail("sobrou a chave " + chave));
+    }
+
+    @Test
+    void chaveZeroEReservada() {
+        LongHashMap<String> mapa = new LongHashMap<>();
+
+        assertThrows(IllegalArgumentException.class, () -> mapa.put(0L, "x"));
+        assertNull(mapa.get(0L));
+        assertNull(mapa.remove(0L));
+        assertEquals(0, mapa.size());
+    }
+
+    @Test
+    void limparEsvaziaOMapa() {
+        LongHashMap<String> mapa = new LongHashMap<>();
+        for (long chave = 1; chave <= 100; chave++) {
+            mapa.put(chave, "v");
+        }
+
+        mapa.clear();
+
+        assertTrue(mapa.isEmpty());
+        assertNull(mapa.get(50L));
+        assertNull(mapa.put(50L, "novo"));
+        assertEquals("novo", mapa.get(50L));
+    }
+
+    private static <V> void assertMesmoConteudo(Map<Long, V> referencia, LongHashMap<V> mapa) {
+        assertEquals(referencia.size(), mapa.size());
+        for (Map.Entry<Long, V> entrada : referencia.entrySet()) {
+            assertEquals(entrada.getValue(), mapa.get(entrada.getKey()), "chave " + entrada.getKey());
+        }
+        Map<Long, V> percorrido = new HashMap<>();
+        mapa.forEachKey(chave -> percorrido.put(chave, mapa.get(chave)));
+        assertEquals(referencia, percorrido);
+    }
+}
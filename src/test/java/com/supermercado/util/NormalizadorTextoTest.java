@@ -0,0 +1,74 @@
+package com.supermercado.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Normalização de nomes comparada com o caminho completo (NFD + expressões regulares),
+ * inclusive para textos que passam pelo atalho de texto já normalizado
+ */
+class NormalizadorTextoTest {
+
+    // Letras que exercitam o atalho (ASCII minúsculo) e o caminho completo
+    private static final String CARACTERES = "abcxyz0189 ABCZ çÇãÃéÉíôÕüñ-_./,'\t ß";
+
+    @Test
+    void exemplosDoCatalogo() {
+        assertEquals("acucar refinado 1kg", NormalizadorTexto.normalizar("Açúcar  Refinado-1kg"));
+        assertEquals("feijao carioca", NormalizadorTexto.normalizar("FEIJÃO Carioca "));
+        assertEquals("pao de queijo", NormalizadorTexto.normalizar(" Pão-de-Queijo"));
+        assertEquals("", NormalizadorTexto.normalizar(null));
+        assertEquals("", NormalizadorTexto.normalizar(""));
+        assertEquals("", NormalizadorTexto.normalizar(" - "));
+    }
+
+    @Test
+    void textoJaNormalizadoVoltaSemCopia() {
+        String texto = "arroz tipo 1 5kg";
+        assertSame(texto, NormalizadorTexto.normalizar(texto));
+    }
+
+    @Test
+    void atalhoNaoAceitaTextoQuePrecisaDeNormalizacao() {
+        // Cada um falha em um critério diferente do atalho
+        for (String texto : new String[] { " arroz", "arroz ", "arroz  tipo", "Arroz", "arroz-tipo", "pão", "a\tb" }) {
+            assertEquals(referencia(texto), NormalizadorTexto.normalizar(texto), "'" + texto + "'");
+            assertNotEquals(texto, NormalizadorTexto.normalizar(texto));
+        }
+    }
+
+    @Test
+    void textosAleatoriosBatemComOCaminhoCompleto() {
+        Random random = new Random(31);
+        for (int i = 0; i < 200_000; i++) {
+            String texto = texto(random, i % 2 == 0 ? "abcxyz0189 " : CARACTERES);
+
+            String obtido = NormalizadorTexto.normalizar(texto);
+
+            assertEquals(referencia(texto), obtido, "'" + texto + "'");
+            assertEquals(obtido, NormalizadorTexto.normalizar(obtido), "não idempotente: '" + texto + "'");
+        }
+    }
+
+    /**
+     * Caminho completo, sem o atalho
+     */
+    private static String referencia(String texto) {
+        String semAcentos = Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return semAcentos.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").strip();
+    }
+
+    private static String texto(Random random, String caracteres) {
+        int tamanho = random.nextInt(16);
+        StringBuilder texto = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            texto.append(caracteres.charAt(random.nextInt(caracteres.length())));
+        }
+        return texto.toString();
+    }
+}
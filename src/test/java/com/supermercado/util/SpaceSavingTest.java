@@ -0,0 +1,198 @@
+package com.supermercado.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Limites de erro do Space-Saving conferidos contra a contagem exata (HashMap)
+ */
+class SpaceSavingTest {
+
+    private static final int CAPACIDADE = 50;
+
+    @Test
+    void contagensFicamDentroDoErroInformado() {
+        Random random = new Random(11);
+        SpaceSaving sketch = new SpaceSaving(CAPACIDADE);
+        Map<Long, Long> reais = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            long chave = chaveZipf(random, 5_000);
+            long peso = 1 + random.nextInt(3);
+            sketch.adicionar(chave, peso);
+            reais.merge(chave, peso, Long::sum);
+        }
+
+        assertLimites(sketch, reais, CAPACIDADE);
+    }
+
+    @Test
+    void cancelamentosMantemOsLimites() {
+        Random random = new Random(12);
+        SpaceSaving sketch = new SpaceSaving(CAPACIDADE);
+        Map<Long, Long> reais = new HashMap<>();
+        List<long[]> adicionados = new ArrayList<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            if (!adicionados.isEmpty() && random.nextInt(4) == 0) {
+                // Cancela uma venda já contada, de qualquer época
+                long[] cancelado = adicionados.remove(random.nextInt(adicionados.size()));
+                sketch.remover(cancelado[0], cancelado[1]);
+                reais.merge(cancelado[0], -cancelado[1], Long::sum);
+            } else {
+                long chave = chaveZipf(random, 5_000);
+                long peso = 1 + random.nextInt(3);
+                sketch.adicionar(chave, peso);
+                reais.merge(chave, peso, Long::sum);
+                adicionados.add(new long[] { chave, peso });
+            }
+            if (i % 10_000 == 0) {
+                assertLimites(sketch, reais, CAPACIDADE);
+            }
+        }
+
+        assertLimites(sketch, reais, CAPACIDADE);
+    }
+
+    @Test
+    void cancelarOsMaisVendidosNaoEscondeOsQueForamDescartados() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        Map<Long, Long> reais = new HashMap<>();
+
+        adicionar(sketch, reais, 1, 100);
+        adicionar(sketch, reais, 2, 100);
+        adicionar(sketch, reais, 3, 50);   // toma o lugar de 1 ou 2, que saem com 100
+        long descartado = sketch.topo(2).stream().anyMatch(e -> e.chave() == 1) ? 2 : 1;
+        long mantido = 3 - descartado;
+        sketch.remover(mantido, 100);
+        sketch.remover(3, 50);
+        reais.merge(mantido, -100L, Long::sum);
+        reais.merge(3L, -50L, Long::sum);
+
+        // O descartado volta: a estimativa precisa cobrir as 100 unidades que ele já tinha
+        adicionar(sketch, reais, descartado, 1);
+
+        assertLimites(sketch, reais, 2);
+    }
+
+    @Test
+    void mesclarJanelasMantemOsLimitesDaSomaExata() {
+        Random random = new Random(13);
+        SpaceSaving janela = new SpaceSaving(CAPACIDADE);
+        Map<Long, Long> reais = new HashMap<>();
+
+        // Uma janela de 24 horas, cada hora com seu próprio sketch e produtos mais vendidos diferentes
+        for (int hora = 0; hora < 24; hora++) {
+            SpaceSaving sketchHora = new SpaceSaving(CAPACIDADE);
+            for (int i = 0; i < 10_000; i++) {
+                long chave = (chaveZipf(random, 3_000) + hora * 97L) % 3_000 + 1;
+                sketchHora.adicionar(chave, 1);
+                reais.merge(chave, 1L, Long::sum);
+            }
+            janela.mesclar(sketchHora);
+        }
+
+        assertEquals(24 * 10_000L, janela.getTotal());
+        assertLimites(janela, reais, CAPACIDADE);
+    }
+
+    @Test
+    void chaveDescartadaNoOutroSketchSomaOPisoDele() {
+        SpaceSaving a = new SpaceSaving(3);
+        SpaceSaving b = new SpaceSaving(3);
+        Map<Long, Long> reais = new HashMap<>();
+        adicionar(a, reais, 5, 20);
+        adicionar(b, reais, 5, 3);
+        adicionar(b, reais, 6, 10);
+        adicionar(b, reais, 8, 10);
+        adicionar(b, reais, 7, 10); // descarta a chave 5 de b, que tinha 3
+
+        a.mesclar(b);
+
+        SpaceSaving.Entrada cinco = a.entradas().stream().filter(e -> e.chave() == 5).findFirst().orElseThrow();
+        assertEquals(23, cinco.contagem());
+        assertEquals(3, cinco.erro());
+        assertLimites(a, reais, 3);
+    }
+
+    @Test
+    void semDescarteAsContagensSaoExatas() {
+        SpaceSaving a = new SpaceSaving(CAPACIDADE);
+        SpaceSaving b = new SpaceSaving(CAPACIDADE);
+        for (long chave = 1; chave <= 20; chave++) {
+            a.adicionar(chave, chave);
+            b.adicionar(chave + 10, 2 * chave);
+        }
+
+        a.mesclar(b);
+
+        for (SpaceSaving.Entrada entrada : a.entradas()) {
+            long chave = entrada.chave();
+            long esperado = (chave <= 20 ? chave : 0) + (chave > 10 ? 2 * (chave - 10) : 0);
+            assertEquals(esperado, entrada.contagem(), "chave " + chave);
+            assertEquals(0, entrada.erro());
+        }
+        assertEquals(30, a.tamanho());
+    }
+
+    @Test
+    void topoVemEmOrdemDecrescente() {
+        SpaceSaving sketch = new SpaceSaving(CAPACIDADE);
+        Random random = new Random(14);
+        for (int i = 0; i < 50_000; i++) {
+            sketch.adicionar(chaveZipf(random, 1_000), 1);
+        }
+
+        List<SpaceSaving.Entrada> topo = sketch.topo(10);
+
+        assertEquals(10, topo.size());
+        for (int i = 1; i < topo.size(); i++) {
+            assertTrue(topo.get(i - 1).contagem() >= topo.get(i).contagem());
+        }
+    }
+
+    private static void adicionar(SpaceSaving sketch, Map<Long, Long> reais, long chave, long peso) {
+        sketch.adicionar(chave, peso);
+        reais.merge(chave, peso, Long::sum);
+    }
+
+    /**
+     * Toda chave acompanhada tem contagem - erro <= real <= contagem, e toda chave com
+     * frequência real acima de total/capacidade está entre as acompanhadas
+     */
+    private static void assertLimites(SpaceSaving sketch, Map<Long, Long> reais, int capacidade) {
+        long total = reais.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, sketch.getTotal());
+
+        Map<Long, SpaceSaving.Entrada> acompanhadas = new HashMap<>();
+        for (SpaceSaving.Entrada entrada : sketch.entradas()) {
+            acompanhadas.put(entrada.chave(), entrada);
+            long real = reais.getOrDefault(entrada.chave(), 0L);
+            assertTrue(entrada.contagem() >= real,
+                    "chave " + entrada.chave() + ": estimativa " + entrada.contagem() + " abaixo da real " + real);
+            assertTrue(entrada.contagem() - entrada.erro() <= real,
+                    "chave " + entrada.chave() + ": limite inferior " + (entrada.contagem() - entrada.erro())
+                            + " acima da real " + real);
+        }
+        for (Map.Entry<Long, Long> real : reais.entrySet()) {
+            if (real.getValue() * capacidade > total) {
+                assertTrue(acompanhadas.containsKey(real.getKey()),
+                        "chave frequente " + real.getKey() + " (" + real.getValue() + ") fora do sketch");
+            }
+        }
+    }
+
+    /**
+     * Chave em [1, n] com distribuição aproximadamente Zipf (poucos produtos vendem muito)
+     */
+    private static long chaveZipf(Random random, int n) {
+        return (long) Math.pow(n, random.nextDouble());
+    }
+}